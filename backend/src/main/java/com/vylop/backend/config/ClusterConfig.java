@@ -0,0 +1,34 @@
+package com.vylop.backend.config;
+
+import com.vylop.backend.service.cluster.InMemoryRoomBackplane;
+import com.vylop.backend.service.cluster.StompRoomBackplane;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Picks the backplane rooms are shared through when the backend runs on several nodes.
+ * "memory" (default) keeps everything in this JVM, i.e. a single node.
+ * "stomp" publishes through an external STOMP broker such as RabbitMQ.
+ */
+@Configuration
+public class ClusterConfig {
+
+    @Bean(initMethod = "start", destroyMethod = "shutdown")
+    @ConditionalOnProperty(name = "vylop.cluster.backplane", havingValue = "memory", matchIfMissing = true)
+    public InMemoryRoomBackplane inMemoryRoomBackplane() {
+        return new InMemoryRoomBackplane();
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    @ConditionalOnProperty(name = "vylop.cluster.backplane", havingValue = "stomp")
+    public StompRoomBackplane stompRoomBackplane(@Value("${vylop.cluster.broker.host:localhost}") String host,
+                                                 @Value("${vylop.cluster.broker.port:61613}") int port,
+                                                 @Value("${vylop.cluster.broker.login:guest}") String login,
+                                                 @Value("${vylop.cluster.broker.passcode:guest}") String passcode,
+                                                 @Value("${vylop.cluster.broker.virtual-host:}") String virtualHost,
+                                                 @Value("${vylop.cluster.broker.destination:/topic/vylop.cluster}") String destination) {
+        return new StompRoomBackplane(host, port, login, passcode, virtualHost, destination);
+    }
+}
@@ -0,0 +1,46 @@
+package com.vylop.backend.config;
+
+import com.vylop.backend.service.execution.LocalExecutionEngine;
+import com.vylop.backend.service.execution.WandboxExecutionEngine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Picks where code runs.
+ * "wandbox" (default) sends every run to the public Wandbox API.
+ * "local" compiles and runs in resource-limited child processes on this host.
+ */
+@Configuration
+public class ExecutionConfig {
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "vylop.execution.engine", havingValue = "wandbox", matchIfMissing = true)
+    public WandboxExecutionEngine wandboxExecutionEngine(@Value("${vylop.execution.wandbox.connect-timeout-ms:5000}") long connectTimeoutMs,
+                                                         @Value("${vylop.execution.wandbox.read-timeout-ms:60000}") long readTimeoutMs,
+                                                         @Value("${vylop.execution.wandbox.catalog-refresh-minutes:360}") long catalogRefreshMinutes,
+                                                         @Value("${vylop.execution.wandbox.catalog-retry-seconds:60}") long catalogRetrySeconds) {
+        return new WandboxExecutionEngine(connectTimeoutMs, readTimeoutMs,
+                catalogRefreshMinutes * 60_000, catalogRetrySeconds * 1000);
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "vylop.execution.engine", havingValue = "local")
+    public LocalExecutionEngine localExecutionEngine(@Value("${vylop.execution.local.compile-timeout-ms:30000}") long compileTimeoutMs,
+                                                     @Value("${vylop.execution.local.run-timeout-ms:10000}") long runTimeoutMs,
+                                                     @Value("${vylop.execution.local.memory-mb:256}") long memoryMb,
+                                                     @Value("${vylop.execution.local.max-output-bytes:65536}") int maxOutputBytes,
+                                                     @Value("${vylop.execution.local.max-concurrent-runs:0}") int maxConcurrentRuns,
+                                                     @Value("${vylop.execution.local.wrapper:}") String wrapper,
+                                                     @Value("${vylop.execution.local.java-workers:2}") int javaWorkers,
+                                                     @Value("${vylop.execution.local.artifact-cache-mb:256}") long artifactCacheMb) {
+        int slots = maxConcurrentRuns > 0 ? maxConcurrentRuns : Runtime.getRuntime().availableProcessors();
+        List<String> wrapperCommand = wrapper.isBlank() ? List.of() : Arrays.asList(wrapper.trim().split("\\s+"));
+        return new LocalExecutionEngine(compileTimeoutMs, runTimeoutMs, memoryMb, maxOutputBytes, slots, wrapperCommand,
+                javaWorkers, artifactCacheMb * 1024 * 1024);
+    }
+}
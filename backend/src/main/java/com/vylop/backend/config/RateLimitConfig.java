@@ -0,0 +1,33 @@
+package com.vylop.backend.config;
+
+import com.vylop.backend.service.ratelimit.JdbcRateLimiter;
+import com.vylop.backend.service.ratelimit.LocalRateLimiter;
+import com.vylop.backend.service.ratelimit.RateLimiter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Picks where rate limit buckets live.
+ * "local" (default) keeps them in memory on each node, so a client spread over N nodes gets N times the limit.
+ * "jdbc" shares them through Postgres so the limit holds across the cluster.
+ */
+@Configuration
+public class RateLimitConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "vylop.ratelimit.store", havingValue = "local", matchIfMissing = true)
+    public RateLimiter localRateLimiter(@Value("${vylop.ratelimit.max-keys:1000000}") long maxKeys) {
+        return new LocalRateLimiter(maxKeys);
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "vylop.ratelimit.store", havingValue = "jdbc")
+    public JdbcRateLimiter jdbcRateLimiter(JdbcTemplate jdbcTemplate,
+                                           @Value("${vylop.ratelimit.max-keys:1000000}") long maxKeys,
+                                           @Value("${vylop.ratelimit.cleanup-interval-seconds:60}") long cleanupIntervalSeconds) {
+        return new JdbcRateLimiter(jdbcTemplate, new LocalRateLimiter(maxKeys), cleanupIntervalSeconds * 1000);
+    }
+}
@@ -0,0 +1,26 @@
+package com.vylop.backend.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class RealtimeConfig {
+
+    /**
+     * Timer threads that flush the per-room outbound batches.
+     * Flushes write to sockets, so this is sized to the CPU count rather than a single thread.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService relayScheduler() {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newScheduledThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), runnable -> {
+            Thread thread = new Thread(runnable, "relay-flush-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -43,7 +43,7 @@ public class SecurityConfig {
             .cors(cors -> cors.configurationSource(corsConfigurationSource()))
             .csrf(csrf -> csrf.disable())
             .authorizeHttpRequests(auth -> auth
-                .requestMatchers("/api/auth/**", "/ws/**", "/api/workspace/**", "/api/execute").permitAll()
+                .requestMatchers("/api/auth/**", "/ws/**", "/yjs/**", "/api/workspace/**", "/api/execute", "/api/execute/**", "/api/cluster/**", "/actuator/health").permitAll()
                 .anyRequest().authenticated()
             )
             .oauth2Login(oauth2 -> oauth2
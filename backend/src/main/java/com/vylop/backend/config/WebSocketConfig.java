@@ -24,6 +24,7 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         registry.setApplicationDestinationPrefixes("/app");
         
         // Messages sent FROM the server to clients start with /topic
+        // The broker only serves this node's clients; rooms spanning nodes are bridged by RoomMessenger
         registry.enableSimpleBroker("/topic");
     }
 }
\ No newline at end of file
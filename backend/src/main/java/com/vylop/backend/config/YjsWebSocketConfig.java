@@ -0,0 +1,37 @@
+package com.vylop.backend.config;
+
+import com.vylop.backend.controller.YjsWebSocketHandler;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
+
+@Configuration
+@EnableWebSocket
+public class YjsWebSocketConfig implements WebSocketConfigurer {
+
+    // Full-document sync frames can be far larger than Tomcat's 8 KB default
+    private static final int MAX_BINARY_MESSAGE_BYTES = 4 * 1024 * 1024;
+
+    private final YjsWebSocketHandler yjsWebSocketHandler;
+
+    public YjsWebSocketConfig(YjsWebSocketHandler yjsWebSocketHandler) {
+        this.yjsWebSocketHandler = yjsWebSocketHandler;
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        // Plain (non-SockJS) socket: SockJS only carries text frames
+        registry.addHandler(yjsWebSocketHandler, "/yjs/*")
+                .setAllowedOriginPatterns("*");
+    }
+
+    @Bean
+    public ServletServerContainerFactoryBean createWebSocketContainer() {
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxBinaryMessageBufferSize(MAX_BINARY_MESSAGE_BYTES);
+        return container;
+    }
+}
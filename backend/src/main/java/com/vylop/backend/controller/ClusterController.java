@@ -0,0 +1,33 @@
+package com.vylop.backend.controller;
+
+import com.vylop.backend.service.cluster.ClusterCoordinator;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/cluster")
+public class ClusterController {
+
+    private final ClusterCoordinator coordinator;
+
+    public ClusterController(ClusterCoordinator coordinator) {
+        this.coordinator = coordinator;
+    }
+
+    // Clients open their realtime sockets against the returned url so a room stays on one node
+    @GetMapping("/route/{roomId}")
+    public Map<String, String> routeRoom(@PathVariable String roomId) {
+        String owner = coordinator.ownerOf(roomId);
+
+        Map<String, String> route = new HashMap<>();
+        route.put("roomId", roomId);
+        route.put("node", owner);
+        route.put("url", coordinator.urlOf(owner));
+        return route;
+    }
+}
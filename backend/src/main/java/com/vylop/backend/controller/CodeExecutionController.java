@@ -1,14 +1,22 @@
 package com.vylop.backend.controller;
 
+import com.vylop.backend.dto.BatchExecutionRequest;
 import com.vylop.backend.service.CodeExecutionService;
+import com.vylop.backend.service.ExecutionJobService;
+import com.vylop.backend.service.execution.OutputListener;
+import com.vylop.backend.service.ratelimit.ExecutionRateLimiter;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/execute")
@@ -18,47 +26,134 @@ public class CodeExecutionController {
     @Autowired
     private CodeExecutionService executionService;
 
-    // Memory-Based Rate Limiter
-    // Stores the IP address and the timestamp of their last execution
-    private final Map<String, Long> requestCounts = new ConcurrentHashMap<>();
-    
-    // Cooldown period in milliseconds (3000ms = 3 seconds)
-    private static final long COOLDOWN_TIME = 3000;
+    @Autowired
+    private ExecutionJobService jobService;
+
+    @Autowired
+    private ExecutionRateLimiter rateLimiter;
+
+    private static final String QUEUE_FULL = "Error: Too many runs in progress. Please try again in a few seconds.";
 
+    /**
+     * Runs code and answers when it finishes. The run waits in the execution queue, not on a
+     * servlet thread: the request is completed asynchronously once the job is done.
+     */
     @PostMapping
-    public ResponseEntity<String> runCode(@RequestBody Map<String, Object> payload, HttpServletRequest request) {
+    public CompletableFuture<ResponseEntity<String>> runCode(@RequestBody Map<String, Object> payload, HttpServletRequest request) {
         
         // 1. Rate Limiting Check
-        String clientIp = request.getRemoteAddr();
-        long currentTime = System.currentTimeMillis();
-        
-        if (requestCounts.containsKey(clientIp)) {
-            long lastRequestTime = requestCounts.get(clientIp);
-            if (currentTime - lastRequestTime < COOLDOWN_TIME) {
-                long timeLeft = (COOLDOWN_TIME - (currentTime - lastRequestTime)) / 1000;
-                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
-                        .body("Rate limit exceeded. Please wait " + timeLeft + " seconds before running code again.");
-            }
+        ResponseEntity<String> limited = checkRateLimit(request, (String) payload.get("roomId"));
+        if (limited != null) {
+            return CompletableFuture.completedFuture(limited);
         }
-        
-        // Update their last request time
-        requestCounts.put(clientIp, currentTime);
 
-        // 2. Extract Payload
+        // 2. Queue the run; reject at once when the queue is full
+        ExecutionJobService.Job job;
+        try {
+            job = jobService.submit(null, runFromPayload(payload, null));
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(QUEUE_FULL));
+        }
+        return job.getResult().thenApply(result -> ResponseEntity.ok(String.valueOf(result)));
+    }
+
+    /**
+     * Queues a run and returns its job ID at once (202). The result is fetched from
+     * GET /api/execute/jobs/{jobId} or, when roomId is given, streamed to the whole room on
+     * /topic/exec/{roomId}/{jobId} as the program writes, then pushed there when it finishes.
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<?> submitJob(@RequestBody Map<String, Object> payload, HttpServletRequest request) {
+        String roomId = (String) payload.get("roomId");
+        ResponseEntity<String> limited = checkRateLimit(request, roomId);
+        if (limited != null) {
+            return limited;
+        }
+
+        try {
+            ExecutionJobService.Job job = roomId == null
+                    ? jobService.submit(null, runFromPayload(payload, null))
+                    : jobService.submitStreaming(roomId, (String) payload.get("username"),
+                            listener -> runFromPayload(payload, listener).get());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job.toMap());
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(QUEUE_FULL);
+        }
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<Map<String, Object>> getJob(@PathVariable String jobId) {
+        ExecutionJobService.Job job = jobService.find(jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(job.toMap());
+    }
+
+    /**
+     * Runs one program against every test case of a problem in a single request:
+     * compiled once, cases fanned out in parallel, verdict and per-case timing returned.
+     * Counts as one run for the rate limiter and as one job in the execution queue.
+     */
+    @PostMapping("/batch")
+    public CompletableFuture<ResponseEntity<?>> runBatch(@RequestBody BatchExecutionRequest payload, HttpServletRequest request) {
+        ResponseEntity<String> limited = checkRateLimit(request, null);
+        if (limited != null) {
+            return CompletableFuture.completedFuture(limited);
+        }
+
+        List<BatchExecutionRequest.TestCase> testCases = payload.getTestCases();
+        if (testCases == null || testCases.isEmpty()) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body("Error: No test cases provided."));
+        }
+        if (testCases.size() > executionService.maxBatchCases()) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body("Error: At most " + executionService.maxBatchCases() + " test cases per batch."));
+        }
+
+        ExecutionJobService.Job job;
+        try {
+            job = jobService.submit(null, () -> executionService.executeBatch(payload.getLanguage(), payload.getCode(),
+                    payload.getMainFile(), payload.getFiles(), payload.getEnvVars(), testCases,
+                    payload.getParallelism(), payload.isStopOnFirstFailure()));
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(QUEUE_FULL));
+        }
+        return job.getResult().thenApply(ResponseEntity::ok);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Supplier<Object> runFromPayload(Map<String, Object> payload, OutputListener listener) {
         String language = (String) payload.get("language");
         String code = (String) payload.get("code");
         String input = (String) payload.get("input");
         String mainFile = (String) payload.getOrDefault("mainFile", "Main.java");
-        
-        @SuppressWarnings("unchecked")
         Map<String, String> files = (Map<String, String>) payload.get("files");
 
         // --- NEW: Extract Environment Secrets ---
-        @SuppressWarnings("unchecked")
         Map<String, String> envVars = (Map<String, String>) payload.get("envVars");
-        
-        // 3. Execute securely via Cloud Sandbox API
-        String result = executionService.executeCode(language, code, input, mainFile, files, envVars);
-        return ResponseEntity.ok(result);
+
+        // Executes via the configured engine (Wandbox or local sandbox)
+        return () -> executionService.executeCode(language, code, input, mainFile, files, envVars, listener);
+    }
+
+    /**
+     * Takes a run from the caller's and the room's token buckets. Returns the 429 to answer
+     * with, carrying Retry-After, when either is empty; otherwise null.
+     * Signed-in users are limited by name, everyone else by client IP.
+     */
+    private ResponseEntity<String> checkRateLimit(HttpServletRequest request, String roomId) {
+        String user = request.getUserPrincipal() != null
+                ? "u:" + request.getUserPrincipal().getName()
+                : "ip:" + request.getRemoteAddr();
+
+        long waitMs = rateLimiter.tryAcquire(user, roomId);
+        if (waitMs == 0) {
+            return null;
+        }
+        long waitSeconds = Math.max(1, (waitMs + 999) / 1000);
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(waitSeconds))
+                .body("Rate limit exceeded. Please wait " + waitSeconds + " seconds before running code again.");
     }
-}
\ No newline at end of file
+}
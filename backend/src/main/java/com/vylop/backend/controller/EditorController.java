@@ -1,6 +1,10 @@
 package com.vylop.backend.controller;
 
 import com.vylop.backend.model.*;
+import com.vylop.backend.service.realtime.PresenceService;
+import com.vylop.backend.service.realtime.RoomBroadcastBatcher;
+import com.vylop.backend.service.realtime.RoomMessenger;
+import com.vylop.backend.service.realtime.RoomParticipantRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.event.EventListener;
@@ -8,54 +12,48 @@ import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 
 @Controller
 public class EditorController {
 
     private static final Logger logger = LoggerFactory.getLogger(EditorController.class);
-    private final SimpMessagingTemplate messagingTemplate;
-    
-    private static final Map<String, Map<String, RoomParticipant>> roomUsers = new ConcurrentHashMap<>();
-
-    public EditorController(SimpMessagingTemplate messagingTemplate) {
-        this.messagingTemplate = messagingTemplate;
-    }
-
-    public static Map<String, Map<String, RoomParticipant>> getRoomUsers() {
-        return roomUsers;
+    private final RoomMessenger messenger;
+    private final RoomBroadcastBatcher broadcastBatcher;
+    private final PresenceService presenceService;
+    private final RoomParticipantRegistry participants;
+
+    public EditorController(RoomMessenger messenger, RoomBroadcastBatcher broadcastBatcher,
+                            PresenceService presenceService, RoomParticipantRegistry participants) {
+        this.messenger = messenger;
+        this.broadcastBatcher = broadcastBatcher;
+        this.presenceService = presenceService;
+        this.participants = participants;
     }
 
     @MessageMapping("/code/{roomId}")
     public void sendCode(@DestinationVariable String roomId, @Payload CodeMessage message) {
-        messagingTemplate.convertAndSend("/topic/code/" + roomId, message);
+        broadcastBatcher.enqueueCode(roomId, message);
     }
 
-    // --- FIXED: Accept raw String to prevent Jackson JSON corruption ---
-    @MessageMapping("/yjs/{roomId}")
-    public void sendYjsUpdate(@DestinationVariable String roomId, @Payload String payload) {
-        // Relaying the exact raw JSON string skips any Java Map/Object conversion errors
-        messagingTemplate.convertAndSend("/topic/yjs/" + roomId, payload);
-    }
+    // Yjs updates no longer travel over STOMP — see YjsWebSocketHandler (/yjs/{roomId})
 
     @MessageMapping("/chat/{roomId}")
     public void sendChatMessage(@DestinationVariable String roomId, @Payload ChatMessage message) {
-        messagingTemplate.convertAndSend("/topic/chat/" + roomId, message);
+        messenger.send(roomId, "/topic/chat/" + roomId, message);
     }
 
     @MessageMapping("/typing/{roomId}")
     public void sendTypingEvent(@DestinationVariable String roomId, @Payload Map<String, String> payload) {
-        messagingTemplate.convertAndSend("/topic/typing/" + roomId, payload);
+        presenceService.updateTyping(roomId, payload.get("username"), "true".equals(payload.get("isTyping")));
     }
 
     @MessageMapping("/cursor/{roomId}")
     public void sendCursorEvent(@DestinationVariable String roomId, @Payload CursorMessage payload) {
-        messagingTemplate.convertAndSend("/topic/cursor/" + roomId, payload);
+        presenceService.updateCursor(roomId, payload);
     }
 
     @MessageMapping("/room/{roomId}/join")
@@ -64,19 +62,14 @@ public class EditorController {
         headerAccessor.getSessionAttributes().put("username", username);
         headerAccessor.getSessionAttributes().put("roomId", roomId);
 
-        Map<String, RoomParticipant> usersInRoom = roomUsers.computeIfAbsent(roomId, k -> new ConcurrentHashMap<>());
-        
-        ParticipantRole assignedRole = usersInRoom.isEmpty() ? ParticipantRole.HOST : ParticipantRole.READ_ONLY;
-        usersInRoom.put(username, new RoomParticipant(username, assignedRole));
-        
-        logger.info("User {} joined Room {} as {}", username, roomId, assignedRole);
-
-        UserMessage response = new UserMessage(
-            username, 
-            new ArrayList<>(usersInRoom.values()), 
-            "JOIN"
-        );
-        messagingTemplate.convertAndSend("/topic/users/" + roomId, response);
+        participants.enter(roomId, username, usersInRoom -> {
+            ParticipantRole assignedRole = usersInRoom.isEmpty() ? ParticipantRole.HOST : ParticipantRole.READ_ONLY;
+            usersInRoom.put(username, new RoomParticipant(username, assignedRole));
+
+            logger.info("User {} joined Room {} as {}", username, roomId, assignedRole);
+
+            participants.publish(roomId, username, "JOIN");
+        });
     }
 
     @MessageMapping("/room/{roomId}/leave")
@@ -97,9 +90,10 @@ public class EditorController {
     }
 
     private void handleUserLeave(String roomId, String username) {
-        Map<String, RoomParticipant> usersInRoom = roomUsers.get(roomId);
+        Map<String, RoomParticipant> usersInRoom = participants.usersIn(roomId);
         if (usersInRoom != null && usersInRoom.containsKey(username)) {
             RoomParticipant leavingUser = usersInRoom.remove(username);
+            presenceService.removeUser(roomId, username);
             
             if (!usersInRoom.isEmpty() && leavingUser.getRole() == ParticipantRole.HOST) {
                 RoomParticipant nextHost = usersInRoom.values().iterator().next();
@@ -107,13 +101,9 @@ public class EditorController {
                 logger.info("Host left. Promoted {} to new HOST in Room {}", nextHost.getUsername(), roomId);
             }
 
-            UserMessage response = new UserMessage(
-                username, 
-                new ArrayList<>(usersInRoom.values()), 
-                "LEAVE"
-            );
-            messagingTemplate.convertAndSend("/topic/users/" + roomId, response);
+            participants.publish(roomId, username, "LEAVE");
         }
+        participants.exit(roomId, username);
     }
 
     @MessageMapping("/room/{roomId}/roleChange")
@@ -122,7 +112,7 @@ public class EditorController {
         String targetUser = payload.get("targetUser");
         String newRoleStr = payload.get("newRole");
 
-        Map<String, RoomParticipant> usersInRoom = roomUsers.get(roomId);
+        Map<String, RoomParticipant> usersInRoom = participants.usersIn(roomId);
         
         if (usersInRoom != null && usersInRoom.containsKey(requester) && usersInRoom.get(requester).getRole() == ParticipantRole.HOST) {
             if (usersInRoom.containsKey(targetUser)) {
@@ -130,12 +120,7 @@ public class EditorController {
                 
                 logger.info("Host {} changed {}'s role to {}", requester, targetUser, newRoleStr);
                 
-                UserMessage response = new UserMessage(
-                    targetUser, 
-                    new ArrayList<>(usersInRoom.values()), 
-                    "ROLE_UPDATE"
-                );
-                messagingTemplate.convertAndSend("/topic/users/" + roomId, response);
+                participants.publish(roomId, targetUser, "ROLE_UPDATE");
             }
         }
     }
@@ -145,18 +130,14 @@ public class EditorController {
         String requester = (String) headerAccessor.getSessionAttributes().get("username");
         String targetUser = payload.get("targetUser");
 
-        Map<String, RoomParticipant> usersInRoom = roomUsers.get(roomId);
+        Map<String, RoomParticipant> usersInRoom = participants.usersIn(roomId);
         
         if (usersInRoom != null && usersInRoom.containsKey(requester) && usersInRoom.get(requester).getRole() == ParticipantRole.HOST) {
             if (usersInRoom.containsKey(targetUser)) {
                 usersInRoom.remove(targetUser);
+                presenceService.removeUser(roomId, targetUser);
                 
-                UserMessage response = new UserMessage(
-                    targetUser, 
-                    new ArrayList<>(usersInRoom.values()), 
-                    "KICK"
-                );
-                messagingTemplate.convertAndSend("/topic/users/" + roomId, response);
+                participants.publish(roomId, targetUser, "KICK");
             }
         }
     }
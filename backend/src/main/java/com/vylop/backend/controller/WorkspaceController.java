@@ -1,12 +1,19 @@
 package com.vylop.backend.controller;
 
+import com.vylop.backend.dto.WorkspaceDeltaRequest;
 import com.vylop.backend.service.WorkspaceService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/workspace")
@@ -50,6 +57,56 @@ public class WorkspaceController {
         return ResponseEntity.ok(files);
     }
 
+    /** Everything about the room's files except their content. */
+    @GetMapping("/{roomId}/manifest")
+    public ResponseEntity<List<Map<String, Object>>> getWorkspaceManifest(@PathVariable UUID roomId) {
+        return ResponseEntity.ok(workspaceService.getWorkspaceManifest(roomId));
+    }
+
+    /**
+     * One file's content, fetched when the editor first opens it.
+     * The name is a query parameter because file names contain slashes.
+     */
+    @GetMapping(value = "/{roomId}/file", produces = MediaType.TEXT_PLAIN_VALUE)
+    public ResponseEntity<String> loadFile(@PathVariable UUID roomId, @RequestParam String name) {
+        return workspaceService.loadFile(roomId, name)
+                .map(content -> ResponseEntity.ok()
+                        .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
+                        .body(content))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Same payload as /load, streamed a chunk of files at a time from the database and gzip-compressed
+     * on the fly when the client accepts it, so large rooms neither buffer on the heap
+     * nor wait for the last file before the first byte goes out.
+     */
+    @GetMapping("/{roomId}/load-stream")
+    public ResponseEntity<StreamingResponseBody> streamWorkspace(
+            @PathVariable UUID roomId,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, defaultValue = "") String acceptEncoding) {
+
+        boolean gzip = acceptEncoding.contains("gzip");
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                // syncFlush so the service's early flush actually reaches the client
+                try (GZIPOutputStream compressed = new GZIPOutputStream(out, 8192, true)) {
+                    workspaceService.streamWorkspace(roomId, compressed);
+                }
+            } else {
+                workspaceService.streamWorkspace(roomId, out);
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
     @PostMapping("/{roomId}/save")
     public ResponseEntity<String> saveWorkspace(
             @PathVariable UUID roomId,
@@ -64,11 +121,50 @@ public class WorkspaceController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Hash-based save: only files whose content changed are sent and written.
+     * Answers 409 with the list of files whose content the server still needs.
+     */
+    @PostMapping("/{roomId}/save-delta")
+    public ResponseEntity<Map<String, Object>> saveWorkspaceDelta(
+            @PathVariable UUID roomId,
+            @RequestParam String username,
+            @RequestParam String roomName,
+            @RequestBody WorkspaceDeltaRequest request) {
+
+        Map<String, Object> response = workspaceService.saveWorkspaceDelta(roomId, username, roomName, request);
+        if (((String) response.get("message")).startsWith("Error")) {
+            return ResponseEntity.badRequest().body(response);
+        }
+        if (response.containsKey("missing")) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/user/{username}")
     public ResponseEntity<List<Map<String, Object>>> getUserWorkspaces(@PathVariable String username) {
         return ResponseEntity.ok(workspaceService.getUserWorkspaces(username));
     }
 
+    /**
+     * The dashboard's workspace list, one page at a time: pass the previous page's nextCursor
+     * to continue, and q to filter by name.
+     */
+    @GetMapping("/user/{username}/page")
+    public ResponseEntity<Map<String, Object>> getUserWorkspacePage(
+            @PathVariable String username,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(required = false) String q) {
+
+        Map<String, Object> response = workspaceService.getUserWorkspacePage(username, cursor, limit, q);
+        if (response.containsKey("message")) {
+            return ResponseEntity.badRequest().body(response);
+        }
+        return ResponseEntity.ok(response);
+    }
+
     @DeleteMapping("/{roomId}/delete")
     public ResponseEntity<String> deleteWorkspace(
             @PathVariable UUID roomId, 
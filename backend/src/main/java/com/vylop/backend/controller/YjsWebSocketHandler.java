@@ -0,0 +1,405 @@
+package com.vylop.backend.controller;
+
+import com.vylop.backend.service.cluster.ClusterCoordinator;
+import com.vylop.backend.service.cluster.ClusterEvent;
+import com.vylop.backend.service.WorkspaceAutosaver;
+import com.vylop.backend.service.realtime.RoomParticipantRegistry;
+import com.vylop.backend.service.realtime.YjsDocumentStore;
+import com.vylop.backend.service.realtime.YjsUpdateLog;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.BinaryWebSocketHandler;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Raw binary channel for Yjs CRDT traffic on /yjs/{roomId}?username={name}.
+ * Every frame is a one-byte tag followed by a raw Yjs payload:
+ *
+ *   UPDATE            client -> server -> rest of room, forwarded byte-for-byte
+ *   UPDATE_BATCH      server -> room, length-prefixed updates relayed within one batching window
+ *   SYNC_REQUEST      client -> server, payload is the client's state vector
+ *   SYNC_RESPONSE     server -> requester only, length-prefixed updates it is missing
+ *   SNAPSHOT_REQUEST  server -> one client, asks for Y.encodeStateAsUpdate
+ *   SNAPSHOT          client -> server, full state folded into the room's log
+ *   SNAPSHOT_FILES    client -> server, sent with SNAPSHOT: {fileName: text} JSON for autosave
+ *
+ * UPDATE, SNAPSHOT and SNAPSHOT_FILES change the room, so they are only taken from a socket
+ * whose user is in the room as HOST or EDITOR (see RoomParticipantRegistry); anyone else's
+ * are dropped. The role is checked per frame, so a demotion applies at once.
+ *
+ * When a room's sockets are spread over several nodes, updates and snapshots are also
+ * published on the cluster backplane, and a node that starts holding the room is sent the
+ * document by the nodes that already hold it.
+ *
+ * Updates and snapshots from this node's clients are also appended to the durable
+ * YjsUpdateLog, which refills a room when its first client connects.
+ *
+ * Room files are autosaved from SNAPSHOT_FILES, so an editor is asked for a snapshot every
+ * snapshot interval while the room has updates no snapshot contains yet, and again when a
+ * socket closes (its user's last edits may not be in one). Clients also send a final snapshot
+ * when they leave. An edit that misses all of these stays in the log until a later session's
+ * snapshot is autosaved; the log is not purged before then.
+ */
+@Component
+public class YjsWebSocketHandler extends BinaryWebSocketHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(YjsWebSocketHandler.class);
+
+    public static final byte UPDATE = 0;
+    public static final byte SYNC_REQUEST = 1;
+    public static final byte SYNC_RESPONSE = 2;
+    public static final byte SNAPSHOT_REQUEST = 3;
+    public static final byte SNAPSHOT = 4;
+    public static final byte UPDATE_BATCH = 5;
+    public static final byte SNAPSHOT_FILES = 6;
+
+    // Slow consumers get disconnected (and resync on reconnect) instead of stalling the room
+    private static final int SEND_TIME_LIMIT_MS = 10_000;
+    private static final int SEND_BUFFER_LIMIT_BYTES = 1024 * 1024;
+
+    private static final String ROOM_ID_ATTRIBUTE = "roomId";
+    private static final String USERNAME_ATTRIBUTE = "username";
+    // YjsUpdateLog.appendSnapshot result of the socket's last SNAPSHOT, for its SNAPSHOT_FILES
+    private static final String SNAPSHOT_ROW_ATTRIBUTE = "yjsSnapshotRow";
+    // Encoded state vector of an empty document: "send me everything"
+    private static final byte[] EMPTY_STATE_VECTOR = { 0 };
+
+    private final YjsDocumentStore documentStore;
+    private final YjsUpdateLog updateLog;
+    private final WorkspaceAutosaver autosaver;
+    private final ClusterCoordinator coordinator;
+    private final RoomParticipantRegistry participants;
+    private final ScheduledExecutorService relayScheduler;
+    private final long batchWindowMs;
+    private final long snapshotIntervalMs;
+
+    // roomId -> (sessionId -> thread-safe session)
+    private final Map<String, Map<String, WebSocketSession>> roomSessions = new ConcurrentHashMap<>();
+    private final Map<String, PendingUpdates> pendingUpdates = new ConcurrentHashMap<>();
+
+    public YjsWebSocketHandler(YjsDocumentStore documentStore,
+                               YjsUpdateLog updateLog,
+                               WorkspaceAutosaver autosaver,
+                               ClusterCoordinator coordinator,
+                               RoomParticipantRegistry participants,
+                               ScheduledExecutorService relayScheduler,
+                               @Value("${vylop.relay.batch-window-ms:5}") long batchWindowMs,
+                               @Value("${vylop.yjs.snapshot-interval-ms:30000}") long snapshotIntervalMs) {
+        this.documentStore = documentStore;
+        this.updateLog = updateLog;
+        this.autosaver = autosaver;
+        this.coordinator = coordinator;
+        this.participants = participants;
+        this.relayScheduler = relayScheduler;
+        this.batchWindowMs = batchWindowMs;
+        this.snapshotIntervalMs = snapshotIntervalMs;
+    }
+
+    @PostConstruct
+    void listen() {
+        coordinator.on(ClusterEvent.Type.YJS_UPDATE, event -> applyRemoteUpdate(event.getRoomId(), event.getPayload()));
+        coordinator.on(ClusterEvent.Type.YJS_SNAPSHOT, event -> {
+            if (!roomSessions.containsKey(event.getRoomId())) return;
+            try {
+                documentStore.applySnapshot(event.getRoomId(), event.getPayload());
+            } catch (IllegalArgumentException e) {
+                logger.warn("Ignoring malformed Yjs snapshot for Room {} from another node: {}", event.getRoomId(), e.getMessage());
+            }
+        });
+        coordinator.on(ClusterEvent.Type.YJS_STATE, event -> {
+            for (byte[] update : decodeUpdates(event.getPayload())) {
+                applyRemoteUpdate(event.getRoomId(), update);
+            }
+        });
+        coordinator.onRemoteJoin(this::sendStateTo);
+        relayScheduler.scheduleWithFixedDelay(this::requestSnapshots, snapshotIntervalMs, snapshotIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        String roomId = extractRoomId(session.getUri());
+        if (roomId == null) {
+            closeQuietly(session, CloseStatus.BAD_DATA);
+            return;
+        }
+        session.getAttributes().put(ROOM_ID_ATTRIBUTE, roomId);
+        String username = extractUsername(session.getUri());
+        if (username != null) session.getAttributes().put(USERNAME_ATTRIBUTE, username);
+
+        WebSocketSession concurrentSession = new ConcurrentWebSocketSessionDecorator(
+                session, SEND_TIME_LIMIT_MS, SEND_BUFFER_LIMIT_BYTES);
+        roomSessions.computeIfAbsent(roomId, k -> new ConcurrentHashMap<>()).put(session.getId(), concurrentSession);
+        // Before any of this socket's frames are handled, so its first sync sees the logged work
+        documentStore.restore(roomId, updateLog::load);
+        coordinator.retainRoom(roomId);
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) {
+        String roomId = (String) session.getAttributes().get(ROOM_ID_ATTRIBUTE);
+        Map<String, WebSocketSession> sessions = roomId != null ? roomSessions.get(roomId) : null;
+        if (sessions == null) return;
+
+        // Copy the body once: the container may recycle the inbound buffer while sends are still queued
+        ByteBuffer payload = message.getPayload();
+        if (!payload.hasRemaining()) return;
+        byte tag = payload.get();
+        if ((tag == UPDATE || tag == SNAPSHOT || tag == SNAPSHOT_FILES) && !canEdit(session, roomId)) {
+            logger.debug("Dropping Yjs frame {} from a socket without edit rights in Room {}", tag, roomId);
+            return;
+        }
+        byte[] body = new byte[payload.remaining()];
+        payload.get(body);
+
+        // The store decodes each update, snapshot and state vector before anything is logged or relayed
+        try {
+            switch (tag) {
+                case UPDATE:
+                    boolean compact = documentStore.append(roomId, body);
+                    updateLog.append(roomId, body);
+                    enqueue(roomId, session.getId(), body);
+                    coordinator.publishToRoom(ClusterEvent.Type.YJS_UPDATE, roomId, null, body);
+                    if (compact) {
+                        send(roomId, sessions, sessions.get(session.getId()), new byte[] { SNAPSHOT_REQUEST });
+                    }
+                    break;
+                case SYNC_REQUEST:
+                    send(roomId, sessions, sessions.get(session.getId()),
+                            encodeUpdates(SYNC_RESPONSE, documentStore.diff(roomId, body)));
+                    break;
+                case SNAPSHOT:
+                    documentStore.applySnapshot(roomId, body);
+                    session.getAttributes().put(SNAPSHOT_ROW_ATTRIBUTE, updateLog.appendSnapshot(roomId, body));
+                    coordinator.publishToRoom(ClusterEvent.Type.YJS_SNAPSHOT, roomId, null, body);
+                    break;
+                case SNAPSHOT_FILES:
+                    autosaver.submit(roomId, body, takeSnapshotRow(session));
+                    break;
+                default:
+                    logger.debug("Ignoring Yjs frame with unknown tag {} in Room {}", tag, roomId);
+            }
+        } catch (IllegalArgumentException e) {
+            // Only the sender is dropped; the room and its other peers carry on
+            logger.warn("Closing Yjs socket {} in Room {} after a malformed frame {}: {}", session.getId(), roomId, tag, e.getMessage());
+            sessions.remove(session.getId());
+            closeQuietly(session, CloseStatus.BAD_DATA);
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        String roomId = (String) session.getAttributes().get(ROOM_ID_ATTRIBUTE);
+        if (roomId == null) return;
+
+        coordinator.releaseRoom(roomId);
+        Map<String, WebSocketSession> remaining = roomSessions.computeIfPresent(roomId, (k, sessions) -> {
+            sessions.remove(session.getId());
+            if (sessions.isEmpty()) {
+                // Nobody left to hold the document — the next joiner is refilled from the durable YjsUpdateLog
+                documentStore.evict(roomId);
+                return null;
+            }
+            return sessions;
+        });
+        if (remaining != null) {
+            // A snapshot request may have gone to the socket that just closed
+            requestSnapshot(roomId, remaining, true);
+        }
+    }
+
+    /** Asks an editor of every room held here for a snapshot if the room has unsnapshotted updates. */
+    private void requestSnapshots() {
+        for (Map.Entry<String, Map<String, WebSocketSession>> room : roomSessions.entrySet()) {
+            try {
+                requestSnapshot(room.getKey(), room.getValue(), false);
+            } catch (RuntimeException e) {
+                // An escaping exception would cancel the timer for every room
+                logger.warn("Snapshot request failed for Room {}: {}", room.getKey(), e.getMessage());
+            }
+        }
+    }
+
+    private void requestSnapshot(String roomId, Map<String, WebSocketSession> sessions, boolean retryNow) {
+        // Only an editor's snapshot is accepted, so only an editor is asked
+        sessions.values().stream().filter(peer -> canEdit(peer, roomId)).findFirst().ifPresent(peer -> {
+            if (documentStore.claimSnapshot(roomId, retryNow)) {
+                send(roomId, sessions, peer, new byte[] { SNAPSHOT_REQUEST });
+            }
+        });
+    }
+
+    private void applyRemoteUpdate(String roomId, byte[] update) {
+        Map<String, WebSocketSession> sessions = roomSessions.get(roomId);
+        if (sessions == null) return;
+
+        boolean compact;
+        try {
+            compact = documentStore.append(roomId, update);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Ignoring malformed Yjs update for Room {} from another node: {}", roomId, e.getMessage());
+            return;
+        }
+        if (compact) {
+            // Compaction needs a full document, which only a client has — ask a local one whose snapshot we take
+            sessions.values().stream().filter(peer -> canEdit(peer, roomId)).findFirst()
+                    .ifPresent(peer -> send(roomId, sessions, peer, new byte[] { SNAPSHOT_REQUEST }));
+        }
+        enqueue(roomId, null, update);
+    }
+
+    /** Hands everything this node holds for the room to a node that just started holding it. */
+    private void sendStateTo(String roomId, String node) {
+        List<byte[]> updates = documentStore.diff(roomId, EMPTY_STATE_VECTOR);
+        if (updates.isEmpty()) return;
+        coordinator.publishTo(node, ClusterEvent.Type.YJS_STATE, roomId, null, encodeUpdates(UPDATE_BATCH, updates));
+    }
+
+    private void enqueue(String roomId, String senderId, byte[] update) {
+        boolean[] opened = { false };
+        pendingUpdates.compute(roomId, (k, batch) -> {
+            if (batch == null) {
+                batch = new PendingUpdates(senderId);
+                opened[0] = true;
+            }
+            batch.add(senderId, update);
+            return batch;
+        });
+        if (opened[0]) {
+            relayScheduler.schedule(() -> flush(roomId), batchWindowMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Sends everything relayed during the window as one frame shared by all peers.
+     * Peers may get their own updates back when several people typed; Yjs ignores those.
+     */
+    private void flush(String roomId) {
+        PendingUpdates batch = pendingUpdates.remove(roomId);
+        Map<String, WebSocketSession> sessions = roomSessions.get(roomId);
+        if (batch == null || sessions == null) return;
+
+        byte[] frame;
+        if (batch.updates.size() == 1) {
+            byte[] update = batch.updates.get(0);
+            frame = new byte[update.length + 1];
+            frame[0] = UPDATE;
+            System.arraycopy(update, 0, frame, 1, update.length);
+        } else {
+            frame = encodeUpdates(UPDATE_BATCH, batch.updates);
+        }
+
+        for (WebSocketSession peer : sessions.values()) {
+            if (peer.getId().equals(batch.soleSender)) continue;
+            send(roomId, sessions, peer, frame);
+        }
+    }
+
+    private void send(String roomId, Map<String, WebSocketSession> sessions, WebSocketSession peer, byte[] frame) {
+        if (peer == null) return;
+        try {
+            peer.sendMessage(new BinaryMessage(frame));
+        } catch (IOException | IllegalStateException e) {
+            logger.warn("Dropping Yjs peer {} in Room {}: {}", peer.getId(), roomId, e.getMessage());
+            sessions.remove(peer.getId());
+            closeQuietly(peer, CloseStatus.SESSION_NOT_RELIABLE);
+        }
+    }
+
+    private byte[] encodeUpdates(byte tag, List<byte[]> updates) {
+        int size = 1;
+        for (byte[] update : updates) size += 4 + update.length;
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(tag);
+        for (byte[] update : updates) {
+            buffer.putInt(update.length);
+            buffer.put(update);
+        }
+        return buffer.array();
+    }
+
+    private List<byte[]> decodeUpdates(byte[] frame) {
+        ByteBuffer buffer = ByteBuffer.wrap(frame, 1, frame.length - 1);
+        List<byte[]> updates = new ArrayList<>();
+        while (buffer.remaining() >= 4) {
+            byte[] update = new byte[buffer.getInt()];
+            buffer.get(update);
+            updates.add(update);
+        }
+        return updates;
+    }
+
+    private String extractRoomId(URI uri) {
+        if (uri == null) return null;
+        String path = uri.getPath();
+        int slash = path.lastIndexOf('/');
+        String roomId = slash >= 0 ? path.substring(slash + 1) : path;
+        return roomId.isBlank() ? null : roomId;
+    }
+
+    private String extractUsername(URI uri) {
+        String query = uri != null ? uri.getRawQuery() : null;
+        if (query == null) return null;
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith(USERNAME_ATTRIBUTE + "=")) {
+                String username = URLDecoder.decode(parameter.substring(USERNAME_ATTRIBUTE.length() + 1), StandardCharsets.UTF_8);
+                return username.isBlank() ? null : username;
+            }
+        }
+        return null;
+    }
+
+    /** The log row of the socket's last SNAPSHOT, which the files that follow it were taken with. */
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<Long> takeSnapshotRow(WebSocketSession session) {
+        return (CompletableFuture<Long>) session.getAttributes().remove(SNAPSHOT_ROW_ATTRIBUTE);
+    }
+
+    private boolean canEdit(WebSocketSession session, String roomId) {
+        return participants.canEdit(roomId, (String) session.getAttributes().get(USERNAME_ATTRIBUTE));
+    }
+
+    private void closeQuietly(WebSocketSession session, CloseStatus status) {
+        try {
+            session.close(status);
+        } catch (IOException ignored) {
+            // Socket is already gone
+        }
+    }
+
+    private static final class PendingUpdates {
+        private final List<byte[]> updates = new ArrayList<>();
+        // Set while every update in the window came from one socket, which then needs no echo
+        private String soleSender; // null for updates that arrived from another node
+
+        private PendingUpdates(String firstSender) {
+            this.soleSender = firstSender;
+        }
+
+        private void add(String senderId, byte[] update) {
+            updates.add(update);
+            if (soleSender != null && !soleSender.equals(senderId)) {
+                soleSender = null;
+            }
+        }
+    }
+}
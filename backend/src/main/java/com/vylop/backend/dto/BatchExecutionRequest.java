@@ -0,0 +1,57 @@
+package com.vylop.backend.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Body of /api/execute/batch: one program plus the test cases to run it against.
+ * parallelism is how many cases may run at once (capped server-side);
+ * stopOnFirstFailure skips cases that have not started once one fails.
+ */
+public class BatchExecutionRequest {
+    private String language;
+    private String code;
+    private String mainFile = "Main.java";
+    private Map<String, String> files;
+    private Map<String, String> envVars;
+    private List<TestCase> testCases;
+    private int parallelism = 4;
+    private boolean stopOnFirstFailure;
+
+    public static class TestCase {
+        private String input;
+        private String expectedOutput;
+
+        // Getters and Setters
+        public String getInput() { return input; }
+        public void setInput(String input) { this.input = input; }
+
+        public String getExpectedOutput() { return expectedOutput; }
+        public void setExpectedOutput(String expectedOutput) { this.expectedOutput = expectedOutput; }
+    }
+
+    // Getters and Setters
+    public String getLanguage() { return language; }
+    public void setLanguage(String language) { this.language = language; }
+
+    public String getCode() { return code; }
+    public void setCode(String code) { this.code = code; }
+
+    public String getMainFile() { return mainFile; }
+    public void setMainFile(String mainFile) { this.mainFile = mainFile; }
+
+    public Map<String, String> getFiles() { return files; }
+    public void setFiles(Map<String, String> files) { this.files = files; }
+
+    public Map<String, String> getEnvVars() { return envVars; }
+    public void setEnvVars(Map<String, String> envVars) { this.envVars = envVars; }
+
+    public List<TestCase> getTestCases() { return testCases; }
+    public void setTestCases(List<TestCase> testCases) { this.testCases = testCases; }
+
+    public int getParallelism() { return parallelism; }
+    public void setParallelism(int parallelism) { this.parallelism = parallelism; }
+
+    public boolean isStopOnFirstFailure() { return stopOnFirstFailure; }
+    public void setStopOnFirstFailure(boolean stopOnFirstFailure) { this.stopOnFirstFailure = stopOnFirstFailure; }
+}
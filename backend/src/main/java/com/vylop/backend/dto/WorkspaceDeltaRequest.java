@@ -0,0 +1,20 @@
+package com.vylop.backend.dto;
+
+import java.util.Map;
+
+/**
+ * Body of /api/workspace/{roomId}/save-delta.
+ * manifest lists every file the workspace should contain with the SHA-256 of its content;
+ * files carries content only for the files the client believes changed since its last save.
+ */
+public class WorkspaceDeltaRequest {
+    private Map<String, String> manifest;
+    private Map<String, String> files;
+
+    // Getters and Setters
+    public Map<String, String> getManifest() { return manifest; }
+    public void setManifest(Map<String, String> manifest) { this.manifest = manifest; }
+
+    public Map<String, String> getFiles() { return files; }
+    public void setFiles(Map<String, String> files) { this.files = files; }
+}
@@ -4,14 +4,16 @@ public class CursorMessage {
     private String username;
     private int lineNumber;
     private int column;
+    private String fileName;
 
     public CursorMessage() {
     }
 
-    public CursorMessage(String username, int lineNumber, int column) {
+    public CursorMessage(String username, int lineNumber, int column, String fileName) {
         this.username = username;
         this.lineNumber = lineNumber;
         this.column = column;
+        this.fileName = fileName;
     }
 
     public String getUsername() {
@@ -37,4 +39,12 @@ public class CursorMessage {
     public void setColumn(int column) {
         this.column = column;
     }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
 }
\ No newline at end of file
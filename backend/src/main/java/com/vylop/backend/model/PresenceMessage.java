@@ -0,0 +1,24 @@
+package com.vylop.backend.model;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Presence changes since the previous tick, broadcast on /topic/presence/{roomId}.
+ */
+public class PresenceMessage {
+    private List<CursorMessage> cursors;
+    private List<Map<String, String>> typing; // { username, isTyping: "true" | "false" }
+
+    public PresenceMessage() {}
+
+    public PresenceMessage(List<CursorMessage> cursors, List<Map<String, String>> typing) {
+        this.cursors = cursors;
+        this.typing = typing;
+    }
+
+    public List<CursorMessage> getCursors() { return cursors; }
+    public void setCursors(List<CursorMessage> cursors) { this.cursors = cursors; }
+    public List<Map<String, String>> getTyping() { return typing; }
+    public void setTyping(List<Map<String, String>> typing) { this.typing = typing; }
+}
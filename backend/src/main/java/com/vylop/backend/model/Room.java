@@ -23,7 +23,7 @@ public class Room {
     @Column(name = "is_private", nullable = false)
     private boolean isPrivate = false;
 
-    @Column(name = "created_at", updatable = false)
+    @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
     @PrePersist
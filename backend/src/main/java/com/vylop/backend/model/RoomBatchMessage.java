@@ -0,0 +1,19 @@
+package com.vylop.backend.model;
+
+import java.util.List;
+
+/**
+ * Code events relayed to a room during one batching window, sent as a single frame on /topic/batch/{roomId}.
+ */
+public class RoomBatchMessage {
+    private List<CodeMessage> code;
+
+    public RoomBatchMessage() {}
+
+    public RoomBatchMessage(List<CodeMessage> code) {
+        this.code = code;
+    }
+
+    public List<CodeMessage> getCode() { return code; }
+    public void setCode(List<CodeMessage> code) { this.code = code; }
+}
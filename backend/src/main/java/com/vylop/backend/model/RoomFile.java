@@ -1,20 +1,28 @@
 package com.vylop.backend.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
+import java.util.HexFormat;
 import java.util.UUID;
 
 @Entity
-@Table(name = "room_files")
+@Table(name = "room_files", uniqueConstraints = @UniqueConstraint(columnNames = {"room_id", "file_name"}))
 public class RoomFile {
 
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
     private UUID id;
 
-    // Links this file directly to a specific Room
+    // Links this file directly to a specific Room; deleting the room deletes its files in Postgres (V8)
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "room_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
     private Room room;
 
     @Column(name = "file_name", nullable = false)
@@ -24,6 +32,14 @@ public class RoomFile {
     @Column(columnDefinition = "TEXT")
     private String content;
 
+    // SHA-256 of the UTF-8 content, hex encoded — kept in step with content by setContent
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    // UTF-8 byte length of the content, also maintained by setContent
+    @Column(name = "content_size")
+    private Integer contentSize;
+
     @Column(nullable = false)
     private String language;
 
@@ -43,8 +59,25 @@ public class RoomFile {
     public RoomFile(Room room, String fileName, String content, String language) {
         this.room = room;
         this.fileName = fileName;
-        this.content = content;
         this.language = language;
+        applyContent(content);
+    }
+
+    /** Same digest the editor computes with crypto.subtle before a delta save. */
+    public static String hashContent(String content) {
+        return hashBytes(utf8(content));
+    }
+
+    private static byte[] utf8(String content) {
+        return (content == null ? "" : content).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String hashBytes(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
     }
 
     // Getters and Setters
@@ -77,7 +110,22 @@ public class RoomFile {
     }
 
     public void setContent(String content) {
+        applyContent(content);
+    }
+
+    private void applyContent(String content) {
+        byte[] bytes = utf8(content);
         this.content = content;
+        this.contentHash = hashBytes(bytes);
+        this.contentSize = bytes.length;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public Integer getContentSize() {
+        return contentSize;
     }
 
     public String getLanguage() {
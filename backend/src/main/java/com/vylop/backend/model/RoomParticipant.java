@@ -3,16 +3,20 @@ package com.vylop.backend.model;
 public class RoomParticipant {
     private String username;
     private ParticipantRole role;
+    private long joinedAt; // epoch millis; breaks ties when nodes disagree on the host
 
     public RoomParticipant() {}
 
     public RoomParticipant(String username, ParticipantRole role) {
         this.username = username;
         this.role = role;
+        this.joinedAt = System.currentTimeMillis();
     }
 
     public String getUsername() { return username; }
     public void setUsername(String username) { this.username = username; }
     public ParticipantRole getRole() { return role; }
     public void setRole(ParticipantRole role) { this.role = role; }
+    public long getJoinedAt() { return joinedAt; }
+    public void setJoinedAt(long joinedAt) { this.joinedAt = joinedAt; }
 }
\ No newline at end of file
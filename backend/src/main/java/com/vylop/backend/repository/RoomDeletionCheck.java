@@ -0,0 +1,9 @@
+package com.vylop.backend.repository;
+
+/**
+ * What deleting a room needs to know up front: who may delete it and how big it is.
+ */
+public interface RoomDeletionCheck {
+    String getHostUsername();
+    long getFileCount();
+}
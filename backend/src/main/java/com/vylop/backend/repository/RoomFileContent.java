@@ -0,0 +1,9 @@
+package com.vylop.backend.repository;
+
+/**
+ * Name and body of a stored file, read without materializing a managed RoomFile entity.
+ */
+public interface RoomFileContent {
+    String getFileName();
+    String getContent();
+}
@@ -0,0 +1,13 @@
+package com.vylop.backend.repository;
+
+import java.util.UUID;
+
+/**
+ * Identity and content hash of a stored file — what a delta save needs to decide
+ * which files changed, without reading the (TOASTed) content column.
+ */
+public interface RoomFileDigest {
+    UUID getId();
+    String getFileName();
+    String getContentHash();
+}
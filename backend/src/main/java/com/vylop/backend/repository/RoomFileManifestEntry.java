@@ -0,0 +1,14 @@
+package com.vylop.backend.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * One line of a workspace manifest: everything about a file except its content.
+ */
+public interface RoomFileManifestEntry {
+    String getFileName();
+    String getLanguage();
+    Integer getContentSize();
+    String getContentHash();
+    LocalDateTime getUpdatedAt();
+}
@@ -2,6 +2,8 @@ package com.vylop.backend.repository;
 
 import com.vylop.backend.model.RoomFile;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -16,4 +18,16 @@ public interface RoomFileRepository extends JpaRepository<RoomFile, UUID> {
     
     // Finds a specific file (like "main.py") inside a specific Room so we can update it
     Optional<RoomFile> findByRoomIdAndFileName(UUID roomId, String fileName);
-}
\ No newline at end of file
+
+    // Names and hashes only — never loads the content column
+    @Query("select f.id as id, f.fileName as fileName, f.contentHash as contentHash from RoomFile f where f.room.id = :roomId")
+    List<RoomFileDigest> findDigestsByRoomId(@Param("roomId") UUID roomId);
+
+    // Metadata for the workspace manifest — content is only fetched per file, on demand
+    @Query("select f.fileName as fileName, f.language as language, f.contentSize as contentSize, " +
+           "f.contentHash as contentHash, f.updatedAt as updatedAt from RoomFile f where f.room.id = :roomId")
+    List<RoomFileManifestEntry> findManifestByRoomId(@Param("roomId") UUID roomId);
+
+    @Query("select f.fileName as fileName, f.content as content from RoomFile f where f.room.id = :roomId and f.fileName = :fileName")
+    List<RoomFileContent> findContentByRoomIdAndFileName(@Param("roomId") UUID roomId, @Param("fileName") String fileName);
+}
@@ -1,10 +1,16 @@
 package com.vylop.backend.repository;
 
 import com.vylop.backend.model.Room;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
@@ -12,4 +18,26 @@ public interface RoomRepository extends JpaRepository<Room, UUID> {
     
     // NEW: Finds all rooms hosted by a specific user, sorted newest first!
     List<Room> findByHostUsernameOrderByCreatedAtDesc(String username);
+
+    // Keyset page of a host's rooms, newest first: everything strictly after (createdAt, id) in that order.
+    // The row-value comparison is an Index Cond on idx_rooms_host_id_created_at_id (an OR of the two columns
+    // would only be a Filter), so a page costs the same however deep it is. created_at is NOT NULL (V11), so the
+    // comparison never drops a row.
+    @Query("select r.id as id, r.name as name, r.createdAt as createdAt from Room r " +
+           "where r.host.username = :username and lower(r.name) like :pattern escape '!' " +
+           "and (r.createdAt, r.id) < (:createdAt, :id) " +
+           "order by r.createdAt desc, r.id desc")
+    List<RoomSummary> findPageByHost(@Param("username") String username, @Param("pattern") String pattern,
+                                     @Param("createdAt") LocalDateTime createdAt, @Param("id") UUID id, Limit limit);
+
+    // Host and file count in one round trip; the count is an index-only scan of uq_room_files_room_id_file_name
+    @Query("select h.username as hostUsername, " +
+           "(select count(f) from RoomFile f where f.room.id = r.id) as fileCount " +
+           "from Room r join r.host h where r.id = :id")
+    Optional<RoomDeletionCheck> findDeletionCheckById(@Param("id") UUID id);
+
+    // Single DELETE; room_files rows go with it through ON DELETE CASCADE (V8)
+    @Modifying
+    @Query("delete from Room r where r.id = :id")
+    int deleteRoomById(@Param("id") UUID id);
 }
\ No newline at end of file
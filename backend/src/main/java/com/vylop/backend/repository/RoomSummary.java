@@ -0,0 +1,13 @@
+package com.vylop.backend.repository;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One row of a host's workspace list: just what the dashboard shows, never the host entity.
+ */
+public interface RoomSummary {
+    UUID getId();
+    String getName();
+    LocalDateTime getCreatedAt();
+}
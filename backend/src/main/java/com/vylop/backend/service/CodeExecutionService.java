@@ -1,295 +1,267 @@
 package com.vylop.backend.service;
 
-import org.springframework.boot.json.JsonParser;
-import org.springframework.boot.json.JsonParserFactory;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
+import com.vylop.backend.dto.BatchExecutionRequest;
+import com.vylop.backend.service.execution.ExecutionEngine;
+import com.vylop.backend.service.execution.ExecutionRequest;
+import com.vylop.backend.service.execution.ExecutionResult;
+import com.vylop.backend.service.execution.OutputListener;
+import com.vylop.backend.service.execution.ProgramPreparer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Runs editor code and test batches on the configured ExecutionEngine, after ProgramPreparer
+ * has turned the workspace into a runnable program.
+ *
+ * Identical runs that overlap, or follow within a few seconds, share one execution
+ * (see ExecutionCoalescer); a TTL of 0 turns this off.
+ */
 @Service
 public class CodeExecutionService {
 
-    private static final String WANDBOX_API_URL = "https://wandbox.org/api/compile.json";
-    private static final String WANDBOX_LIST_URL = "https://wandbox.org/api/list.json";
-    
-    private final RestTemplate restTemplate;
-    private final JsonParser springJsonParser;
-    
-    private final Map<String, String> compilerCache = new ConcurrentHashMap<>();
+    private final ExecutionEngine executionEngine;
+    private final ExecutionJobService jobService;
+    private final int maxParallelism;
+    private final int maxBatchCases;
+    private final ExecutionCoalescer coalescer;
+    private final ProgramPreparer programPreparer = new ProgramPreparer();
 
-    private static final String BROWSER_USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36";
-
-    public CodeExecutionService() {
-        this.restTemplate = new RestTemplate();
-        this.springJsonParser = JsonParserFactory.getJsonParser();
+    public CodeExecutionService(ExecutionEngine executionEngine, ExecutionJobService jobService,
+                                @Value("${vylop.execution.batch.max-parallelism:4}") int maxParallelism,
+                                @Value("${vylop.execution.batch.max-cases:100}") int maxBatchCases,
+                                @Value("${vylop.execution.dedupe.result-ttl-ms:5000}") long dedupeTtlMs,
+                                @Value("${vylop.execution.dedupe.max-entries:10000}") long dedupeMaxEntries) {
+        this.executionEngine = executionEngine;
+        this.jobService = jobService;
+        this.maxParallelism = maxParallelism;
+        this.maxBatchCases = maxBatchCases;
+        this.coalescer = dedupeTtlMs > 0 ? new ExecutionCoalescer(Duration.ofMillis(dedupeTtlMs), dedupeMaxEntries) : null;
     }
 
     public String executeCode(String language, String code, String input, String mainFileName, Map<String, String> files, Map<String, String> envVars) {
+        return executeCode(language, code, input, mainFileName, files, envVars, null);
+    }
+
+    /** Same, also streaming output to the listener (when not null) while the program runs. */
+    public String executeCode(String language, String code, String input, String mainFileName, Map<String, String> files,
+                              Map<String, String> envVars, OutputListener listener) {
         try {
-            String compiler = getDynamicCompilerName(language);
-            if (compiler == null) {
-                return "Error: Language '" + language + "' is not supported by the sandbox.";
+            if (language == null || !executionEngine.supports(language)) {
+                return unsupported(language);
             }
+            ExecutionRequest request = prepare(language, code, input, mainFileName, files, envVars);
+            return format(run(request, listener));
+        } catch (Exception e) {
+            return connectionError(e);
+        }
+    }
 
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("compiler", compiler);
-            
-            if (input != null && !input.isEmpty()) {
-                requestBody.put("stdin", input);
-            }
+    /**
+     * Runs one program against many inputs, up to `parallelism` cases at a time. Meant to run
+     * inside an ExecutionJobService job: the calling thread uses the job's engine slot and
+     * every further case in flight takes another free slot, so a batch widens only while
+     * jobs.max-concurrent has room instead of multiplying it.
+     *
+     * When the engine reuses builds (a local artifact cache), the first case runs alone so the
+     * program is compiled once. Remote sandboxes like Wandbox compile every case, so there all
+     * cases start together. Once a case fails to compile, cases not yet started report the
+     * same error without running. With `stopOnFirstFailure`, cases not yet started when a
+     * case fails are skipped.
+     *
+     * Returns status (ACCEPTED or WRONG_ANSWER), passed, total, time in ms and per-case
+     * index, status (PASSED, FAILED or SKIPPED), output and time in ms.
+     */
+    public Map<String, Object> executeBatch(String language, String code, String mainFileName, Map<String, String> files,
+                                            Map<String, String> envVars, List<BatchExecutionRequest.TestCase> cases,
+                                            int parallelism, boolean stopOnFirstFailure) {
+        long started = System.nanoTime();
+        CaseOutcome[] outcomes = new CaseOutcome[cases.size()];
 
-            List<Map<String, String>> extraFiles = new ArrayList<>();
-            boolean hasEnv = envVars != null && !envVars.isEmpty();
+        if (language == null || !executionEngine.supports(language)) {
+            return batchReport(sameOutput(cases, unsupported(language), stopOnFirstFailure), started);
+        }
 
-            // --- Universal Fallback - Create a physical .env file in the sandbox ---
-            if (hasEnv) {
-                StringBuilder dotenv = new StringBuilder();
-                for (Map.Entry<String, String> env : envVars.entrySet()) {
-                    dotenv.append(env.getKey()).append("=").append(env.getValue()).append("\n");
-                }
-                Map<String, String> envFileObj = new HashMap<>();
-                envFileObj.put("file", ".env");
-                envFileObj.put("code", dotenv.toString());
-                extraFiles.add(envFileObj);
-            }
+        ExecutionRequest prepared;
+        try {
+            prepared = prepare(language, code, "", mainFileName, files, envVars);
+        } catch (Exception e) {
+            return batchReport(sameOutput(cases, connectionError(e), stopOnFirstFailure), started);
+        }
 
-            // --- Seamless Dynamic Environment Injection ---
-            if (hasEnv) {
-                if (language.equalsIgnoreCase("python")) {
-                    StringBuilder pyEnv = new StringBuilder("import os\n");
-                    for (Map.Entry<String, String> env : envVars.entrySet()) {
-                        pyEnv.append("os.environ['").append(env.getKey()).append("'] = '")
-                             .append(env.getValue().replace("'", "\\'")).append("'\n");
-                    }
-                    code = pyEnv.toString() + code;
-                } 
-                else if (language.equalsIgnoreCase("javascript") || language.equalsIgnoreCase("typescript")) {
-                    StringBuilder jsEnv = new StringBuilder();
-                    for (Map.Entry<String, String> env : envVars.entrySet()) {
-                        jsEnv.append("process.env['").append(env.getKey()).append("'] = '")
-                             .append(env.getValue().replace("'", "\\'")).append("';\n");
-                    }
-                    code = jsEnv.toString() + code;
-                }
-                else if (language.equalsIgnoreCase("go")) {
-                    StringBuilder goEnv = new StringBuilder("package main\nimport \"os\"\nfunc init() {\n");
-                    for (Map.Entry<String, String> env : envVars.entrySet()) {
-                        goEnv.append("    os.Setenv(\"").append(env.getKey()).append("\", \"")
-                             .append(env.getValue().replace("\"", "\\\"")).append("\")\n");
-                    }
-                    goEnv.append("}\n");
-                    Map<String, String> envFileObj = new HashMap<>();
-                    envFileObj.put("file", "vylop_env_injector.go");
-                    envFileObj.put("code", goEnv.toString());
-                    extraFiles.add(envFileObj);
-                }
-                else if (language.equalsIgnoreCase("c") || language.equalsIgnoreCase("cpp") || language.equalsIgnoreCase("c++")) {
-                    StringBuilder cppEnv = new StringBuilder("#include <stdlib.h>\n__attribute__((constructor)) static void _vylop_set_env() {\n");
-                    for (Map.Entry<String, String> env : envVars.entrySet()) {
-                        cppEnv.append("    setenv(\"").append(env.getKey()).append("\", \"")
-                              .append(env.getValue().replace("\"", "\\\"")).append("\", 1);\n");
-                    }
-                    cppEnv.append("}\n");
-                    Map<String, String> envFileObj = new HashMap<>();
-                    String ext = language.equalsIgnoreCase("c") ? ".c" : ".cpp";
-                    envFileObj.put("file", "vylop_env_injector" + ext);
-                    envFileObj.put("code", cppEnv.toString());
-                    extraFiles.add(envFileObj);
+        BatchRun batch = new BatchRun(prepared, cases, outcomes, stopOnFirstFailure);
+        if (executionEngine.reusesBuilds(language)) {
+            batch.runNext();
+        }
+        int maxHelpers = Math.min(Math.min(parallelism, maxParallelism), cases.size()) - 1;
+        AtomicInteger helpers = new AtomicInteger();
+        try (ExecutorService fanOut = Executors.newVirtualThreadPerTaskExecutor()) {
+            do {
+                while (helpers.get() < maxHelpers && batch.hasNext() && jobService.tryAcquireSlot()) {
+                    helpers.incrementAndGet();
+                    fanOut.execute(() -> {
+                        try {
+                            batch.runAll();
+                        } finally {
+                            helpers.decrementAndGet();
+                            jobService.releaseSlot();
+                        }
+                    });
                 }
-            }
+            } while (batch.runNext());
+        }
+        return batchReport(outcomes, started);
+    }
 
-            // 1. Filter out workspace pollution
-            if (files != null && !files.isEmpty()) {
-                for (Map.Entry<String, String> entry : files.entrySet()) {
-                    String fName = entry.getKey();
-                    if (!fName.equals(mainFileName) && isRelatedFile(fName, language)) {
-                        Map<String, String> fileObj = new HashMap<>();
-                        fileObj.put("file", fName);
-                        fileObj.put("code", entry.getValue());
-                        extraFiles.add(fileObj);
-                    }
-                }
-            }
+    public int maxBatchCases() {
+        return maxBatchCases;
+    }
 
-            // 2. The Bulletproof Java Handling (Delegator + Static Injection)
-            if (language.equalsIgnoreCase("java")) {
-                // Find the actual class name the user wrote
-                String actualClassName = "Main"; 
-                Pattern pattern = Pattern.compile("public\\s+class\\s+([a-zA-Z0-9_]+)");
-                Matcher matcher = pattern.matcher(code);
-                
-                if (matcher.find()) {
-                    actualClassName = matcher.group(1);
-                } else {
-                    Pattern fallbackPattern = Pattern.compile("class\\s+([a-zA-Z0-9_]+)");
-                    Matcher fallbackMatcher = fallbackPattern.matcher(code);
-                    if (fallbackMatcher.find()) {
-                        actualClassName = fallbackMatcher.group(1);
-                    }
-                }
+    private ExecutionRequest prepare(String language, String code, String input, String mainFileName,
+                                     Map<String, String> files, Map<String, String> envVars) {
+        return programPreparer.prepare(language, code, input, mainFileName, files, envVars);
+    }
 
-                // Inject the static block into the user's code
-                if (hasEnv) {
-                    StringBuilder javaEnv = new StringBuilder("static { ");
-                    for (Map.Entry<String, String> env : envVars.entrySet()) {
-                        javaEnv.append("System.setProperty(\"").append(env.getKey()).append("\", \"")
-                               .append(env.getValue().replace("\"", "\\\"")).append("\"); ");
-                    }
-                    javaEnv.append("} ");
-                    
-                    // Regex inserts the static block right after 'class ClassName {'
-                    code = code.replaceFirst("(class\\s+[a-zA-Z0-9_]+\\s*\\{)", "$1 " + javaEnv.toString());
-                }
+    /** Executes through the coalescer when enabled; the listener only sees output if this call does the run. */
+    private ExecutionResult run(ExecutionRequest request, OutputListener listener) throws Exception {
+        if (coalescer == null) {
+            return listener == null ? executionEngine.execute(request) : executionEngine.execute(request, listener);
+        }
+        return coalescer.execute(request,
+                () -> listener == null ? executionEngine.execute(request) : executionEngine.execute(request, listener));
+    }
 
-                // Create the delegator (this becomes prog.java)
-                String delegatorCode = "public class prog { public static void main(String[] args) throws Exception { " + actualClassName + ".main(args); } }";
-                requestBody.put("code", delegatorCode);
+    private String format(ExecutionResult result) {
+        if (result == null) {
+            return "Error: Sandbox API returned an unexpected response.";
+        }
 
-                // Add the user's actual code as a separate, correctly named file
-                Map<String, String> mainFileObj = new HashMap<>();
-                mainFileObj.put("file", actualClassName + ".java");
-                mainFileObj.put("code", code);
-                extraFiles.add(mainFileObj);
-                
-            } else {
-                // All other languages run normally
-                requestBody.put("code", code);
-            }
+        String programMessage = result.programMessage() != null ? result.programMessage() : "";
+        String compilerMessage = result.compilerMessage() != null ? result.compilerMessage() : "";
 
-            if (!extraFiles.isEmpty()) {
-                requestBody.put("codes", extraFiles);
-            }
+        if (result.compileFailed()) {
+            return "Compilation Error:\n" + compilerMessage;
+        }
+        if (!result.succeeded()) {
+            return "Runtime Error:\n" + programMessage;
+        }
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.set(HttpHeaders.USER_AGENT, BROWSER_USER_AGENT);
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-
-            ResponseEntity<String> response = restTemplate.exchange(
-                    WANDBOX_API_URL,
-                    HttpMethod.POST,
-                    entity,
-                    String.class
-            );
-
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                Map<String, Object> body = springJsonParser.parseMap(response.getBody());
-                
-                String status = String.valueOf(body.getOrDefault("status", "1"));
-                String programMessage = body.containsKey("program_message") ? (String) body.get("program_message") : "";
-                String compilerMessage = body.containsKey("compiler_message") ? (String) body.get("compiler_message") : "";
-                
-                if (!"0".equals(status)) {
-                    return !compilerMessage.isEmpty() ? "Compilation Error:\n" + compilerMessage : "Runtime Error:\n" + programMessage;
-                }
-                
-                return programMessage.isEmpty() ? compilerMessage : programMessage;
-            }
-            
-            return "Error: Sandbox API returned an unexpected response.";
+        return programMessage.isEmpty() ? compilerMessage : programMessage;
+    }
 
-        } catch (Exception e) {
-            return "Sandbox Connection Error: Failed to reach remote execution engine. Details: " + e.getMessage();
-        }
+    private record CaseOutcome(String status, String output, long timeMs) {
+        static final CaseOutcome SKIPPED = new CaseOutcome("SKIPPED", "", 0);
     }
 
-    private boolean isRelatedFile(String fileName, String language) {
-        if (fileName == null) return false;
-        String lower = fileName.toLowerCase();
-        switch (language.toLowerCase()) {
-            case "java": return lower.endsWith(".java");
-            case "python": return lower.endsWith(".py");
-            case "cpp": 
-            case "c++": return lower.endsWith(".cpp") || lower.endsWith(".c") || lower.endsWith(".h") || lower.endsWith(".hpp");
-            case "javascript": return lower.endsWith(".js");
-            case "typescript": return lower.endsWith(".ts");
-            case "go": return lower.endsWith(".go");
-            case "rust": return lower.endsWith(".rs");
-            default: return true;
+    /** The cases of one executeBatch call, taken in order by the calling thread and its helpers. */
+    private final class BatchRun {
+
+        private final ExecutionRequest program;
+        private final List<BatchExecutionRequest.TestCase> cases;
+        private final CaseOutcome[] outcomes;
+        private final boolean stopOnFirstFailure;
+        private final AtomicInteger next = new AtomicInteger();
+        private final AtomicBoolean failed = new AtomicBoolean();
+        private volatile String compileError;
+
+        BatchRun(ExecutionRequest program, List<BatchExecutionRequest.TestCase> cases, CaseOutcome[] outcomes,
+                 boolean stopOnFirstFailure) {
+            this.program = program;
+            this.cases = cases;
+            this.outcomes = outcomes;
+            this.stopOnFirstFailure = stopOnFirstFailure;
         }
-    }
 
-    private String getDynamicCompilerName(String frontendLang) {
-        String wandboxLang;
-        switch (frontendLang.toLowerCase()) {
-            case "java": wandboxLang = "Java"; break;
-            case "python": wandboxLang = "Python"; break;
-            case "cpp": 
-            case "c++": wandboxLang = "C++"; break;
-            case "javascript": wandboxLang = "JavaScript"; break;
-            case "typescript": wandboxLang = "TypeScript"; break;
-            case "go": wandboxLang = "Go"; break;
-            case "rust": wandboxLang = "Rust"; break;
-            default: return null;
+        boolean hasNext() {
+            return next.get() < cases.size();
         }
 
-        if (compilerCache.containsKey(wandboxLang)) {
-            return compilerCache.get(wandboxLang);
+        /** Settles the next case, running it unless the batch already decided it; false when none is left. */
+        boolean runNext() {
+            int index = next.getAndIncrement();
+            if (index >= cases.size()) return false;
+
+            BatchExecutionRequest.TestCase testCase = cases.get(index);
+            if (stopOnFirstFailure && failed.get()) {
+                outcomes[index] = CaseOutcome.SKIPPED;
+            } else if (compileError != null) {
+                outcomes[index] = judge(testCase, compileError, 0);
+            } else {
+                ExecutionResult result = runCase(program, testCase, outcomes, index);
+                if (result != null && result.compileFailed()) compileError = outcomes[index].output();
+                if (outcomes[index].status().equals("FAILED")) failed.set(true);
+            }
+            return true;
         }
 
-        try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.set(HttpHeaders.USER_AGENT, BROWSER_USER_AGENT);
-            HttpEntity<Void> entity = new HttpEntity<>(headers);
-
-            ResponseEntity<String> response = restTemplate.exchange(
-                    WANDBOX_LIST_URL,
-                    HttpMethod.GET,
-                    entity,
-                    String.class
-            );
-            
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                List<Object> compilers = springJsonParser.parseList(response.getBody());
-                String selectedName = null;
-                
-                for (Object obj : compilers) {
-                    @SuppressWarnings("unchecked")
-                    Map<String, Object> compiler = (Map<String, Object>) obj;
-                    
-                    if (wandboxLang.equalsIgnoreCase((String) compiler.get("language"))) {
-                        String name = (String) compiler.get("name");
-                        selectedName = name; 
-                        
-                        if (!name.contains("head")) {
-                            break; 
-                        }
-                    }
-                }
-                
-                if (selectedName != null) {
-                    compilerCache.put(wandboxLang, selectedName);
-                    return selectedName;
-                }
+        void runAll() {
+            while (runNext()) {
+                // each call settles one case
             }
+        }
+    }
+
+    /** Runs one case into `outcomes[index]` and returns the raw result (null if the engine failed). */
+    private ExecutionResult runCase(ExecutionRequest program, BatchExecutionRequest.TestCase testCase,
+                                    CaseOutcome[] outcomes, int index) {
+        long started = System.nanoTime();
+        ExecutionResult result = null;
+        String output;
+        try {
+            result = run(new ExecutionRequest(program.language(), program.code(), program.files(), testCase.getInput()), null);
+            output = format(result);
         } catch (Exception e) {
-            System.out.println("Could not dynamically fetch compilers: " + e.getMessage());
+            output = connectionError(e);
+        }
+        outcomes[index] = judge(testCase, output, (System.nanoTime() - started) / 1_000_000);
+        return result;
+    }
+
+    /** Every case gets the same output without running, e.g. an error that precedes execution. */
+    private static CaseOutcome[] sameOutput(List<BatchExecutionRequest.TestCase> cases, String output, boolean stopOnFirstFailure) {
+        CaseOutcome[] outcomes = new CaseOutcome[cases.size()];
+        for (int i = 0; i < cases.size(); i++) {
+            outcomes[i] = i == 0 || !stopOnFirstFailure ? judge(cases.get(i), output, 0) : CaseOutcome.SKIPPED;
         }
-        
-        String fallback;
-        switch (wandboxLang) {
-            case "Java": fallback = "openjdk-head"; break;
-            case "Python": fallback = "cpython-head"; break;
-            case "C++": fallback = "gcc-head"; break;
-            case "JavaScript": fallback = "nodejs-head"; break;
-            case "TypeScript": fallback = "typescript-head"; break;
-            case "Go": fallback = "go-head"; break;
-            case "Rust": fallback = "rust-head"; break;
-            default: fallback = null; break;
+        return outcomes;
+    }
+
+    private static CaseOutcome judge(BatchExecutionRequest.TestCase testCase, String output, long timeMs) {
+        String expected = testCase.getExpectedOutput() != null ? testCase.getExpectedOutput().trim() : "";
+        String actual = output.trim();
+        return new CaseOutcome(actual.equals(expected) ? "PASSED" : "FAILED", actual, timeMs);
+    }
+
+    private static Map<String, Object> batchReport(CaseOutcome[] outcomes, long startedNanos) {
+        List<Map<String, Object>> cases = new ArrayList<>();
+        int passed = 0;
+        for (int i = 0; i < outcomes.length; i++) {
+            CaseOutcome outcome = outcomes[i];
+            if (outcome.status().equals("PASSED")) passed++;
+            cases.add(Map.of("index", i, "status", outcome.status(), "output", outcome.output(), "timeMs", outcome.timeMs()));
         }
-        return fallback;
+        return Map.of(
+                "status", passed == outcomes.length ? "ACCEPTED" : "WRONG_ANSWER",
+                "passed", passed,
+                "total", outcomes.length,
+                "time", (System.nanoTime() - startedNanos) / 1_000_000,
+                "cases", cases
+        );
+    }
+
+    private static String unsupported(String language) {
+        return "Error: Language '" + language + "' is not supported by the sandbox.";
+    }
+
+    private static String connectionError(Exception e) {
+        return "Sandbox Connection Error: Failed to reach remote execution engine. Details: " + e.getMessage();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,97 @@
+package com.vylop.backend.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.vylop.backend.service.execution.ExecutionRequest;
+import com.vylop.backend.service.execution.ExecutionResult;
+import com.vylop.backend.service.execution.SourceFile;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Single-flight for identical runs: when several people in a room press Run on the same
+ * synced document, the engine runs it once and everyone gets that result.
+ *
+ * Runs are keyed by a hash of the prepared program (language, sources with environment
+ * secrets already injected, stdin). The first caller for a key runs it on its own thread;
+ * callers arriving while it runs wait for the same result, and so do callers within the TTL
+ * after it finishes. A run that throws is not kept, so the next caller tries again. Callers
+ * that join someone else's run get its final result but not its live output.
+ */
+class ExecutionCoalescer {
+
+    @FunctionalInterface
+    interface Run {
+        ExecutionResult execute() throws Exception;
+    }
+
+    // Expiry starts when a run completes; runs still in flight never expire
+    private final AsyncCache<String, ExecutionResult> results;
+
+    ExecutionCoalescer(Duration resultTtl, long maxEntries) {
+        this.results = Caffeine.newBuilder()
+                .expireAfterWrite(resultTtl)
+                .maximumSize(maxEntries)
+                .buildAsync();
+    }
+
+    ExecutionResult execute(ExecutionRequest request, Run run) throws Exception {
+        String key = fingerprint(request);
+        CompletableFuture<ExecutionResult> mine = new CompletableFuture<>();
+        CompletableFuture<ExecutionResult> shared = results.asMap().putIfAbsent(key, mine);
+
+        if (shared != null) {
+            try {
+                return shared.get();
+            } catch (ExecutionException | CompletionException e) {
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+        }
+
+        try {
+            ExecutionResult result = run.execute();
+            mine.complete(result);
+            return result;
+        } catch (Exception | Error e) {
+            // Failed futures are dropped from the cache, so a retry runs again
+            mine.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    static String fingerprint(ExecutionRequest request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            update(digest, request.language().toLowerCase());
+            update(digest, request.code());
+            update(digest, request.stdin());
+            request.files().stream()
+                    .sorted(Comparator.comparing(SourceFile::name))
+                    .forEach(file -> {
+                        update(digest, file.name());
+                        update(digest, file.code());
+                    });
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        // Length-prefixed so ("ab", "c") and ("a", "bc") hash differently
+        digest.update((byte) (bytes.length >>> 24));
+        digest.update((byte) (bytes.length >>> 16));
+        digest.update((byte) (bytes.length >>> 8));
+        digest.update((byte) bytes.length);
+        digest.update(bytes);
+    }
+}
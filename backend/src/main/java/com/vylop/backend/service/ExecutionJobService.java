@@ -0,0 +1,241 @@
+package com.vylop.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.vylop.backend.service.execution.OutputListener;
+import com.vylop.backend.service.realtime.RoomMessenger;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Bounded queue in front of the execution engine, so a burst of Run clicks waits here
+ * instead of holding Tomcat threads that workspace and auth requests also need.
+ *
+ * Each job runs on its own virtual thread; at most `max-concurrent` of them are inside the
+ * engine at once and at most `queue-capacity` more may wait. Beyond that, submit() rejects
+ * immediately. Finished jobs stay pollable for a few minutes and, when submitted for a room,
+ * their result is also pushed to /topic/exec/{roomId}/{jobId}. Jobs live on the node that
+ * accepted them.
+ *
+ * Room jobs stream: /topic/exec/{roomId} announces each job as it is queued, so everyone in
+ * the room can follow it, and the job topic carries output frames (ExecutionOutputPublisher)
+ * followed by one final {type: "status"} frame.
+ */
+@Service
+public class ExecutionJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExecutionJobService.class);
+
+    public enum Status { QUEUED, RUNNING, DONE, FAILED }
+
+    public static final class Job {
+        private final String id = UUID.randomUUID().toString();
+        private final String roomId;
+        private final long submittedAt = System.currentTimeMillis();
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+        private volatile Status status = Status.QUEUED;
+        private volatile long startedAt;
+        private volatile long finishedAt;
+
+        private Job(String roomId) {
+            this.roomId = roomId;
+        }
+
+        public String getId() { return id; }
+        public Status getStatus() { return status; }
+        public CompletableFuture<Object> getResult() { return result; }
+
+        /** Poll / topic representation: id, status, and once finished the result plus queue and run times. */
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("jobId", id);
+            map.put("status", status.name());
+            if (status == Status.DONE || status == Status.FAILED) {
+                map.put("result", result.getNow(null));
+                map.put("queuedMs", startedAt - submittedAt);
+                map.put("runMs", finishedAt - startedAt);
+            }
+            return map;
+        }
+    }
+
+    private final RoomMessenger messenger;
+    private final int capacity;
+    private final Semaphore running;
+    private final AtomicInteger admitted = new AtomicInteger();
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("execution-job-", 0).factory());
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("execution-output-flush").daemon().factory());
+    private final Cache<String, Job> jobs;
+    private final long maxStreamedBytes;
+
+    public ExecutionJobService(RoomMessenger messenger,
+                               @Value("${vylop.execution.jobs.max-concurrent:16}") int maxConcurrent,
+                               @Value("${vylop.execution.jobs.queue-capacity:200}") int queueCapacity,
+                               @Value("${vylop.execution.jobs.result-ttl-seconds:300}") long resultTtlSeconds,
+                               @Value("${vylop.execution.jobs.max-streamed-bytes:1048576}") long maxStreamedBytes) {
+        this.messenger = messenger;
+        this.maxStreamedBytes = maxStreamedBytes;
+        this.capacity = maxConcurrent + queueCapacity;
+        this.running = new Semaphore(maxConcurrent, true);
+        // Counted from the last update, so the TTL only needs to outlast queueing plus one run
+        this.jobs = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(resultTtlSeconds))
+                .build();
+    }
+
+    /**
+     * Queues work and returns its job at once.
+     *
+     * @param roomId room whose /topic/exec channel gets the result, or null for poll only
+     * @throws RejectedExecutionException when the queue is full
+     */
+    public Job submit(String roomId, Supplier<Object> work) {
+        return submit(roomId, work, queued -> { });
+    }
+
+    private Job submit(String roomId, Supplier<Object> work, Consumer<Job> beforeStart) {
+        if (admitted.incrementAndGet() > capacity) {
+            admitted.decrementAndGet();
+            throw new RejectedExecutionException("Execution queue is full");
+        }
+
+        Job job = new Job(roomId);
+        jobs.put(job.id, job);
+        beforeStart.accept(job);
+        try {
+            executor.execute(() -> run(job, work));
+        } catch (RejectedExecutionException e) {
+            admitted.decrementAndGet();
+            jobs.invalidate(job.id);
+            throw e;
+        }
+        return job;
+    }
+
+    /**
+     * Queues a run whose output is streamed to the room as it is produced.
+     *
+     * @param startedBy shown to the rest of the room in the start announcement
+     * @throws RejectedExecutionException when the queue is full
+     */
+    public Job submitStreaming(String roomId, String startedBy, Function<OutputListener, Object> work) {
+        ExecutionOutputPublisher[] publisher = new ExecutionOutputPublisher[1];
+        Job job = submit(roomId, () -> {
+            try {
+                return work.apply(publisher[0]);
+            } finally {
+                // Everything buffered goes out before the final status frame
+                publisher[0].close();
+            }
+        }, queued -> {
+            publisher[0] = new ExecutionOutputPublisher(messenger, flusher, roomId, queued.id, maxStreamedBytes);
+            Map<String, Object> announcement = new LinkedHashMap<>();
+            announcement.put("type", "started");
+            announcement.put("jobId", queued.id);
+            announcement.put("startedBy", startedBy);
+            messenger.send(roomId, "/topic/exec/" + roomId, announcement);
+        });
+        return job;
+    }
+
+    public Job find(String jobId) {
+        return jobs.getIfPresent(jobId);
+    }
+
+    /**
+     * Takes one more engine slot for a running job that fans out (batch cases), only if one
+     * is free right now and no queued job is waiting for it. Give it back with releaseSlot().
+     */
+    public boolean tryAcquireSlot() {
+        try {
+            // The timed form honours fairness; the untimed one would barge past queued jobs
+            return running.tryAcquire(0, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public void releaseSlot() {
+        running.release();
+    }
+
+    /** Jobs waiting plus running, for health and metrics. */
+    public int inFlight() {
+        return admitted.get();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+        flusher.shutdownNow();
+    }
+
+    private void run(Job job, Supplier<Object> work) {
+        Status status = Status.DONE;
+        Object result;
+        try {
+            running.acquire();
+            try {
+                job.startedAt = System.currentTimeMillis();
+                job.status = Status.RUNNING;
+                result = work.get();
+            } finally {
+                running.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            status = Status.FAILED;
+            result = "Error: Execution was cancelled.";
+        } catch (RuntimeException e) {
+            logger.warn("Execution job {} failed: {}", job.id, e.getMessage());
+            status = Status.FAILED;
+            result = "Error: " + e.getMessage();
+        } catch (Error e) {
+            // OOM or stack overflow: still settle the job, or its waiters hang until their timeout
+            logger.error("Execution job {} failed", job.id, e);
+            finish(job, Status.FAILED, "Error: Execution failed on the server.");
+            throw e;
+        } finally {
+            admitted.decrementAndGet();
+        }
+        finish(job, status, result);
+    }
+
+    private void finish(Job job, Status status, Object result) {
+        if (job.startedAt == 0) job.startedAt = System.currentTimeMillis();
+        job.finishedAt = System.currentTimeMillis();
+        // Result before status, so a poller that sees DONE also sees the result
+        job.result.complete(result);
+        job.status = status;
+        // Re-put so the result TTL counts from completion
+        jobs.put(job.id, job);
+
+        if (job.roomId != null) {
+            Map<String, Object> frame = job.toMap();
+            frame.put("type", "status");
+            messenger.send(job.roomId, "/topic/exec/" + job.roomId + "/" + job.id, frame);
+        }
+    }
+}
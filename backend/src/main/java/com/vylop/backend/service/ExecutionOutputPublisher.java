@@ -0,0 +1,95 @@
+package com.vylop.backend.service;
+
+import com.vylop.backend.service.execution.OutputListener;
+import com.vylop.backend.service.realtime.RoomMessenger;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Forwards a running job's output to /topic/exec/{roomId}/{jobId} as
+ * {jobId, type: "output", seq, stream, data} frames.
+ *
+ * Chunks are coalesced per stream: a frame goes out once FLUSH_CHARS have piled up (sent
+ * on the engine's thread, so a slow broker slows the program rather than growing this
+ * buffer) or FLUSH_DELAY_MS after the first unsent chunk. Past the byte cap, output is no
+ * longer forwarded; the job's final result still carries it, capped by the engine.
+ */
+class ExecutionOutputPublisher implements OutputListener {
+
+    private static final int FLUSH_CHARS = 8 * 1024;
+    private static final long FLUSH_DELAY_MS = 50;
+
+    private final RoomMessenger messenger;
+    private final ScheduledExecutorService scheduler;
+    private final String roomId;
+    private final String jobId;
+    private final String destination;
+    private final long maxBytes;
+
+    private final StringBuilder pending = new StringBuilder();
+    private String pendingStream;
+    private boolean flushScheduled;
+    private long forwardedBytes;
+    private boolean capped;
+    private int seq;
+
+    ExecutionOutputPublisher(RoomMessenger messenger, ScheduledExecutorService scheduler,
+                             String roomId, String jobId, long maxBytes) {
+        this.messenger = messenger;
+        this.scheduler = scheduler;
+        this.roomId = roomId;
+        this.jobId = jobId;
+        this.destination = "/topic/exec/" + roomId + "/" + jobId;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public synchronized void onOutput(String stream, String chunk) {
+        if (capped || chunk.isEmpty()) return;
+
+        long chunkBytes = chunk.getBytes(StandardCharsets.UTF_8).length;
+        if (forwardedBytes + chunkBytes > maxBytes) {
+            chunk = OutputListener.utf8Prefix(chunk, maxBytes - forwardedBytes) + "\n[live output truncated]";
+            capped = true;
+        }
+        forwardedBytes += chunkBytes;
+
+        if (pendingStream != null && !pendingStream.equals(stream)) flush();
+        pendingStream = stream;
+        pending.append(chunk);
+
+        if (pending.length() >= FLUSH_CHARS || capped) {
+            flush();
+        } else if (!flushScheduled) {
+            flushScheduled = true;
+            scheduler.schedule(this::scheduledFlush, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Sends what is still buffered; called before the job's final status frame. */
+    synchronized void close() {
+        flush();
+    }
+
+    private synchronized void scheduledFlush() {
+        flushScheduled = false;
+        flush();
+    }
+
+    private void flush() {
+        if (pending.isEmpty()) return;
+
+        Map<String, Object> frame = new LinkedHashMap<>();
+        frame.put("jobId", jobId);
+        frame.put("type", "output");
+        frame.put("seq", seq++);
+        frame.put("stream", pendingStream);
+        frame.put("data", pending.toString());
+        pending.setLength(0);
+        messenger.send(roomId, destination, frame);
+    }
+}
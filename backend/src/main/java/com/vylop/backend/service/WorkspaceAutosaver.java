@@ -0,0 +1,96 @@
+package com.vylop.backend.service;
+
+import com.vylop.backend.service.realtime.YjsUpdateLog;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the file texts of live rooms into room_files without anyone clicking Save.
+ *
+ * The server keeps rooms as Yjs updates it cannot render to text, so whenever a client
+ * answers a snapshot request it also sends its document's files as {fileName: content}
+ * JSON. Only the latest set per room is kept and they are written every autosave interval,
+ * so a room being edited costs at most one small transaction per interval.
+ *
+ * Once a set is written, the snapshot it came with is marked autosaved in the YjsUpdateLog,
+ * which is what lets the log's idle purge drop those rows.
+ */
+@Service
+public class WorkspaceAutosaver {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkspaceAutosaver.class);
+
+    private static final TypeReference<Map<String, String>> FILES = new TypeReference<>() { };
+
+    private record Submission(byte[] filesJson, CompletableFuture<Long> snapshotRow) {
+    }
+
+    private final WorkspaceService workspaceService;
+    private final YjsUpdateLog updateLog;
+    private final JsonMapper jsonMapper;
+    private final Map<UUID, Submission> latest = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("workspace-autosave").daemon().factory());
+
+    public WorkspaceAutosaver(WorkspaceService workspaceService, YjsUpdateLog updateLog, JsonMapper jsonMapper,
+                              @Value("${vylop.yjs.autosave-interval-ms:5000}") long intervalMs) {
+        this.workspaceService = workspaceService;
+        this.updateLog = updateLog;
+        this.jsonMapper = jsonMapper;
+        writer.scheduleWithFixedDelay(this::writeAll, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Replaces whatever was waiting for the room; parsed and written on the autosave thread.
+     * `snapshotRow` is YjsUpdateLog.appendSnapshot's result for the snapshot sent with these
+     * files, or null when there was none.
+     */
+    public void submit(String roomId, byte[] filesJson, CompletableFuture<Long> snapshotRow) {
+        try {
+            latest.put(UUID.fromString(roomId), new Submission(filesJson, snapshotRow));
+        } catch (IllegalArgumentException e) {
+            // Not a persisted room ID
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        writer.shutdownNow();
+        writeAll();
+    }
+
+    private void writeAll() {
+        for (UUID roomId : latest.keySet()) {
+            Submission submission = latest.remove(roomId);
+            if (submission == null) continue;
+            try {
+                int written = workspaceService.autosaveFiles(roomId, jsonMapper.readValue(submission.filesJson(), FILES));
+                if (written > 0) logger.debug("Autosaved {} files of Room {}", written, roomId);
+                if (submission.snapshotRow() != null) {
+                    // The snapshot row may still be queued in the log; mark it once it is written
+                    submission.snapshotRow().thenAccept(id -> {
+                        if (id != null) updateLog.markAutosaved(roomId, id);
+                    });
+                }
+            } catch (JacksonException e) {
+                logger.warn("Ignoring malformed autosave for Room {}: {}", roomId, e.getMessage());
+            } catch (RuntimeException e) {
+                logger.warn("Autosave of Room {} failed: {}", roomId, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.vylop.backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.vylop.backend.service.cluster.ClusterCoordinator;
+import com.vylop.backend.service.cluster.ClusterEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * In-process cache for the read side of WorkspaceService, so hot rooms are served without
+ * touching Postgres. Caffeine evicts by W-TinyLFU; caches holding file content are bounded
+ * by size rather than entry count.
+ *
+ * File bodies are keyed by content hash and never need invalidating — a changed file simply
+ * has a new hash. Everything else is dropped after the writing transaction commits, on this
+ * node and, through the backplane, on every other node.
+ *
+ * Also a MeterBinder: each cache's stats are published as cache.* meters tagged cache=<name>,
+ * readable at /actuator/metrics (not public).
+ */
+@Component
+public class WorkspaceCache implements MeterBinder {
+
+    private final ClusterCoordinator coordinator;
+
+    private final Cache<UUID, Map<String, Object>> metadata;
+    private final Cache<UUID, List<Map<String, Object>>> manifests;
+    private final Cache<String, List<Map<String, Object>>> userWorkspaces;
+    private final Cache<UUID, Map<String, String>> workspaces;
+    private final Cache<String, String> fileContents;
+
+    public WorkspaceCache(ClusterCoordinator coordinator,
+                          @Value("${vylop.cache.max-rooms:10000}") long maxRooms,
+                          @Value("${vylop.cache.max-content-chars:67108864}") long maxContentChars) {
+        this.coordinator = coordinator;
+        this.metadata = Caffeine.newBuilder().maximumSize(maxRooms).recordStats().build();
+        this.manifests = Caffeine.newBuilder().maximumSize(maxRooms).recordStats().build();
+        this.userWorkspaces = Caffeine.newBuilder().maximumSize(maxRooms).recordStats().build();
+        // The content budget is split between whole workspaces (/load) and single files (/file)
+        this.workspaces = Caffeine.newBuilder()
+                .maximumWeight(maxContentChars / 2)
+                .weigher((UUID roomId, Map<String, String> files) -> weigh(files))
+                .recordStats()
+                .build();
+        this.fileContents = Caffeine.newBuilder()
+                .maximumWeight(maxContentChars / 2)
+                .weigher((String hash, String content) -> hash.length() + content.length())
+                .recordStats()
+                .build();
+    }
+
+    @PostConstruct
+    void listen() {
+        coordinator.on(ClusterEvent.Type.CACHE_EVICT, event -> evictLocally(
+                UUID.fromString(event.getRoomId()), new String(event.getPayload(), StandardCharsets.UTF_8)));
+    }
+
+    public Map<String, Object> metadata(UUID roomId, Function<UUID, Map<String, Object>> loader) {
+        return metadata.get(roomId, loader);
+    }
+
+    public List<Map<String, Object>> manifest(UUID roomId, Function<UUID, List<Map<String, Object>>> loader) {
+        return manifests.get(roomId, loader);
+    }
+
+    public List<Map<String, Object>> userWorkspaces(String username, Function<String, List<Map<String, Object>>> loader) {
+        return userWorkspaces.get(username, loader);
+    }
+
+    public Map<String, String> workspace(UUID roomId, Function<UUID, Map<String, String>> loader) {
+        return workspaces.get(roomId, loader);
+    }
+
+    public String fileContent(String contentHash) {
+        return fileContents.getIfPresent(contentHash);
+    }
+
+    public void putFileContent(String contentHash, String content) {
+        fileContents.put(contentHash, content);
+    }
+
+    /**
+     * Drops everything cached for a room and the host's room list once the current
+     * transaction commits (immediately when there is none), cluster-wide.
+     */
+    public void evictRoom(UUID roomId, String hostUsername) {
+        Runnable evict = () -> {
+            evictLocally(roomId, hostUsername);
+            coordinator.publishTo(null, ClusterEvent.Type.CACHE_EVICT, roomId.toString(), null,
+                    hostUsername.getBytes(StandardCharsets.UTF_8));
+        };
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Evicting before commit would let a concurrent read cache the old rows again
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict.run();
+                }
+            });
+        } else {
+            evict.run();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, metadata, "workspace.metadata");
+        CaffeineCacheMetrics.monitor(registry, manifests, "workspace.manifests");
+        CaffeineCacheMetrics.monitor(registry, userWorkspaces, "workspace.userWorkspaces");
+        CaffeineCacheMetrics.monitor(registry, workspaces, "workspace.workspaces");
+        CaffeineCacheMetrics.monitor(registry, fileContents, "workspace.fileContents");
+    }
+
+    private void evictLocally(UUID roomId, String hostUsername) {
+        metadata.invalidate(roomId);
+        manifests.invalidate(roomId);
+        workspaces.invalidate(roomId);
+        if (!hostUsername.isEmpty()) userWorkspaces.invalidate(hostUsername);
+    }
+
+    private static int weigh(Map<String, String> files) {
+        long chars = 0;
+        for (Map.Entry<String, String> file : files.entrySet()) {
+            chars += file.getKey().length();
+            if (file.getValue() != null) chars += file.getValue().length();
+        }
+        return (int) Math.min(chars, Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,104 @@
+package com.vylop.backend.service;
+
+import com.vylop.backend.service.realtime.YjsUpdateLog;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes very large workspaces in the background.
+ *
+ * A small room goes in one cascading DELETE (see WorkspaceService.deleteWorkspace), but
+ * cascading hundreds of thousands of files in one transaction holds the room's locks and
+ * writes all of its WAL at once. Rooms with at least `async-min-files` files are handed
+ * here instead: their files are deleted a batch per statement, each committed on its own,
+ * and the room row goes last. The room stays readable until then. If the purge fails, it is
+ * retried a few times; after that the room is left as is and deleting it again resumes.
+ */
+@Service
+public class WorkspacePurger {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkspacePurger.class);
+
+    private static final String DELETE_FILE_BATCH =
+            "DELETE FROM room_files WHERE id IN (SELECT id FROM room_files WHERE room_id = ? LIMIT ?)";
+    private static final String DELETE_ROOM = "DELETE FROM rooms WHERE id = ?";
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_SECONDS = 30;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final YjsUpdateLog yjsUpdateLog;
+    private final WorkspaceCache cache;
+    private final long asyncMinFiles;
+    private final int batchSize;
+    private final Set<UUID> purging = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("workspace-purge").daemon().factory());
+
+    public WorkspacePurger(JdbcTemplate jdbcTemplate, YjsUpdateLog yjsUpdateLog, WorkspaceCache cache,
+                           @Value("${vylop.workspace.delete.async-min-files:5000}") long asyncMinFiles,
+                           @Value("${vylop.workspace.delete.batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.yjsUpdateLog = yjsUpdateLog;
+        this.cache = cache;
+        this.asyncMinFiles = asyncMinFiles;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Takes the room if it is big enough to be purged in the background (or is already
+     * being purged) and returns true; returns false when the caller should delete it inline.
+     */
+    public boolean purgeInBackground(UUID roomId, String hostUsername, long fileCount) {
+        if (purging.contains(roomId)) return true;
+        if (asyncMinFiles <= 0 || fileCount < asyncMinFiles) return false;
+        if (purging.add(roomId)) {
+            worker.execute(() -> purge(roomId, hostUsername, 1));
+            logger.info("Purging Room {} ({} files) in the background", roomId, fileCount);
+        }
+        return true;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        worker.shutdownNow();
+    }
+
+    private void purge(UUID roomId, String hostUsername, int attempt) {
+        try {
+            long deleted = 0;
+            int batch;
+            do {
+                batch = jdbcTemplate.update(DELETE_FILE_BATCH, roomId, batchSize);
+                deleted += batch;
+            } while (batch >= batchSize && !Thread.currentThread().isInterrupted());
+            if (Thread.currentThread().isInterrupted()) return;
+
+            // Files saved meanwhile go with the room through the cascade
+            jdbcTemplate.update(DELETE_ROOM, roomId);
+            yjsUpdateLog.purge(roomId);
+            cache.evictRoom(roomId, hostUsername);
+            purging.remove(roomId);
+            logger.info("Purged Room {} ({} files)", roomId, deleted);
+        } catch (DataAccessException e) {
+            if (attempt < MAX_ATTEMPTS && !worker.isShutdown()) {
+                logger.warn("Purge of Room {} failed, retrying in {}s: {}", roomId, RETRY_DELAY_SECONDS, e.getMessage());
+                worker.schedule(() -> purge(roomId, hostUsername, attempt + 1), RETRY_DELAY_SECONDS, TimeUnit.SECONDS);
+            } else {
+                logger.warn("Giving up on purging Room {}: {}", roomId, e.getMessage());
+                purging.remove(roomId);
+            }
+        }
+    }
+}
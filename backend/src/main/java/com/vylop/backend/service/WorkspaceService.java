@@ -1,32 +1,71 @@
 package com.vylop.backend.service;
 
+import com.vylop.backend.dto.WorkspaceDeltaRequest;
 import com.vylop.backend.model.Room;
 import com.vylop.backend.model.RoomFile;
 import com.vylop.backend.model.User;
+import com.vylop.backend.repository.RoomDeletionCheck;
+import com.vylop.backend.repository.RoomFileDigest;
+import com.vylop.backend.repository.RoomFileManifestEntry;
 import com.vylop.backend.repository.RoomFileRepository;
 import com.vylop.backend.repository.RoomRepository;
+import com.vylop.backend.repository.RoomSummary;
 import com.vylop.backend.repository.UserRepository;
+import com.vylop.backend.service.realtime.YjsUpdateLog;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.json.JsonMapper;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
 public class WorkspaceService {
 
+    private static final int MAX_PAGE_SIZE = 100;
+    // Rewrites a file's content without loading the old content first; sent as one JDBC batch per save
+    private static final String UPDATE_CONTENT =
+            "UPDATE room_files SET content = ?, content_hash = ?, content_size = ?, updated_at = ? WHERE id = ?";
+    private static final int STREAM_CHUNK_FILES = 32;
+    private static final String STREAM_CHUNK =
+            "SELECT file_name, content FROM room_files WHERE room_id = ? AND file_name > ? ORDER BY file_name LIMIT ?";
+
     private final RoomRepository roomRepository;
     private final RoomFileRepository roomFileRepository;
     private final UserRepository userRepository;
+    private final JsonMapper jsonMapper;
+    private final WorkspaceCache cache;
+    private final YjsUpdateLog yjsUpdateLog;
+    private final WorkspacePurger purger;
+    private final JdbcTemplate jdbcTemplate;
 
-    public WorkspaceService(RoomRepository roomRepository, RoomFileRepository roomFileRepository, UserRepository userRepository) {
+    public WorkspaceService(RoomRepository roomRepository, RoomFileRepository roomFileRepository,
+                            UserRepository userRepository, JsonMapper jsonMapper, WorkspaceCache cache,
+                            YjsUpdateLog yjsUpdateLog, WorkspacePurger purger, JdbcTemplate jdbcTemplate) {
         this.roomRepository = roomRepository;
         this.roomFileRepository = roomFileRepository;
         this.userRepository = userRepository;
+        this.jsonMapper = jsonMapper;
+        this.cache = cache;
+        this.yjsUpdateLog = yjsUpdateLog;
+        this.purger = purger;
+        this.jdbcTemplate = jdbcTemplate;
     }
 
     /**
@@ -44,6 +83,7 @@ public class WorkspaceService {
             Room newRoom = new Room(roomName, user, false);
             newRoom.setId(roomId);
             roomRepository.save(newRoom);
+            cache.evictRoom(roomId, username);
         }
 
         return "Room registered!";
@@ -54,6 +94,10 @@ public class WorkspaceService {
      * This is used by the frontend to sync the Room Name for all participants.
      */
     public Map<String, Object> getWorkspaceMetadata(UUID roomId) {
+        return cache.metadata(roomId, this::fetchWorkspaceMetadata);
+    }
+
+    private Map<String, Object> fetchWorkspaceMetadata(UUID roomId) {
         Optional<Room> roomOpt = roomRepository.findById(roomId);
         Map<String, Object> metadata = new HashMap<>();
         
@@ -65,7 +109,7 @@ public class WorkspaceService {
             metadata.put("createdAt", room.getCreatedAt());
         }
         
-        return metadata;
+        return Collections.unmodifiableMap(metadata);
     }
 
     @Transactional
@@ -74,53 +118,256 @@ public class WorkspaceService {
         if (userOpt.isEmpty()) return "Error: User not found!";
         User user = userOpt.get();
 
-        Room room = roomRepository.findById(roomId).orElseGet(() -> {
-            Room newRoom = new Room(roomName, user, false);
-            newRoom.setId(roomId);
-            return roomRepository.save(newRoom);
-        });
-
-        // Update the room name in case it changed
-        room.setName(roomName);
-        roomRepository.save(room);
+        Room room = findOrCreateRoom(roomId, user, roomName);
 
-        // ─── THE FIX: ORPHAN CLEANUP ──────────────────────────────────────────
-        // Fetch all files currently stored in the DB for this room
+        // One query for the room's current files; everything else is diffed in memory
         List<RoomFile> existingDbFiles = roomFileRepository.findByRoomId(roomId);
-        
-        // Loop through DB files. If the incoming payload DOES NOT contain them, delete them!
+        Map<String, RoomFile> existingByName = new HashMap<>(existingDbFiles.size() * 2);
+        List<RoomFile> orphans = new ArrayList<>();
+
         for (RoomFile dbFile : existingDbFiles) {
-            if (!files.containsKey(dbFile.getFileName())) {
-                roomFileRepository.delete(dbFile);
+            // Files missing from the payload were deleted in the editor; duplicate rows are dropped too
+            if (!files.containsKey(dbFile.getFileName()) || existingByName.putIfAbsent(dbFile.getFileName(), dbFile) != null) {
+                orphans.add(dbFile);
             }
         }
-        // ──────────────────────────────────────────────────────────────────────
 
+        List<RoomFile> newFiles = new ArrayList<>();
         for (Map.Entry<String, String> entry : files.entrySet()) {
             String fileName = entry.getKey();
             String content = entry.getValue();
-            String language = determineLanguage(fileName); 
-
-            Optional<RoomFile> existingFile = roomFileRepository.findByRoomIdAndFileName(roomId, fileName);
-            
-            if (existingFile.isPresent()) {
-                RoomFile file = existingFile.get();
-                file.setContent(content);
-                roomFileRepository.save(file);
-            } else {
-                RoomFile newFile = new RoomFile(room, fileName, content, language);
-                roomFileRepository.save(newFile);
+
+            RoomFile existingFile = existingByName.get(fileName);
+            if (existingFile == null) {
+                newFiles.add(new RoomFile(room, fileName, content, determineLanguage(fileName)));
+            } else if (!Objects.equals(existingFile.getContent(), content)) {
+                // Managed entity: the UPDATE is queued and flushed in a JDBC batch
+                existingFile.setContent(content);
             }
         }
+
+        // With hibernate.jdbc.batch_size set these become batched statements instead of one round-trip per file
+        if (!orphans.isEmpty()) roomFileRepository.deleteAllInBatch(orphans);
+        if (!newFiles.isEmpty()) roomFileRepository.saveAll(newFiles);
+        cache.evictRoom(roomId, room.getHost().getUsername());
+
         return "Workspace saved successfully!";
     }
 
+    /**
+     * Saves only what changed, judged by content hash. Files whose manifest hash matches the
+     * stored one are never read or written. If the manifest names a file whose hash differs
+     * (or that does not exist yet) but no content was sent for it, nothing is written and the
+     * result lists those files under "missing" so the client can resend them.
+     */
+    @Transactional
+    public Map<String, Object> saveWorkspaceDelta(UUID roomId, String username, String roomName, WorkspaceDeltaRequest request) {
+        Map<String, Object> result = new HashMap<>();
+        Optional<User> userOpt = userRepository.findByUsername(username);
+        if (userOpt.isEmpty()) {
+            result.put("message", "Error: User not found!");
+            return result;
+        }
+        if (request.getManifest() == null) {
+            result.put("message", "Error: File manifest is required.");
+            return result;
+        }
+        Map<String, String> manifest = request.getManifest();
+        Map<String, String> files = request.getFiles() != null ? request.getFiles() : Map.of();
+
+        Set<String> fileNames = new TreeSet<>(manifest.keySet());
+        fileNames.addAll(files.keySet());
+
+        List<RoomFileDigest> digests = roomFileRepository.findDigestsByRoomId(roomId);
+        Map<String, RoomFileDigest> storedByName = new HashMap<>(digests.size() * 2);
+        List<UUID> orphanIds = new ArrayList<>();
+        for (RoomFileDigest digest : digests) {
+            if (!fileNames.contains(digest.getFileName()) || storedByName.putIfAbsent(digest.getFileName(), digest) != null) {
+                orphanIds.add(digest.getId());
+            }
+        }
+
+        // Validate before writing anything, so a 409 leaves the workspace untouched
+        List<String> missing = new ArrayList<>();
+        for (String fileName : fileNames) {
+            if (files.containsKey(fileName)) continue;
+            RoomFileDigest stored = storedByName.get(fileName);
+            if (stored == null || !Objects.equals(stored.getContentHash(), manifest.get(fileName))) {
+                missing.add(fileName);
+            }
+        }
+        if (!missing.isEmpty()) {
+            result.put("message", "Content required for changed files.");
+            result.put("missing", missing);
+            return result;
+        }
+
+        Room room = findOrCreateRoom(roomId, userOpt.get(), roomName);
+
+        if (!orphanIds.isEmpty()) roomFileRepository.deleteAllByIdInBatch(orphanIds);
+
+        List<RoomFile> newFiles = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (Map.Entry<String, String> entry : files.entrySet()) {
+            String fileName = entry.getKey();
+            String content = entry.getValue();
+            RoomFileDigest stored = storedByName.get(fileName);
+
+            if (stored == null) {
+                newFiles.add(new RoomFile(room, fileName, content, determineLanguage(fileName)));
+                continue;
+            }
+            String hash = RoomFile.hashContent(content);
+            if (!hash.equals(stored.getContentHash())) {
+                int size = content == null ? 0 : content.getBytes(StandardCharsets.UTF_8).length;
+                updates.add(new Object[] {content, hash, size, now, stored.getId()});
+            }
+        }
+        if (!updates.isEmpty()) jdbcTemplate.batchUpdate(UPDATE_CONTENT, updates);
+        if (!newFiles.isEmpty()) roomFileRepository.saveAll(newFiles);
+        int written = updates.size() + newFiles.size();
+        cache.evictRoom(roomId, room.getHost().getUsername());
+
+        result.put("message", "Workspace saved successfully!");
+        result.put("written", written);
+        result.put("deleted", orphanIds.size());
+        return result;
+    }
+
+    /**
+     * Background save of the files a room's live document holds, with no user behind it.
+     * Only adds and updates: files absent from the map are left alone, since the document
+     * only holds files someone opened. Unchanged files (by hash) are not written. Rooms
+     * that were never registered are skipped. Returns the number of files written.
+     */
+    @Transactional
+    public int autosaveFiles(UUID roomId, Map<String, String> files) {
+        Optional<Room> roomOpt = roomRepository.findById(roomId);
+        if (roomOpt.isEmpty() || files.isEmpty()) return 0;
+        Room room = roomOpt.get();
+
+        Map<String, RoomFileDigest> storedByName = new HashMap<>();
+        for (RoomFileDigest digest : roomFileRepository.findDigestsByRoomId(roomId)) {
+            storedByName.putIfAbsent(digest.getFileName(), digest);
+        }
+
+        List<RoomFile> newFiles = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (Map.Entry<String, String> entry : files.entrySet()) {
+            String content = entry.getValue();
+            if (content == null) continue;
+            RoomFileDigest stored = storedByName.get(entry.getKey());
+            if (stored == null) {
+                newFiles.add(new RoomFile(room, entry.getKey(), content, determineLanguage(entry.getKey())));
+                continue;
+            }
+            String hash = RoomFile.hashContent(content);
+            if (!hash.equals(stored.getContentHash())) {
+                updates.add(new Object[] {content, hash, content.getBytes(StandardCharsets.UTF_8).length, now, stored.getId()});
+            }
+        }
+        if (!updates.isEmpty()) jdbcTemplate.batchUpdate(UPDATE_CONTENT, updates);
+        if (!newFiles.isEmpty()) roomFileRepository.saveAll(newFiles);
+        int written = updates.size() + newFiles.size();
+        if (written > 0) cache.evictRoom(roomId, room.getHost().getUsername());
+        return written;
+    }
+
     public Map<String, String> loadWorkspace(UUID roomId) {
-        List<RoomFile> files = roomFileRepository.findByRoomId(roomId);
-        return files.stream().collect(Collectors.toMap(RoomFile::getFileName, RoomFile::getContent));
+        return cache.workspace(roomId, id -> {
+            List<RoomFile> files = roomFileRepository.findByRoomId(id);
+            return Collections.unmodifiableMap(files.stream().collect(Collectors.toMap(RoomFile::getFileName, RoomFile::getContent)));
+        });
     }
 
+    /**
+     * File names, languages, sizes, hashes and timestamps for a room, without any content.
+     * The editor opens a room from this and fetches bodies one file at a time.
+     */
+    public List<Map<String, Object>> getWorkspaceManifest(UUID roomId) {
+        return cache.manifest(roomId, this::fetchWorkspaceManifest);
+    }
+
+    private List<Map<String, Object>> fetchWorkspaceManifest(UUID roomId) {
+        List<RoomFileManifestEntry> entries = roomFileRepository.findManifestByRoomId(roomId);
+
+        return entries.stream().map(entry -> {
+            Map<String, Object> map = new HashMap<>();
+            map.put("fileName", entry.getFileName());
+            map.put("language", entry.getLanguage());
+            map.put("size", entry.getContentSize());
+            map.put("hash", entry.getContentHash());
+            map.put("updatedAt", entry.getUpdatedAt());
+            return Collections.unmodifiableMap(map);
+        }).toList();
+    }
+
+    /**
+     * Content of a single file, or empty when the room has no such file.
+     * Bodies are cached by content hash, so identical files share one entry and a
+     * changed file can never be served from a stale one.
+     */
+    public Optional<String> loadFile(UUID roomId, String fileName) {
+        String hash = getWorkspaceManifest(roomId).stream()
+                .filter(entry -> fileName.equals(entry.get("fileName")))
+                .map(entry -> (String) entry.get("hash"))
+                .findFirst()
+                .orElse(null);
+        if (hash != null) {
+            String cached = cache.fileContent(hash);
+            if (cached != null) return Optional.of(cached);
+        }
+
+        Optional<String> content = roomFileRepository.findContentByRoomIdAndFileName(roomId, fileName).stream()
+                .findFirst()
+                .map(file -> file.getContent() == null ? "" : file.getContent());
+        // The manifest may predate a save that landed since; only cache what matches its hash
+        content.filter(body -> RoomFile.hashContent(body).equals(hash))
+                .ifPresent(body -> cache.putFileContent(hash, body));
+        return content;
+    }
+
+    /**
+     * Writes the same { fileName: content } object as loadWorkspace, STREAM_CHUNK_FILES rows
+     * at a time in file name order. Each chunk is its own short query with no surrounding
+     * transaction, so the pooled connection goes back to the pool before the chunk is written
+     * to the client and a slow download never holds one. Only one chunk is on the heap. A save
+     * that lands mid-download shows up only in the files not yet read.
+     */
+    public void streamWorkspace(UUID roomId, OutputStream out) {
+        try (JsonGenerator generator = jsonMapper.createGenerator(out)) {
+            generator.writeStartObject();
+            String after = "";
+            boolean first = true;
+            List<StreamedFile> chunk;
+            do {
+                // Keyset over the (room_id, file_name) unique index: every chunk is one range scan
+                chunk = jdbcTemplate.query(STREAM_CHUNK,
+                        (rs, rowNum) -> new StreamedFile(rs.getString(1), rs.getString(2)),
+                        roomId, after, STREAM_CHUNK_FILES);
+                for (StreamedFile file : chunk) {
+                    generator.writeStringProperty(file.fileName(), file.content());
+                    after = file.fileName();
+                }
+                if (first) {
+                    // Push the first files out right away instead of waiting for a full buffer
+                    generator.flush();
+                    first = false;
+                }
+            } while (chunk.size() == STREAM_CHUNK_FILES);
+            generator.writeEndObject();
+        }
+    }
+
+    private record StreamedFile(String fileName, String content) {}
+
     public List<Map<String, Object>> getUserWorkspaces(String username) {
+        return cache.userWorkspaces(username, this::fetchUserWorkspaces);
+    }
+
+    private List<Map<String, Object>> fetchUserWorkspaces(String username) {
         List<Room> rooms = roomRepository.findByHostUsernameOrderByCreatedAtDesc(username);
         
         return rooms.stream().map(room -> {
@@ -128,29 +375,118 @@ public class WorkspaceService {
             map.put("id", room.getId());
             map.put("name", room.getName());
             map.put("createdAt", room.getCreatedAt());
-            return map;
-        }).collect(Collectors.toList());
+            return Collections.unmodifiableMap(map);
+        }).toList();
+    }
+
+    /**
+     * One page of a host's workspaces, newest first, optionally filtered by a name substring.
+     * Pages are chained by an opaque cursor over (createdAt, id) rather than an offset, so
+     * every page is a bounded index range scan however deep it is.
+     *
+     * Returns items (id, name, createdAt) and nextCursor (null on the last page), or a
+     * "message" starting with Error when the cursor cannot be read.
+     */
+    public Map<String, Object> getUserWorkspacePage(String username, String cursor, int limit, String search) {
+        Map<String, Object> result = new HashMap<>();
+        PageCursor after = PageCursor.FIRST;
+        if (cursor != null && !cursor.isBlank()) {
+            after = PageCursor.decode(cursor);
+            if (after == null) {
+                result.put("message", "Error: Invalid cursor.");
+                return result;
+            }
+        }
+
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        String pattern = search == null || search.isBlank() ? "%" : "%" + escapeLike(search.trim().toLowerCase()) + "%";
+        // One extra row says whether another page exists
+        List<RoomSummary> rows = roomRepository.findPageByHost(username, pattern, after.createdAt(), after.id(), Limit.of(pageSize + 1));
+
+        List<Map<String, Object>> items = new ArrayList<>(Math.min(rows.size(), pageSize));
+        for (RoomSummary row : rows.subList(0, Math.min(rows.size(), pageSize))) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("id", row.getId());
+            item.put("name", row.getName());
+            item.put("createdAt", row.getCreatedAt());
+            items.add(item);
+        }
+        result.put("items", items);
+        if (rows.size() > pageSize) {
+            RoomSummary last = rows.get(pageSize - 1);
+            result.put("nextCursor", new PageCursor(last.getCreatedAt(), last.getId()).encode());
+        } else {
+            result.put("nextCursor", null);
+        }
+        return result;
+    }
+
+    /** Position in a host's room list: the (createdAt, id) of the last room already returned. */
+    record PageCursor(LocalDateTime createdAt, UUID id) {
+
+        // Later than any room, so the first page is "everything before it"
+        static final PageCursor FIRST = new PageCursor(LocalDateTime.of(9999, 12, 31, 0, 0), new UUID(-1L, -1L));
+
+        /** Opaque to clients: base64url of "createdAt|id". */
+        String encode() {
+            String key = createdAt + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /** The cursor, or null when it was not produced by encode(). */
+        static PageCursor decode(String cursor) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 2);
+                if (parts.length != 2) return null;
+                return new PageCursor(LocalDateTime.parse(parts[0]), UUID.fromString(parts[1]));
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
     }
 
+    /** Makes user text literal inside a LIKE pattern that declares escape '!'. */
+    static String escapeLike(String text) {
+        return text.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+
+    /**
+     * Deletes a workspace without loading it: one query for the host and file count, one
+     * DELETE that takes the files with it (ON DELETE CASCADE) and one for its Yjs log.
+     * Very large rooms are handed to WorkspacePurger and deleted in batches instead.
+     */
     @Transactional
     public String deleteWorkspace(UUID roomId, String username) {
-        Optional<Room> roomOpt = roomRepository.findById(roomId);
-        if (roomOpt.isEmpty()) return "Error: Workspace not found.";
-        
-        Room room = roomOpt.get();
-        
-        if (!room.getHost().getUsername().equals(username)) {
+        Optional<RoomDeletionCheck> check = roomRepository.findDeletionCheckById(roomId);
+        if (check.isEmpty()) return "Error: Workspace not found.";
+
+        if (!check.get().getHostUsername().equals(username)) {
             return "Error: Unauthorized. Only the host can delete this workspace.";
         }
 
-        List<RoomFile> files = roomFileRepository.findByRoomId(roomId);
-        roomFileRepository.deleteAll(files);
-        
-        roomRepository.delete(room);
-        
+        if (purger.purgeInBackground(roomId, username, check.get().getFileCount())) {
+            return "Workspace deletion started.";
+        }
+
+        roomRepository.deleteRoomById(roomId);
+        yjsUpdateLog.purge(roomId);
+        cache.evictRoom(roomId, username);
+
         return "Workspace deleted successfully.";
     }
 
+    private Room findOrCreateRoom(UUID roomId, User user, String roomName) {
+        Room room = roomRepository.findById(roomId).orElseGet(() -> {
+            Room newRoom = new Room(roomName, user, false);
+            newRoom.setId(roomId);
+            return roomRepository.save(newRoom);
+        });
+
+        // Update the room name in case it changed (dirty checking writes it at commit)
+        room.setName(roomName);
+        return room;
+    }
+
     /**
      * Helper to detect programming language based on file extension.
      */
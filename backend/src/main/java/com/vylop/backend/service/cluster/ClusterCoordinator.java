@@ -0,0 +1,267 @@
+package com.vylop.backend.service.cluster;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * This node's view of the cluster: which nodes are alive, which of them currently hold
+ * which rooms, and which node a room should live on.
+ *
+ * Rooms are placed by rendezvous hashing over the live nodes, so clients that ask
+ * /api/cluster/route/{roomId} before connecting all land on the same node and the room
+ * never touches the backplane. Room traffic is only published while another node has
+ * announced interest in the room (a client that ended up elsewhere, or a membership change).
+ */
+@Service
+public class ClusterCoordinator {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterCoordinator.class);
+
+    private static final long HEARTBEAT_MS = 5_000;
+    private static final long NODE_TIMEOUT_MS = 15_000;
+
+    private final RoomBackplane backplane;
+    private final ScheduledExecutorService relayScheduler;
+    private final String nodeId;
+    private final String publicUrl;
+    // Lets peers tell a restarted node (same configured id) from one they already know
+    private final long bootTime = System.currentTimeMillis();
+
+    private final Map<String, Node> peers = new ConcurrentHashMap<>();
+    // roomId -> number of local holders (Yjs sockets, STOMP participants)
+    private final Map<String, Integer> localRooms = new ConcurrentHashMap<>();
+    // roomId -> other nodes that hold it
+    private final Map<String, Set<String>> remoteInterest = new ConcurrentHashMap<>();
+
+    private final Map<ClusterEvent.Type, List<Consumer<ClusterEvent>>> handlers = new ConcurrentHashMap<>();
+    private final List<BiConsumer<String, String>> remoteJoinListeners = new CopyOnWriteArrayList<>();
+
+    public ClusterCoordinator(RoomBackplane backplane,
+                              ScheduledExecutorService relayScheduler,
+                              @Value("${vylop.cluster.node-id:}") String nodeId,
+                              @Value("${vylop.cluster.public-url:}") String publicUrl) {
+        this.backplane = backplane;
+        this.relayScheduler = relayScheduler;
+        this.nodeId = nodeId == null || nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+        this.publicUrl = publicUrl == null ? "" : publicUrl;
+    }
+
+    @PostConstruct
+    public void start() {
+        backplane.subscribe(this::receive);
+        relayScheduler.scheduleAtFixedRate(this::heartbeat, 0, HEARTBEAT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /** Registers a handler for room events of the given type published by other nodes. */
+    public void on(ClusterEvent.Type type, Consumer<ClusterEvent> handler) {
+        handlers.computeIfAbsent(type, k -> new CopyOnWriteArrayList<>()).add(handler);
+    }
+
+    /** Called with (roomId, nodeId) whenever another node starts holding a room this node holds. */
+    public void onRemoteJoin(BiConsumer<String, String> listener) {
+        remoteJoinListeners.add(listener);
+    }
+
+    /**
+     * Marks the room as held by this node. Returns true for the first local holder,
+     * which is when other nodes are told about it.
+     */
+    public boolean retainRoom(String roomId) {
+        boolean[] first = { false };
+        localRooms.compute(roomId, (k, count) -> {
+            first[0] = count == null;
+            return count == null ? 1 : count + 1;
+        });
+        if (first[0]) {
+            publish(ClusterEvent.Type.ROOM_JOINED, null, roomId, null, null);
+        }
+        return first[0];
+    }
+
+    public void releaseRoom(String roomId) {
+        boolean[] last = { false };
+        localRooms.computeIfPresent(roomId, (k, count) -> {
+            last[0] = count <= 1;
+            return count <= 1 ? null : count - 1;
+        });
+        if (last[0]) {
+            publish(ClusterEvent.Type.ROOM_LEFT, null, roomId, null, null);
+        }
+    }
+
+    public boolean holdsRoom(String roomId) {
+        return localRooms.containsKey(roomId);
+    }
+
+    /** True while at least one other node holds the room, i.e. its traffic must cross the backplane. */
+    public boolean isShared(String roomId) {
+        Set<String> nodes = remoteInterest.get(roomId);
+        return nodes != null && !nodes.isEmpty();
+    }
+
+    /** Publishes room traffic to the other holders of the room; a no-op for node-local rooms. */
+    public void publishToRoom(ClusterEvent.Type type, String roomId, String destination, byte[] payload) {
+        if (isShared(roomId)) {
+            publish(type, null, roomId, destination, payload);
+        }
+    }
+
+    public void publishTo(String targetNode, ClusterEvent.Type type, String roomId, String destination, byte[] payload) {
+        publish(type, targetNode, roomId, destination, payload);
+    }
+
+    /** Node ids considered alive, this node included. */
+    public List<String> liveNodes() {
+        long cutoff = System.currentTimeMillis() - NODE_TIMEOUT_MS;
+        List<String> live = new ArrayList<>();
+        live.add(nodeId);
+        peers.forEach((id, node) -> {
+            if (node.lastSeen >= cutoff) live.add(id);
+        });
+        return live;
+    }
+
+    /**
+     * Rendezvous (highest-random-weight) placement: every node computes the same owner from
+     * the same membership, and a node leaving only moves the rooms it owned.
+     */
+    public String ownerOf(String roomId) {
+        String owner = nodeId;
+        long best = Long.MIN_VALUE;
+        for (String candidate : liveNodes()) {
+            long weight = mix(candidate.hashCode() * 31L + roomId.hashCode());
+            if (weight > best || (weight == best && candidate.compareTo(owner) < 0)) {
+                best = weight;
+                owner = candidate;
+            }
+        }
+        return owner;
+    }
+
+    /** Public base URL of a node, or "" when unknown (clients then stay on their current host). */
+    public String urlOf(String node) {
+        if (nodeId.equals(node)) return publicUrl;
+        Node peer = peers.get(node);
+        return peer != null ? peer.url : "";
+    }
+
+    private void publish(ClusterEvent.Type type, String targetNode, String roomId, String destination, byte[] payload) {
+        backplane.publish(new ClusterEvent(type, nodeId, targetNode, roomId, destination, payload));
+    }
+
+    private void heartbeat() {
+        try {
+            publish(ClusterEvent.Type.HEARTBEAT, null, null, null,
+                    (bootTime + "\n" + publicUrl).getBytes(StandardCharsets.UTF_8));
+
+            long cutoff = System.currentTimeMillis() - NODE_TIMEOUT_MS;
+            peers.entrySet().removeIf(entry -> {
+                if (entry.getValue().lastSeen >= cutoff) return false;
+                logger.info("Cluster node {} timed out", entry.getKey());
+                forgetInterest(entry.getKey());
+                return true;
+            });
+        } catch (RuntimeException e) {
+            // An escaping exception would cancel the fixed-rate heartbeat
+            logger.warn("Cluster heartbeat failed: {}", e.getMessage());
+        }
+    }
+
+    private void receive(ClusterEvent event) {
+        String origin = event.getOriginNode();
+        if (nodeId.equals(origin)) return;
+        if (event.getTargetNode() != null && !nodeId.equals(event.getTargetNode())) return;
+
+        switch (event.getType()) {
+            case HEARTBEAT -> {
+                String[] beat = new String(event.getPayload(), StandardCharsets.UTF_8).split("\n", 2);
+                long boot = Long.parseLong(beat[0]);
+                String url = beat.length > 1 ? beat[1] : "";
+                Node previous = peers.put(origin, new Node(url, boot, System.currentTimeMillis()));
+                if (previous == null || previous.bootTime != boot) {
+                    logger.info("Cluster node {} joined ({})", origin, url.isEmpty() ? "no public url" : url);
+                    // A new node knows nothing about the rooms we hold yet
+                    publish(ClusterEvent.Type.INTEREST_SNAPSHOT, origin, null, null,
+                            String.join("\n", localRooms.keySet()).getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            case INTEREST_SNAPSHOT -> {
+                touch(origin);
+                forgetInterest(origin);
+                String rooms = new String(event.getPayload(), StandardCharsets.UTF_8);
+                if (rooms.isEmpty()) return;
+                for (String roomId : rooms.split("\n")) {
+                    addInterest(roomId, origin);
+                }
+            }
+            case ROOM_JOINED -> {
+                touch(origin);
+                addInterest(event.getRoomId(), origin);
+            }
+            case ROOM_LEFT -> {
+                touch(origin);
+                remoteInterest.computeIfPresent(event.getRoomId(), (k, nodes) -> {
+                    nodes.remove(origin);
+                    return nodes.isEmpty() ? null : nodes;
+                });
+            }
+            default -> {
+                List<Consumer<ClusterEvent>> registered = handlers.get(event.getType());
+                if (registered == null) return;
+                for (Consumer<ClusterEvent> handler : registered) {
+                    handler.accept(event);
+                }
+            }
+        }
+    }
+
+    private void addInterest(String roomId, String node) {
+        boolean added = remoteInterest.computeIfAbsent(roomId, k -> ConcurrentHashMap.newKeySet()).add(node);
+        if (added && localRooms.containsKey(roomId)) {
+            for (BiConsumer<String, String> listener : remoteJoinListeners) {
+                listener.accept(roomId, node);
+            }
+        }
+    }
+
+    private void forgetInterest(String node) {
+        remoteInterest.replaceAll((roomId, nodes) -> {
+            nodes.remove(node);
+            return nodes;
+        });
+        remoteInterest.values().removeIf(Set::isEmpty);
+    }
+
+    private void touch(String node) {
+        peers.computeIfPresent(node, (k, peer) -> new Node(peer.url, peer.bootTime, System.currentTimeMillis()));
+    }
+
+    // SplitMix64 finalizer — spreads String.hashCode() over the full long range
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private record Node(String url, long bootTime, long lastSeen) {}
+}
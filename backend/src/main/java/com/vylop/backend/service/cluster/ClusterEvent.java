@@ -0,0 +1,86 @@
+package com.vylop.backend.service.cluster;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * One message on the cluster backplane. Everything travels as a compact binary frame so
+ * Yjs payloads are never re-encoded on the way between nodes.
+ */
+public final class ClusterEvent {
+
+    public enum Type {
+        HEARTBEAT,            // payload: "<boot time>\n<public base URL>"
+        INTEREST_SNAPSHOT,    // payload: newline-separated room ids the node currently holds
+        ROOM_JOINED,
+        ROOM_LEFT,
+        YJS_UPDATE,           // payload: one raw Yjs update
+        YJS_SNAPSHOT,         // payload: full-state update folded into the room's log
+        YJS_STATE,            // payload: length-prefixed updates, sent to a node that just joined the room
+        STOMP,                // destination + JSON payload for /topic subscribers
+        PARTICIPANTS_REQUEST, // asks holders of the room to send their participant list
+        CACHE_EVICT           // payload: host username; the room's cached workspace data is stale
+    }
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final Type type;
+    private final String originNode;
+    private final String targetNode; // null means every node
+    private final String roomId;
+    private final String destination;
+    private final byte[] payload;
+
+    public ClusterEvent(Type type, String originNode, String targetNode, String roomId,
+                        String destination, byte[] payload) {
+        this.type = type;
+        this.originNode = originNode;
+        this.targetNode = targetNode;
+        this.roomId = roomId;
+        this.destination = destination;
+        this.payload = payload != null ? payload : EMPTY;
+    }
+
+    public Type getType() { return type; }
+    public String getOriginNode() { return originNode; }
+    public String getTargetNode() { return targetNode; }
+    public String getRoomId() { return roomId; }
+    public String getDestination() { return destination; }
+    public byte[] getPayload() { return payload; }
+
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + payload.length);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(type.ordinal());
+            out.writeUTF(originNode);
+            out.writeUTF(targetNode != null ? targetNode : "");
+            out.writeUTF(roomId != null ? roomId : "");
+            out.writeUTF(destination != null ? destination : "");
+            out.writeInt(payload.length);
+            out.write(payload);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static ClusterEvent decode(byte[] frame) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(frame))) {
+            Type type = Type.values()[in.readUnsignedByte()];
+            String origin = in.readUTF();
+            String target = in.readUTF();
+            String roomId = in.readUTF();
+            String destination = in.readUTF();
+            byte[] payload = new byte[in.readInt()];
+            in.readFully(payload);
+            return new ClusterEvent(type, origin, target.isEmpty() ? null : target,
+                    roomId.isEmpty() ? null : roomId, destination.isEmpty() ? null : destination, payload);
+        } catch (IOException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Malformed cluster event", e);
+        }
+    }
+}
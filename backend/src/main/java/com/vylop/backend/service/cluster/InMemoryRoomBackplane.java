@@ -0,0 +1,81 @@
+package com.vylop.backend.service.cluster;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Backplane that never leaves the JVM. With its own private hub it is the single-node
+ * default (nothing else ever subscribes); several instances sharing one Hub stand in for
+ * an external broker when running multiple nodes inside one process, e.g. in tests.
+ *
+ * Events are serialized on publish and delivered on a per-node thread, so handlers see
+ * the same asynchrony and byte-level round trip they would get from a real broker. A
+ * backplane only receives events once start() has attached it to its hub.
+ */
+public class InMemoryRoomBackplane implements RoomBackplane {
+
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryRoomBackplane.class);
+
+    private final Hub hub;
+    private final ExecutorService delivery;
+    private final List<Consumer<ClusterEvent>> listeners = new CopyOnWriteArrayList<>();
+
+    public InMemoryRoomBackplane() {
+        this(new Hub());
+    }
+
+    public InMemoryRoomBackplane(Hub hub) {
+        this.hub = hub;
+        this.delivery = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "backplane-delivery");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start() {
+        hub.members.addIfAbsent(this);
+    }
+
+    @Override
+    public void publish(ClusterEvent event) {
+        byte[] frame = event.encode();
+        for (InMemoryRoomBackplane member : hub.members) {
+            member.deliver(frame);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<ClusterEvent> listener) {
+        listeners.add(listener);
+    }
+
+    public void shutdown() {
+        hub.members.remove(this);
+        delivery.shutdownNow();
+    }
+
+    private void deliver(byte[] frame) {
+        delivery.execute(() -> {
+            ClusterEvent event = ClusterEvent.decode(frame);
+            for (Consumer<ClusterEvent> listener : listeners) {
+                try {
+                    listener.accept(event);
+                } catch (RuntimeException e) {
+                    logger.warn("Backplane listener failed on {} event: {}", event.getType(), e.getMessage());
+                }
+            }
+        });
+    }
+
+    /** The shared "broker": every backplane attached to the same hub sees every event. */
+    public static final class Hub {
+        private final CopyOnWriteArrayList<InMemoryRoomBackplane> members = new CopyOnWriteArrayList<>();
+    }
+}
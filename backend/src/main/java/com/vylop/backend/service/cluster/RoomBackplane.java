@@ -0,0 +1,15 @@
+package com.vylop.backend.service.cluster;
+
+import java.util.function.Consumer;
+
+/**
+ * Pub/sub channel shared by every backend node. Implementations deliver each published
+ * event to every subscribed node (including the publisher) in publish order per publisher;
+ * ClusterCoordinator drops its own events and ones addressed to other nodes.
+ */
+public interface RoomBackplane {
+
+    void publish(ClusterEvent event);
+
+    void subscribe(Consumer<ClusterEvent> listener);
+}
@@ -0,0 +1,170 @@
+package com.vylop.backend.service.cluster;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.converter.ByteArrayMessageConverter;
+import org.springframework.messaging.simp.stomp.ReactorNettyTcpStompClient;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.util.MimeTypeUtils;
+
+import java.lang.reflect.Type;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Backplane on an external STOMP broker (RabbitMQ's STOMP plugin, ActiveMQ Artemis, ...).
+ * Every node publishes to and subscribes on one topic; the broker does the fan-out.
+ *
+ * While the broker is unreachable publishes are dropped and rooms simply behave as
+ * node-local — clients that land on the room's owning node are unaffected.
+ */
+public class StompRoomBackplane implements RoomBackplane {
+
+    private static final Logger logger = LoggerFactory.getLogger(StompRoomBackplane.class);
+
+    private static final long RECONNECT_DELAY_MS = 5_000;
+
+    private final String host;
+    private final int port;
+    private final String login;
+    private final String passcode;
+    private final String virtualHost;
+    private final String destination;
+
+    private final List<Consumer<ClusterEvent>> listeners = new CopyOnWriteArrayList<>();
+    private final ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+    private ReactorNettyTcpStompClient client;
+    private volatile StompSession session;
+    private volatile boolean running;
+
+    public StompRoomBackplane(String host, int port, String login, String passcode,
+                              String virtualHost, String destination) {
+        this.host = host;
+        this.port = port;
+        this.login = login;
+        this.passcode = passcode;
+        this.virtualHost = virtualHost;
+        this.destination = destination;
+    }
+
+    public void start() {
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("backplane-stomp-");
+        scheduler.setDaemon(true);
+        scheduler.initialize();
+
+        client = new ReactorNettyTcpStompClient(host, port);
+        client.setMessageConverter(new ByteArrayMessageConverter());
+        client.setTaskScheduler(scheduler);
+
+        running = true;
+        connect();
+    }
+
+    public void stop() {
+        running = false;
+        StompSession current = session;
+        if (current != null && current.isConnected()) {
+            current.disconnect();
+        }
+        if (client != null) {
+            client.shutdown();
+        }
+        scheduler.shutdown();
+    }
+
+    @Override
+    public void publish(ClusterEvent event) {
+        StompSession current = session;
+        if (current == null || !current.isConnected()) {
+            logger.debug("Backplane offline, dropping {} event for Room {}", event.getType(), event.getRoomId());
+            return;
+        }
+        StompHeaders headers = new StompHeaders();
+        headers.setDestination(destination);
+        headers.setContentType(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+        try {
+            current.send(headers, event.encode());
+        } catch (RuntimeException e) {
+            logger.warn("Backplane publish failed: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<ClusterEvent> listener) {
+        listeners.add(listener);
+    }
+
+    private void connect() {
+        if (!running) return;
+
+        StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.setLogin(login);
+        connectHeaders.setPasscode(passcode);
+        if (virtualHost != null && !virtualHost.isBlank()) {
+            connectHeaders.setHost(virtualHost);
+        }
+
+        client.connectAsync(connectHeaders, new SessionHandler()).whenComplete((connected, error) -> {
+            if (error != null) {
+                logger.warn("Backplane broker {}:{} unreachable: {}", host, port, error.getMessage());
+                scheduleReconnect();
+            }
+        });
+    }
+
+    private void scheduleReconnect() {
+        if (running) {
+            scheduler.schedule(this::connect, Instant.now().plusMillis(RECONNECT_DELAY_MS));
+        }
+    }
+
+    private final class SessionHandler extends StompSessionHandlerAdapter {
+
+        @Override
+        public void afterConnected(StompSession connected, StompHeaders connectedHeaders) {
+            session = connected;
+            connected.subscribe(destination, new StompFrameHandler() {
+                @Override
+                public Type getPayloadType(StompHeaders headers) {
+                    return byte[].class;
+                }
+
+                @Override
+                public void handleFrame(StompHeaders headers, Object payload) {
+                    ClusterEvent event = ClusterEvent.decode((byte[]) payload);
+                    for (Consumer<ClusterEvent> listener : listeners) {
+                        try {
+                            listener.accept(event);
+                        } catch (RuntimeException e) {
+                            logger.warn("Backplane listener failed on {} event: {}", event.getType(), e.getMessage());
+                        }
+                    }
+                }
+            });
+            logger.info("Backplane connected to {}:{} on {}", host, port, destination);
+        }
+
+        @Override
+        public void handleException(StompSession failed, StompCommand command, StompHeaders headers,
+                                    byte[] payload, Throwable exception) {
+            logger.warn("Backplane frame handling failed: {}", exception.getMessage());
+        }
+
+        @Override
+        public void handleTransportError(StompSession failed, Throwable exception) {
+            if (!failed.isConnected() && session == failed) {
+                session = null;
+                logger.warn("Backplane connection lost: {}", exception.getMessage());
+                scheduleReconnect();
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.vylop.backend.service.execution;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Compiled output of earlier runs, stored on disk under a hash of everything that went into
+ * the compile: language, compiler, main code and every accompanying file (related sources,
+ * injected env stubs, .env). A repeated Run — same code, different stdin — or a submission
+ * re-run per test case copies the artifacts back instead of compiling. Compile errors are
+ * kept too, so a broken program is not recompiled either. Bounded by total bytes on disk.
+ */
+class ArtifactCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArtifactCache.class);
+
+    /** What a compile left behind: either files relative to `dir`, or a compiler error. */
+    record Artifact(Path dir, List<String> files, long bytes, int status, String compilerError) {
+
+        boolean failed() {
+            return compilerError != null;
+        }
+    }
+
+    private final Path root;
+    private final Cache<String, Artifact> artifacts;
+
+    ArtifactCache(long maxBytes) throws IOException {
+        this.root = Files.createTempDirectory("vylop-artifacts-");
+        this.artifacts = Caffeine.newBuilder()
+                // Weighed in KiB so large budgets fit Caffeine's int weights
+                .maximumWeight(Math.max(1, maxBytes / 1024))
+                .weigher((String key, Artifact artifact) -> (int) Math.min(Integer.MAX_VALUE, artifact.bytes() / 1024 + 1))
+                .removalListener((String key, Artifact artifact, RemovalCause cause) -> {
+                    if (artifact != null && artifact.dir() != null) deleteRecursively(artifact.dir());
+                })
+                .build();
+    }
+
+    static String key(String compilerId, ExecutionRequest request, String mainFile) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            update(digest, request.language().toLowerCase());
+            update(digest, compilerId);
+            update(digest, mainFile);
+            update(digest, request.code());
+            request.files().stream()
+                    .sorted(Comparator.comparing(SourceFile::name))
+                    .forEach(file -> {
+                        update(digest, file.name());
+                        update(digest, file.code());
+                    });
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    Artifact get(String key) {
+        return artifacts.getIfPresent(key);
+    }
+
+    void putFailure(String key, int status, String compilerError) {
+        artifacts.asMap().putIfAbsent(key, new Artifact(null, List.of(), compilerError.length(), status, compilerError));
+    }
+
+    /** Copies everything in `work` except the given sources into the cache. */
+    void putOutputs(String key, Path work, Set<String> sources) throws IOException {
+        if (artifacts.getIfPresent(key) != null) return;
+
+        Path dir = Files.createTempDirectory(root, "artifact-");
+        List<String> files = new ArrayList<>();
+        long bytes = 0;
+        try (Stream<Path> paths = Files.walk(work)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                if (!Files.isRegularFile(path)) continue;
+                String name = work.relativize(path).toString();
+                if (sources.contains(name)) continue;
+
+                Path target = dir.resolve(name);
+                Files.createDirectories(target.getParent());
+                Files.copy(path, target, StandardCopyOption.COPY_ATTRIBUTES);
+                files.add(name);
+                bytes += Files.size(path);
+            }
+        }
+
+        Artifact artifact = new Artifact(dir, List.copyOf(files), bytes, 0, null);
+        if (artifacts.asMap().putIfAbsent(key, artifact) != null) {
+            // Another run compiled the same sources first
+            deleteRecursively(dir);
+        }
+    }
+
+    /**
+     * Copies a cached artifact into a run's working directory. Copies rather than links, so
+     * a program that rewrites its own binary cannot poison the cache. Returns false if the
+     * artifact was evicted mid-copy.
+     */
+    boolean restore(Artifact artifact, Path work) {
+        try {
+            for (String name : artifact.files()) {
+                Path target = work.resolve(name);
+                Files.createDirectories(target.getParent());
+                Files.copy(artifact.dir().resolve(name), target, StandardCopyOption.COPY_ATTRIBUTES);
+            }
+            return true;
+        } catch (IOException e) {
+            logger.debug("Artifact {} vanished while restoring: {}", artifact.dir(), e.getMessage());
+            return false;
+        }
+    }
+
+    void close() {
+        artifacts.invalidateAll();
+        artifacts.cleanUp();
+        deleteRecursively(root);
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        // Length-prefixed so ("ab", "c") and ("a", "bc") hash differently
+        digest.update((byte) (bytes.length >>> 24));
+        digest.update((byte) (bytes.length >>> 16));
+        digest.update((byte) (bytes.length >>> 8));
+        digest.update((byte) bytes.length);
+        digest.update(bytes);
+    }
+
+    private static void deleteRecursively(Path root) {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            // Already gone
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.vylop.backend.service.execution;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.json.JsonParser;
+import org.springframework.boot.json.JsonParserFactory;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Which Wandbox compiler runs each language, kept off the request path.
+ *
+ * list.json is fetched in the background as soon as the catalog starts and again every
+ * refresh interval. Lookups read an immutable snapshot and never wait for the network: until
+ * the first fetch succeeds, and for languages Wandbox does not list, they get the `*-head`
+ * fallback. A failed fetch keeps the previous snapshot and is retried after a shorter delay
+ * instead of on every run.
+ */
+public class CompilerCatalog {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompilerCatalog.class);
+
+    private static final Map<String, String> FALLBACKS = Map.of(
+            "Java", "openjdk-head",
+            "Python", "cpython-head",
+            "C++", "gcc-head",
+            "JavaScript", "nodejs-head",
+            "TypeScript", "typescript-head",
+            "Go", "go-head",
+            "Rust", "rust-head"
+    );
+
+    private final RestTemplate restTemplate;
+    private final String listUrl;
+    private final String userAgent;
+    private final long refreshMs;
+    private final long retryMs;
+    private final JsonParser jsonParser = JsonParserFactory.getJsonParser();
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("compiler-catalog").daemon().factory());
+
+    // Wandbox language name -> compiler; replaced wholesale, never mutated
+    private volatile Map<String, String> compilers = Map.of();
+
+    public CompilerCatalog(RestTemplate restTemplate, String listUrl, String userAgent, long refreshMs, long retryMs) {
+        this.restTemplate = restTemplate;
+        this.listUrl = listUrl;
+        this.userAgent = userAgent;
+        this.refreshMs = refreshMs;
+        this.retryMs = retryMs;
+        refresher.execute(this::refresh);
+    }
+
+    /** Compiler for a Wandbox language name, or null if the language has no compiler at all. */
+    public String compilerFor(String wandboxLanguage) {
+        String compiler = compilers.get(wandboxLanguage);
+        return compiler != null ? compiler : FALLBACKS.get(wandboxLanguage);
+    }
+
+    public void close() {
+        refresher.shutdownNow();
+    }
+
+    private void refresh() {
+        long next = refreshMs;
+        try {
+            Map<String, String> loaded = fetch();
+            if (loaded.isEmpty()) {
+                logger.warn("Wandbox compiler list was empty; keeping {} known compilers", compilers.size());
+                next = retryMs;
+            } else {
+                compilers = Map.copyOf(loaded);
+                logger.info("Loaded {} Wandbox compilers", loaded.size());
+            }
+        } catch (Exception e) {
+            logger.warn("Could not fetch Wandbox compilers, retrying in {}s: {}", retryMs / 1000, e.getMessage());
+            next = retryMs;
+        }
+        if (!refresher.isShutdown()) {
+            refresher.schedule(this::refresh, next, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private Map<String, String> fetch() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.USER_AGENT, userAgent);
+        ResponseEntity<String> response = restTemplate.exchange(listUrl, HttpMethod.GET, new HttpEntity<Void>(headers), String.class);
+        if (response.getStatusCode() != HttpStatus.OK || response.getBody() == null) return Map.of();
+
+        // Per language: the first stable compiler listed, else the last `head` build seen
+        Map<String, String> selected = new HashMap<>();
+        Map<String, Boolean> stable = new HashMap<>();
+        List<Object> entries = jsonParser.parseList(response.getBody());
+        for (Object entry : entries) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> compiler = (Map<String, Object>) entry;
+            String language = canonicalLanguage((String) compiler.get("language"));
+            String name = (String) compiler.get("name");
+            if (language == null || name == null || stable.getOrDefault(language, false)) continue;
+
+            selected.put(language, name);
+            if (!name.contains("head")) stable.put(language, true);
+        }
+        return selected;
+    }
+
+    /** Wandbox's spelling of the languages we run (matched case-insensitively), or null. */
+    private static String canonicalLanguage(String listed) {
+        if (listed == null) return null;
+        for (String language : FALLBACKS.keySet()) {
+            if (language.equalsIgnoreCase(listed)) return language;
+        }
+        return null;
+    }
+}
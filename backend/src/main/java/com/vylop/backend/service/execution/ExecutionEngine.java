@@ -0,0 +1,41 @@
+package com.vylop.backend.service.execution;
+
+/**
+ * Compiles and runs a prepared program somewhere — a remote sandbox or this host.
+ * Selected with vylop.execution.engine (see ExecutionConfig).
+ */
+public interface ExecutionEngine {
+
+    boolean supports(String language);
+
+    /**
+     * Whether running the same program again skips its compile step here, e.g. through a
+     * local artifact cache. Remote sandboxes compile every request.
+     */
+    default boolean reusesBuilds(String language) {
+        return false;
+    }
+
+    /**
+     * Runs the program and returns its outcome, or null when the backend answered with
+     * something that could not be interpreted. Throws when the backend could not be reached.
+     */
+    ExecutionResult execute(ExecutionRequest request) throws Exception;
+
+    /**
+     * Like execute, but also passes output to the listener as it is produced. Engines that
+     * cannot stream deliver everything once the run is over.
+     */
+    default ExecutionResult execute(ExecutionRequest request, OutputListener listener) throws Exception {
+        ExecutionResult result = execute(request);
+        if (result != null) {
+            if (result.compilerMessage() != null && !result.compilerMessage().isEmpty()) {
+                listener.onOutput(OutputListener.COMPILER, result.compilerMessage());
+            }
+            if (result.programMessage() != null && !result.programMessage().isEmpty()) {
+                listener.onOutput(OutputListener.STDOUT, result.programMessage());
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,11 @@
+package com.vylop.backend.service.execution;
+
+import java.util.List;
+
+/**
+ * A program ready to run: environment stubs injected, unrelated workspace files dropped and,
+ * for Java, the `prog` delegator as the main code. Shaped after Wandbox's compile.json —
+ * `code` is the entry point, `files` are compiled or loaded alongside it.
+ */
+public record ExecutionRequest(String language, String code, List<SourceFile> files, String stdin) {
+}
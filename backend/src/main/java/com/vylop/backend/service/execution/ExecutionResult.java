@@ -0,0 +1,23 @@
+package com.vylop.backend.service.execution;
+
+/**
+ * Outcome of one run. A non-zero status is a failed compile or a failed run, told apart by
+ * `compileFailed`; the compiler message is set whenever compilation produced output, which
+ * for a program that ran may just be warnings.
+ */
+public record ExecutionResult(int status, String compilerMessage, String programMessage, boolean compileFailed) {
+
+    /** A program that compiled (or needs no compiling) and ran. */
+    public ExecutionResult(int status, String compilerMessage, String programMessage) {
+        this(status, compilerMessage, programMessage, false);
+    }
+
+    /** A program that never ran because it did not compile. */
+    public static ExecutionResult compileError(int status, String compilerMessage) {
+        return new ExecutionResult(status == 0 ? 1 : status, compilerMessage, "", true);
+    }
+
+    public boolean succeeded() {
+        return status == 0;
+    }
+}
@@ -0,0 +1,359 @@
+package com.vylop.backend.service.execution;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Entry point of a pre-started JVM in JavaWorkerPool. Runs in its own process with only the
+ * JDK on the classpath, so it must not touch any other backend class — and must not declare
+ * anonymous classes, because the pool copies this class and its named nested classes only.
+ *
+ * Protocol (DataStream encoding), exactly one job per process:
+ * <pre>
+ *   pool → worker   TOKEN_BYTES token on stdin; argument 0 is the pool's Unix socket path
+ *   worker → pool   over the socket: the token, then a READY byte once warmed up
+ *   pool → worker   int files, per file: UTF name, int length, UTF-8 bytes
+ *                   int stdin length, bytes; UTF output file; long run timeout ms
+ *   worker → pool   int status, boolean compile failed, int length + UTF-8 compiler message
+ * </pre>
+ * The socket is opened before any user code loads and is only held in main's locals, so a
+ * program cannot write to it; anything it writes to fds 0-2 never reaches the pool.
+ * Program output goes to the given file, so it survives a System.exit in user code.
+ * Nothing of a job outlives it: after replying the worker halts, taking every thread the
+ * program started with it (virtual ones, or ones outside the run's thread group, included).
+ * Compiled classes carry the env values ProgramPreparer inlined, so nothing is cached here.
+ */
+public final class JavaRunWorker {
+
+    static final int READY = 0x56;
+    static final int TOKEN_BYTES = 32;
+    static final int TIMEOUT_STATUS = 124;
+
+    // Typical classroom snippet, compiled and run once at boot so the one real job finds javac
+    // and the run path already class-loaded; JIT warm-up would not pay off in a single-use JVM
+    private static final String WARM_UP_SOURCE = "import java.util.*; public class prog { public static void main(String[] args) { "
+            + "Scanner sc = new Scanner(System.in); List<Integer> xs = new ArrayList<>(); Map<Integer, Integer> seen = new HashMap<>(); "
+            + "while (sc.hasNextInt()) { int x = sc.nextInt(); xs.add(x); seen.merge(x, 1, Integer::sum); } "
+            + "StringBuilder sb = new StringBuilder(); for (int x : xs) sb.append(x).append(' '); "
+            + "System.out.print(sb.length() > 0 ? \"\" : String.valueOf(seen.size())); } }";
+
+    private static final PrintStream ORIGINAL_ERR = System.err;
+    private static final InputStream ORIGINAL_IN = System.in;
+
+    // Output of the run in progress, flushed by the shutdown hook if user code calls System.exit
+    private static final AtomicReference<PrintStream> currentOutput = new AtomicReference<>();
+
+    private JavaRunWorker() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        // Read before any user code loads: the pool only talks to whoever presents this token
+        byte[] token = new byte[TOKEN_BYTES];
+        new DataInputStream(new FileInputStream(FileDescriptor.in)).readFully(token);
+        SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(args[0]));
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+        out.write(token);
+        // The real stdout is not part of the protocol; keep stray prints off it anyway
+        System.setOut(ORIGINAL_ERR);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(JavaRunWorker::flushCurrentOutput));
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            System.err.println("No system Java compiler: the backend must run on a JDK to use Java workers");
+            System.exit(2);
+        }
+
+        warmUp(compiler);
+        out.writeByte(READY);
+        out.flush();
+
+        Job job;
+        try {
+            job = Job.read(in);
+        } catch (EOFException e) {
+            return; // pool closed the socket
+        }
+
+        Result result = run(compiler, job);
+
+        byte[] message = result.compilerMessage.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(result.status);
+        out.writeBoolean(result.compileFailed);
+        out.writeInt(message.length);
+        out.write(message);
+        out.flush();
+
+        // Threads the program left behind die here instead of meeting the next user's run
+        Runtime.getRuntime().halt(0);
+    }
+
+    private static void warmUp(JavaCompiler compiler) throws Exception {
+        Properties baseProperties = (Properties) System.getProperties().clone();
+        File sink = File.createTempFile("vylop-warmup", ".txt");
+        try {
+            run(compiler, new Job(Map.of("prog.java", WARM_UP_SOURCE), "1 2 3".getBytes(StandardCharsets.UTF_8), sink.getPath(), 10_000));
+        } finally {
+            sink.delete();
+        }
+        System.setProperties((Properties) baseProperties.clone());
+    }
+
+    private static Result run(JavaCompiler compiler, Job job) {
+        // --- Compile in memory ---
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        List<JavaFileObject> units = new ArrayList<>();
+        job.sources.forEach((name, code) -> units.add(new MemorySource(name, code)));
+
+        Map<String, byte[]> classes = new HashMap<>();
+        StandardJavaFileManager standard = compiler.getStandardFileManager(diagnostics, Locale.ROOT, StandardCharsets.UTF_8);
+        try (MemoryFileManager fileManager = new MemoryFileManager(standard, classes)) {
+            boolean compiled = compiler.getTask(null, fileManager, diagnostics,
+                    List.of("-encoding", "UTF-8", "-proc:none", "-Xlint:none"), null, units).call();
+            if (!compiled) {
+                return new Result(1, formatDiagnostics(diagnostics), true);
+            }
+        } catch (Exception e) {
+            return new Result(1, "Compilation failed: " + e, true);
+        }
+
+        // --- Run in a throwaway classloader and thread group ---
+        try (PrintStream output = new PrintStream(new BufferedOutputStream(new FileOutputStream(job.outputFile)), false, StandardCharsets.UTF_8)) {
+            currentOutput.set(output);
+            System.setOut(output);
+            System.setErr(output);
+            System.setIn(new ByteArrayInputStream(job.stdin));
+
+            RunLoader loader = new RunLoader(classes);
+            ThreadGroup group = new ThreadGroup("vylop-run");
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            Thread main = new Thread(group, () -> invokeMain(loader, failure), "main");
+            main.setContextClassLoader(loader);
+
+            long deadline = System.currentTimeMillis() + job.timeoutMs;
+            main.start();
+            // Like the JVM itself, the program is done when its last non-daemon thread is
+            boolean finished = awaitNonDaemonThreads(group, deadline);
+
+            output.flush();
+            if (!finished) {
+                return new Result(TIMEOUT_STATUS, "", false);
+            }
+            return new Result(failure.get() != null ? 1 : 0, "", false);
+        } catch (Exception e) {
+            return new Result(1, "Sandbox Error: " + e, false);
+        } finally {
+            currentOutput.set(null);
+            System.setOut(ORIGINAL_ERR);
+            System.setErr(ORIGINAL_ERR);
+            System.setIn(ORIGINAL_IN);
+        }
+    }
+
+    private static void invokeMain(RunLoader loader, AtomicReference<Throwable> failure) {
+        try {
+            Class<?> entry = Class.forName("prog", true, loader);
+            Method main = entry.getMethod("main", String[].class);
+            main.invoke(null, (Object) new String[0]);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            failure.set(cause);
+            hideWorkerFrames(cause);
+            System.err.print("Exception in thread \"main\" ");
+            cause.printStackTrace();
+        } catch (Throwable e) {
+            failure.set(e);
+            System.err.println("Error: Could not run main class prog: " + e);
+        }
+    }
+
+    /** Cuts the trace off where reflection into the user's main begins, as a plain `java prog` would show it. */
+    private static void hideWorkerFrames(Throwable error) {
+        StackTraceElement[] frames = error.getStackTrace();
+        for (int i = 0; i < frames.length; i++) {
+            if (frames[i].getClassName().startsWith("jdk.internal.reflect.")
+                    || frames[i].getClassName().equals(Method.class.getName())) {
+                error.setStackTrace(Arrays.copyOf(frames, i));
+                return;
+            }
+        }
+    }
+
+    private static boolean awaitNonDaemonThreads(ThreadGroup group, long deadline) throws InterruptedException {
+        while (true) {
+            Thread[] threads = new Thread[group.activeCount() + 8];
+            int count = group.enumerate(threads, true);
+            Thread pending = null;
+            for (int i = 0; i < count; i++) {
+                if (!threads[i].isDaemon() && threads[i].isAlive()) {
+                    pending = threads[i];
+                    break;
+                }
+            }
+            if (pending == null) return true;
+
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) return false;
+            pending.join(remaining);
+        }
+    }
+
+    private static String formatDiagnostics(DiagnosticCollector<JavaFileObject> diagnostics) {
+        StringBuilder message = new StringBuilder();
+        int errors = 0;
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) errors++;
+            String file = diagnostic.getSource() != null ? diagnostic.getSource().getName() : "";
+            if (file.startsWith("/")) file = file.substring(1);
+            message.append(file).append(':').append(diagnostic.getLineNumber()).append(": ")
+                    .append(diagnostic.getKind() == Diagnostic.Kind.ERROR ? "error" : "warning").append(": ")
+                    .append(diagnostic.getMessage(Locale.ROOT)).append('\n');
+        }
+        message.append(errors).append(errors == 1 ? " error" : " errors").append('\n');
+        return message.toString();
+    }
+
+    private static void flushCurrentOutput() {
+        PrintStream output = currentOutput.get();
+        if (output != null) output.flush();
+    }
+
+    private record Job(Map<String, String> sources, byte[] stdin, String outputFile, long timeoutMs) {
+
+        static Job read(DataInputStream in) throws IOException {
+            int fileCount = in.readInt();
+            Map<String, String> sources = new HashMap<>();
+            for (int i = 0; i < fileCount; i++) {
+                String name = in.readUTF();
+                byte[] code = new byte[in.readInt()];
+                in.readFully(code);
+                sources.put(name, new String(code, StandardCharsets.UTF_8));
+            }
+            byte[] stdin = new byte[in.readInt()];
+            in.readFully(stdin);
+            return new Job(sources, stdin, in.readUTF(), in.readLong());
+        }
+    }
+
+    private record Result(int status, String compilerMessage, boolean compileFailed) {}
+
+    private static final class MemorySource extends SimpleJavaFileObject {
+
+        private final String code;
+
+        MemorySource(String name, String code) {
+            super(URI.create("string:///" + name), Kind.SOURCE);
+            this.code = code;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return code;
+        }
+    }
+
+    private static final class MemoryClass extends SimpleJavaFileObject {
+
+        private final String className;
+        private final Map<String, byte[]> classes;
+
+        MemoryClass(String className, Map<String, byte[]> classes) {
+            super(URI.create("bytes:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+            this.className = className;
+            this.classes = classes;
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            return new ClassBytes(className, classes);
+        }
+    }
+
+    private static final class ClassBytes extends ByteArrayOutputStream {
+
+        private final String className;
+        private final Map<String, byte[]> classes;
+
+        ClassBytes(String className, Map<String, byte[]> classes) {
+            this.className = className;
+            this.classes = classes;
+        }
+
+        @Override
+        public void close() {
+            classes.put(className, toByteArray());
+        }
+    }
+
+    private static final class MemoryFileManager extends ForwardingJavaFileManager<JavaFileManager> {
+
+        private final Map<String, byte[]> classes;
+
+        MemoryFileManager(JavaFileManager delegate, Map<String, byte[]> classes) {
+            super(delegate);
+            this.classes = classes;
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+            return new MemoryClass(className, classes);
+        }
+    }
+
+    private static final class RunLoader extends ClassLoader {
+
+        private final Map<String, byte[]> classes;
+
+        RunLoader(Map<String, byte[]> classes) {
+            // Platform loader as parent: user code sees the JDK, not the worker
+            super(ClassLoader.getPlatformClassLoader());
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = classes.get(name);
+            if (bytes == null) throw new ClassNotFoundException(name);
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,451 @@
+package com.vylop.backend.service.execution;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.ProtocolException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Pre-started, pre-warmed JVMs for Java runs, so a run costs an in-memory compile plus the
+ * program itself instead of two cold JVM starts (javac, then java).
+ *
+ * Each worker is a separate process (see JavaRunWorker) with its own heap limit and working
+ * directory, and runs exactly one program before it is replaced. User code shares the JVM
+ * with the worker, and without a SecurityManager nothing stops a thread it starts from
+ * outliving the run and reading the next one's input, so workers are never reused; what the
+ * pool saves is the JVM start and javac warm-up, which happen before the run is requested.
+ *
+ * A run takes a worker only if one is idle right now: under a burst the replacements are
+ * still starting, and waiting for one would hold an engine slot about as long as the cold
+ * path takes. If workers repeatedly fail to start (a JRE without javax.tools, say), the pool
+ * turns itself off and every run goes cold.
+ *
+ * The pool talks to a worker over a Unix socket the worker connects to before loading user
+ * code, never over its stdout, which the program can write to. Replies are still read as
+ * untrusted: every length is bounded, and a malformed reply fails the run.
+ */
+class JavaWorkerPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(JavaWorkerPool.class);
+
+    // Consecutive failed starts after which the pool stops trying
+    private static final int MAX_START_FAILURES = 3;
+    private static final long PROTOCOL_GRACE_MS = 5000;
+    private static final int MAX_COMPILER_MESSAGE_BYTES = 1 << 20;
+    private static final SecureRandom TOKENS = new SecureRandom();
+
+    private final long compileTimeoutMs;
+    private final long runTimeoutMs;
+    private final List<String> launchCommand;
+    private final Path home;
+
+    private final BlockingQueue<Worker> idle = new LinkedBlockingQueue<>();
+    private final ExecutorService starter;
+    private final ScheduledExecutorService watchdog;
+    private final AtomicInteger ids = new AtomicInteger();
+    private final AtomicInteger startFailures = new AtomicInteger();
+    private volatile boolean closed;
+    private volatile boolean disabled;
+
+    /**
+     * @param limits prefix (wrapper, prlimit) to start every worker with; the worker's own
+     *               JVM flags and main class are appended
+     */
+    JavaWorkerPool(int size, long memoryMb, long compileTimeoutMs, long runTimeoutMs,
+                   List<String> limits) throws IOException {
+        this.compileTimeoutMs = compileTimeoutMs;
+        this.runTimeoutMs = runTimeoutMs;
+        this.home = Files.createTempDirectory("vylop-java-workers-");
+
+        Path classes = Files.createDirectory(home.resolve("classes"));
+        extractWorkerClasses(JavaRunWorker.class, classes);
+
+        List<String> command = new ArrayList<>(limits);
+        // Same JVM as the backend: the worker class is compiled for it, and it must be a JDK (javax.tools)
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        command.addAll(List.of(java, "-Xmx" + memoryMb + "m", "-Xss16m", "-XX:+UseSerialGC",
+                "-Xshare:auto", "-cp", classes.toString(), JavaRunWorker.class.getName()));
+        this.launchCommand = List.copyOf(command);
+
+        // Every run consumes a worker, so replacements warm up side by side
+        this.starter = Executors.newFixedThreadPool(size, daemon("java-worker-starter"));
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(daemon("java-worker-watchdog"));
+        for (int i = 0; i < size; i++) {
+            replenish();
+        }
+    }
+
+    /**
+     * Compiles and runs the request on a warm worker, or returns null when none is idle and
+     * the caller should fall back to a cold compile-and-run.
+     */
+    ExecutionResult execute(ExecutionRequest request, String mainFile, int maxOutputBytes, OutputListener listener)
+            throws IOException, InterruptedException {
+        Worker worker = idle.poll();
+        if (worker == null) return null;
+
+        try {
+            return worker.run(request, mainFile, maxOutputBytes, listener);
+        } finally {
+            worker.destroy();
+            replenish();
+        }
+    }
+
+    void close() {
+        closed = true;
+        starter.shutdownNow();
+        watchdog.shutdownNow();
+        Worker worker;
+        while ((worker = idle.poll()) != null) {
+            worker.destroy();
+        }
+        deleteRecursively(home);
+    }
+
+    private void replenish() {
+        if (closed || disabled) return;
+        starter.execute(() -> {
+            try {
+                Worker worker = new Worker(ids.incrementAndGet());
+                startFailures.set(0);
+                if (closed) {
+                    worker.destroy();
+                } else {
+                    idle.offer(worker);
+                }
+            } catch (IOException e) {
+                // close() interrupts starts in progress; that is not a broken toolchain
+                if (closed) return;
+                if (startFailures.incrementAndGet() >= MAX_START_FAILURES) {
+                    disabled = true;
+                    logger.error("Java worker pool disabled after {} failed starts, Java runs take the cold path: {}",
+                            MAX_START_FAILURES, e.getMessage());
+                    return;
+                }
+                logger.warn("Could not start Java worker: {}", e.getMessage());
+                // Try again later rather than spinning on a broken toolchain
+                watchdog.schedule(this::replenish, 10, TimeUnit.SECONDS);
+            }
+        });
+    }
+
+    private final class Worker {
+
+        private final Process process;
+        private final SocketChannel channel;
+        private final DataOutputStream in;
+        private final DataInputStream out;
+        private final Path root;
+        private final Path work;
+        private final Path output;
+
+        Worker(int id) throws IOException {
+            this.root = Files.createDirectory(home.resolve("worker-" + id));
+            this.work = Files.createDirectory(root.resolve("work"));
+            this.output = root.resolve("output.txt");
+            Path socket = root.resolve("control.sock");
+
+            List<String> command = new ArrayList<>(launchCommand);
+            command.add(socket.toString());
+            ProcessBuilder builder = new ProcessBuilder(command)
+                    .directory(work.toFile())
+                    .redirectError(root.resolve("worker.log").toFile());
+            Map<String, String> env = builder.environment();
+            String path = env.getOrDefault("PATH", "/usr/local/bin:/usr/bin:/bin");
+            env.clear();
+            env.put("PATH", path);
+            env.put("HOME", work.toString());
+            env.put("LANG", "C.UTF-8");
+
+            // Anything on the host can connect to the socket; only the worker was handed the token
+            byte[] token = new byte[JavaRunWorker.TOKEN_BYTES];
+            TOKENS.nextBytes(token);
+            try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+                server.bind(UnixDomainSocketAddress.of(socket));
+                Process started = builder.redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+                this.process = started;
+
+                // Blocks until the worker has connected and compiled and run its warm-up programs
+                ScheduledFuture<?> kill = watchdog.schedule(() -> {
+                    started.destroyForcibly();
+                    closeQuietly(server);
+                }, compileTimeoutMs * 2, TimeUnit.MILLISECONDS);
+                // A worker that dies before connecting (no javax.tools, say) fails the start now
+                started.onExit().thenRun(() -> closeQuietly(server));
+                SocketChannel connected = null;
+                try {
+                    try (OutputStream stdin = started.getOutputStream()) {
+                        stdin.write(token);
+                    }
+                    connected = server.accept();
+                    DataInputStream replies = new DataInputStream(new BufferedInputStream(Channels.newInputStream(connected)));
+                    byte[] presented = replies.readNBytes(token.length);
+                    if (!MessageDigest.isEqual(token, presented) || replies.read() != JavaRunWorker.READY) {
+                        throw new IOException("no handshake");
+                    }
+                    this.channel = connected;
+                    this.out = replies;
+                    this.in = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(connected)));
+                } catch (IOException e) {
+                    closeQuietly(connected);
+                    started.destroyForcibly();
+                    String log = Files.readString(root.resolve("worker.log")).strip();
+                    deleteRecursively(root);
+                    throw new IOException("worker exited during warm-up: " + log);
+                } finally {
+                    kill.cancel(false);
+                }
+            }
+        }
+
+        ExecutionResult run(ExecutionRequest request, String mainFile, int maxOutputBytes, OutputListener listener)
+                throws IOException, InterruptedException {
+            List<SourceFile> sources = new ArrayList<>();
+            sources.add(new SourceFile(mainFile, request.code()));
+            for (SourceFile file : request.files()) {
+                if (file.name().endsWith(".java")) sources.add(file);
+            }
+            // Non-Java files (.env) still land in the working directory, as with the cold path
+            for (SourceFile file : request.files()) {
+                if (!file.name().endsWith(".java")) {
+                    Path target = work.resolve(file.name()).normalize();
+                    if (!target.startsWith(work) || target.equals(work)) {
+                        return new ExecutionResult(1, "", "Sandbox Error: Invalid file name '" + file.name() + "'.");
+                    }
+                    Files.createDirectories(target.getParent());
+                    Files.writeString(target, file.code() == null ? "" : file.code(), StandardCharsets.UTF_8);
+                }
+            }
+
+            in.writeInt(sources.size());
+            for (SourceFile source : sources) {
+                byte[] code = (source.code() == null ? "" : source.code()).getBytes(StandardCharsets.UTF_8);
+                in.writeUTF(source.name());
+                in.writeInt(code.length);
+                in.write(code);
+            }
+            byte[] stdin = (request.stdin() == null ? "" : request.stdin()).getBytes(StandardCharsets.UTF_8);
+            in.writeInt(stdin.length);
+            in.write(stdin);
+            in.writeUTF(output.toString());
+            in.writeLong(runTimeoutMs);
+            in.flush();
+
+            // The worker enforces the run timeout itself; this only catches a wedged worker
+            ScheduledFuture<?> kill = watchdog.schedule(this::destroy,
+                    compileTimeoutMs + runTimeoutMs + PROTOCOL_GRACE_MS, TimeUnit.MILLISECONDS);
+            OutputTail tail = listener != null ? new OutputTail(output, maxOutputBytes, listener) : null;
+            try {
+                int status = out.readInt();
+                boolean compileFailed = out.readBoolean();
+                int messageLength = out.readInt();
+                if (messageLength < 0 || messageLength > MAX_COMPILER_MESSAGE_BYTES) {
+                    throw new ProtocolException("compiler message length " + messageLength);
+                }
+                byte[] compilerMessage = new byte[messageLength];
+                out.readFully(compilerMessage);
+                if (tail != null) tail.stop();
+
+                String compilerText = new String(compilerMessage, StandardCharsets.UTF_8);
+                if (listener != null && !compilerText.isEmpty()) listener.onOutput(OutputListener.COMPILER, compilerText);
+                String programOutput = readOutput(maxOutputBytes);
+                if (status == JavaRunWorker.TIMEOUT_STATUS) {
+                    String notice = "\nTime limit exceeded (" + runTimeoutMs / 1000 + "s)";
+                    if (listener != null) listener.onOutput(OutputListener.STDOUT, notice);
+                    programOutput += notice;
+                }
+                return new ExecutionResult(status, compilerText, programOutput, compileFailed);
+            } catch (ProtocolException e) {
+                // The worker is destroyed after every run anyway; just don't trust anything it said
+                logger.warn("Java worker sent a malformed reply: {}", e.getMessage());
+                if (tail != null) tail.stop();
+                return new ExecutionResult(1, "", "Sandbox Error: Java worker failed.");
+            } catch (IOException e) {
+                // Worker died mid-run: System.exit in user code, a crash, or the watchdog
+                int exitCode = process.waitFor(PROTOCOL_GRACE_MS, TimeUnit.MILLISECONDS) ? process.exitValue() : JavaRunWorker.TIMEOUT_STATUS;
+                if (tail != null) tail.stop();
+                return new ExecutionResult(exitCode, "", readOutput(maxOutputBytes));
+            } finally {
+                kill.cancel(false);
+                if (tail != null) tail.stop();
+            }
+        }
+
+        void destroy() {
+            closeQuietly(channel);
+            process.toHandle().descendants().forEach(ProcessHandle::destroyForcibly);
+            process.destroyForcibly();
+            deleteRecursively(root);
+        }
+
+        private String readOutput(int maxOutputBytes) throws IOException {
+            if (!Files.exists(output)) return "";
+            try (InputStream stream = Files.newInputStream(output)) {
+                byte[] bytes = stream.readNBytes(maxOutputBytes + 1);
+                if (bytes.length <= maxOutputBytes) {
+                    return new String(bytes, StandardCharsets.UTF_8);
+                }
+                return new String(bytes, 0, maxOutputBytes, StandardCharsets.UTF_8) + "\n[output truncated]";
+            }
+        }
+    }
+
+    /**
+     * Follows a worker's output file while the program runs and forwards what it appends, up
+     * to the output cap. The worker writes to a file rather than a pipe so output survives
+     * System.exit, hence polling instead of a blocking read.
+     */
+    private static final class OutputTail {
+
+        private static final long POLL_MS = 50;
+
+        private final Path file;
+        private final int maxBytes;
+        private final OutputListener listener;
+        private final Thread thread;
+        private volatile boolean stopped;
+        private long position;
+        private byte[] partial = new byte[0];
+        private boolean truncated;
+
+        OutputTail(Path file, int maxBytes, OutputListener listener) {
+            this.file = file;
+            this.maxBytes = maxBytes;
+            this.listener = listener;
+            this.thread = Thread.ofVirtual().name("java-worker-output-tail").start(this::follow);
+        }
+
+        /** Stops following and forwards whatever was written last. Safe to call twice. */
+        void stop() throws InterruptedException {
+            stopped = true;
+            thread.join();
+            forwardNew();
+        }
+
+        private void follow() {
+            try {
+                while (!stopped) {
+                    forwardNew();
+                    Thread.sleep(POLL_MS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private synchronized void forwardNew() {
+            if (truncated || !Files.exists(file)) return;
+            try (FileChannel channel = FileChannel.open(file)) {
+                long available = Math.min(channel.size(), maxBytes) - position;
+                if (available > 0) {
+                    ByteBuffer buffer = ByteBuffer.allocate((int) available);
+                    while (buffer.hasRemaining()) {
+                        if (channel.read(buffer, position + buffer.position()) <= 0) break;
+                    }
+                    position += buffer.position();
+
+                    byte[] bytes = new byte[partial.length + buffer.position()];
+                    System.arraycopy(partial, 0, bytes, 0, partial.length);
+                    System.arraycopy(buffer.array(), 0, bytes, partial.length, buffer.position());
+                    // Hold back a multi-byte character split across two reads
+                    int complete = bytes.length - incompleteTail(bytes);
+                    partial = Arrays.copyOfRange(bytes, complete, bytes.length);
+                    if (complete > 0) listener.onOutput(OutputListener.STDOUT, new String(bytes, 0, complete, StandardCharsets.UTF_8));
+                }
+                if (channel.size() > maxBytes) {
+                    truncated = true;
+                    listener.onOutput(OutputListener.STDOUT, "\n[output truncated]");
+                }
+            } catch (IOException e) {
+                // Removed together with the worker
+            }
+        }
+
+        private static int incompleteTail(byte[] bytes) {
+            for (int i = 1; i <= Math.min(3, bytes.length); i++) {
+                int b = bytes[bytes.length - i] & 0xFF;
+                if ((b & 0xC0) == 0x80) continue;   // continuation byte, keep looking for the lead
+                if (b < 0x80) return 0;             // ASCII: nothing pending
+                int length = b >= 0xF0 ? 4 : b >= 0xE0 ? 3 : 2;
+                return length > i ? i : 0;
+            }
+            return 0;
+        }
+    }
+
+    /** Copies the worker class and its nested classes out of the classpath (works from a fat jar too). */
+    private static void extractWorkerClasses(Class<?> type, Path classes) throws IOException {
+        String resource = type.getName().replace('.', '/') + ".class";
+        Path target = classes.resolve(resource);
+        Files.createDirectories(target.getParent());
+        try (InputStream bytes = type.getClassLoader().getResourceAsStream(resource)) {
+            if (bytes == null) throw new IOException("missing class file " + resource);
+            Files.copy(bytes, target);
+        }
+        for (Class<?> nested : type.getDeclaredClasses()) {
+            extractWorkerClasses(nested, classes);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) return;
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Nothing left to release
+        }
+    }
+
+    private static void deleteRecursively(Path root) {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException | UncheckedIOException e) {
+            // Already gone, or removed together with the pool
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
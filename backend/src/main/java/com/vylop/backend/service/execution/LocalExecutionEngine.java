@@ -0,0 +1,435 @@
+package com.vylop.backend.service.execution;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Compiles and runs programs as child processes on this host, using the toolchains on PATH.
+ *
+ * Every run gets a fresh temporary directory, an environment stripped down to PATH/HOME/LANG,
+ * a wall-clock timeout that kills the whole process tree, capped output and — when prlimit is
+ * installed — CPU, memory and file-size rlimits. Runs beyond the concurrency limit wait for a
+ * slot. Compiled output is cached by source hash (see ArtifactCache), so re-running the
+ * same sources only pays for the run; Java on the warm workers compiles every run, since
+ * nothing may stay in a worker JVM between users (see JavaRunWorker). For stronger isolation
+ * (network, filesystem, seccomp), set a wrapper command such as nsjail or firejail, which is
+ * prepended to every command.
+ */
+public class LocalExecutionEngine implements ExecutionEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalExecutionEngine.class);
+
+    private static final int TIMEOUT_STATUS = 124;
+    private static final long RUN_FILE_SIZE_LIMIT = 16L * 1024 * 1024;
+
+    /**
+     * How one language is built and started. Sources matching `compiled` are appended to the
+     * compile command; `rlimitMemory` is false for runtimes that reserve large address spaces
+     * up front (JVM, V8) and are capped through their own flags instead.
+     */
+    private record Toolchain(String mainFile, List<String> compile, Predicate<String> compiled,
+                             List<String> run, boolean rlimitMemory) {}
+
+    private final Map<String, Toolchain> toolchains;
+    private final long compileTimeoutMs;
+    private final long runTimeoutMs;
+    private final long memoryMb;
+    private final int maxOutputBytes;
+    private final List<String> wrapper;
+    private final boolean prlimit;
+    private final Semaphore slots;
+    private final JavaWorkerPool javaWorkers;
+    private final ArtifactCache artifacts;
+    private final Map<String, String> compilerIds = new ConcurrentHashMap<>();
+
+    public LocalExecutionEngine(long compileTimeoutMs, long runTimeoutMs, long memoryMb,
+                                int maxOutputBytes, int maxConcurrentRuns, List<String> wrapper) {
+        this(compileTimeoutMs, runTimeoutMs, memoryMb, maxOutputBytes, maxConcurrentRuns, wrapper, 0, 0);
+    }
+
+    /**
+     * @param javaWorkers warm JVMs to keep for Java runs, each used once (0 = compile and start a JVM per run)
+     * @param artifactCacheBytes disk budget for cached compiler output (0 = always compile)
+     */
+    public LocalExecutionEngine(long compileTimeoutMs, long runTimeoutMs, long memoryMb,
+                                int maxOutputBytes, int maxConcurrentRuns, List<String> wrapper,
+                                int javaWorkers, long artifactCacheBytes) {
+        this.compileTimeoutMs = compileTimeoutMs;
+        this.runTimeoutMs = runTimeoutMs;
+        this.memoryMb = memoryMb;
+        this.maxOutputBytes = maxOutputBytes;
+        this.wrapper = List.copyOf(wrapper);
+        this.prlimit = onPath("prlimit");
+        this.slots = new Semaphore(maxConcurrentRuns, true);
+        this.toolchains = Map.of(
+                "java", new Toolchain("prog.java",
+                        List.of("javac", "-encoding", "UTF-8", "-d", "."), name -> name.endsWith(".java"),
+                        List.of("java", "-Xmx" + memoryMb + "m", "-Xss16m", "-XX:+UseSerialGC",
+                                "-XX:TieredStopAtLevel=1", "-cp", ".", "prog"), false),
+                "python", new Toolchain("prog.py", List.of(), name -> false,
+                        List.of("python3", "prog.py"), true),
+                "cpp", new Toolchain("prog.cc",
+                        List.of("g++", "-O2", "-std=c++17", "-o", "prog"),
+                        name -> name.endsWith(".cc") || name.endsWith(".cpp") || name.endsWith(".c"),
+                        List.of("./prog"), true),
+                "javascript", new Toolchain("prog.js", List.of(), name -> false,
+                        List.of("node", "--max-old-space-size=" + memoryMb, "prog.js"), false),
+                "typescript", new Toolchain("prog.ts",
+                        List.of("tsc", "--target", "es2020", "--module", "commonjs", "--rootDir", ".", "--outDir", "out"),
+                        name -> name.endsWith(".ts"),
+                        List.of("node", "--max-old-space-size=" + memoryMb, "out/prog.js"), false),
+                "go", new Toolchain("prog.go",
+                        List.of("go", "build", "-o", "prog"), name -> name.endsWith(".go"),
+                        List.of("./prog"), true),
+                "rust", new Toolchain("prog.rs",
+                        // rustc follows `mod` declarations itself, so only the crate root is passed
+                        List.of("rustc", "-O", "-o", "prog", "prog.rs"), name -> false,
+                        List.of("./prog"), true)
+        );
+        if (!prlimit) {
+            logger.warn("prlimit not found on PATH: local runs are limited by timeout and output size only");
+        }
+        this.javaWorkers = javaWorkers > 0 ? startJavaWorkers(javaWorkers) : null;
+        this.artifacts = artifactCacheBytes > 0 ? createArtifactCache(artifactCacheBytes) : null;
+    }
+
+    /** Stops the warm Java workers, if any, and drops cached artifacts. */
+    public void close() {
+        if (javaWorkers != null) javaWorkers.close();
+        if (artifacts != null) artifacts.close();
+    }
+
+    @Override
+    public boolean supports(String language) {
+        return toolchain(language) != null;
+    }
+
+    /** Compiled languages reuse cached artifacts; Java on the warm workers compiles every run. */
+    @Override
+    public boolean reusesBuilds(String language) {
+        Toolchain toolchain = toolchain(language);
+        return artifacts != null && toolchain != null && !toolchain.compile().isEmpty()
+                && !(javaWorkers != null && toolchain == toolchains.get("java"));
+    }
+
+    @Override
+    public ExecutionResult execute(ExecutionRequest request) throws IOException, InterruptedException {
+        return execute(request, null);
+    }
+
+    /** Streams the run step's output; the listener may be null. */
+    @Override
+    public ExecutionResult execute(ExecutionRequest request, OutputListener listener) throws IOException, InterruptedException {
+        Toolchain toolchain = toolchain(request.language());
+        slots.acquire();
+        try {
+            if (javaWorkers != null && toolchain == toolchains.get("java")) {
+                ExecutionResult result = javaWorkers.execute(request, toolchain.mainFile(), maxOutputBytes, listener);
+                if (result != null) return result;
+                // All warm workers busy or still starting: take the cold path
+            }
+
+            Path root = Files.createTempDirectory("vylop-run-");
+            try {
+                return compileAndRun(toolchain, request, root, listener);
+            } finally {
+                deleteRecursively(root);
+            }
+        } finally {
+            slots.release();
+        }
+    }
+
+    private ExecutionResult compileAndRun(Toolchain toolchain, ExecutionRequest request, Path root,
+                                          OutputListener listener) throws IOException, InterruptedException {
+        Path work = Files.createDirectory(root.resolve("work"));
+        List<String> sources = new ArrayList<>();
+        if (!writeSource(work, toolchain.mainFile(), request.code(), sources)) {
+            return new ExecutionResult(1, "", "Sandbox Error: Invalid file name.");
+        }
+        for (SourceFile file : request.files()) {
+            if (!writeSource(work, file.name(), file.code(), sources)) {
+                return new ExecutionResult(1, "", "Sandbox Error: Invalid file name '" + file.name() + "'.");
+            }
+        }
+
+        if (!toolchain.compile().isEmpty()) {
+            String key = artifacts != null
+                    ? ArtifactCache.key(compilerId(toolchain), request, toolchain.mainFile())
+                    : null;
+            ArtifactCache.Artifact cached = key != null ? artifacts.get(key) : null;
+            if (cached != null && cached.failed()) {
+                if (listener != null) listener.onOutput(OutputListener.COMPILER, cached.compilerError());
+                return ExecutionResult.compileError(cached.status(), cached.compilerError());
+            }
+
+            if (cached == null || !artifacts.restore(cached, work)) {
+                List<String> command = new ArrayList<>(toolchain.compile());
+                sources.stream().filter(toolchain.compiled()).forEach(command::add);
+
+                Outcome compiled = run(root, work, limited(command, false, false), null, compileTimeoutMs);
+                if (compiled.exitCode() != 0) {
+                    String message = compiled.timedOut()
+                            ? compiled.output() + "\nCompilation timed out after " + compileTimeoutMs / 1000 + "s"
+                            : compiled.output();
+                    message = message.isEmpty() ? "Compilation failed." : message;
+                    // A timeout may be load, not the program, so only real errors are remembered
+                    if (key != null && !compiled.timedOut()) artifacts.putFailure(key, compiled.exitCode(), message);
+                    if (listener != null) listener.onOutput(OutputListener.COMPILER, message);
+                    return ExecutionResult.compileError(compiled.exitCode(), message);
+                }
+                if (key != null) artifacts.putOutputs(key, work, Set.copyOf(sources));
+            }
+        }
+
+        List<String> runCommand = limited(toolchain.run(), true, toolchain.rlimitMemory());
+        Outcome ran = listener == null
+                ? run(root, work, runCommand, request.stdin(), runTimeoutMs)
+                : runStreaming(root, work, runCommand, request.stdin(), listener);
+        String output = ran.output();
+        if (ran.timedOut()) {
+            String notice = "\nTime limit exceeded (" + runTimeoutMs / 1000 + "s)";
+            if (listener != null) listener.onOutput(OutputListener.STDOUT, notice);
+            output += notice;
+        }
+        return new ExecutionResult(ran.exitCode(), "", output);
+    }
+
+    private record Outcome(int exitCode, String output, boolean timedOut) {}
+
+    private Outcome run(Path root, Path work, List<String> command, String stdin, long timeoutMs)
+            throws IOException, InterruptedException {
+        Path input = root.resolve("stdin.txt");
+        Path output = root.resolve("output.txt");
+        Files.writeString(input, stdin == null ? "" : stdin, StandardCharsets.UTF_8);
+
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .directory(work.toFile())
+                .redirectInput(input.toFile())
+                .redirectOutput(output.toFile())
+                .redirectErrorStream(true);
+        sandboxEnvironment(builder, root, work);
+
+        Process process = builder.start();
+        boolean finished = process.waitFor(timeoutMs, TimeUnit.MILLISECONDS);
+        if (!finished) {
+            // Kill children first so nothing outlives the run by re-parenting to init
+            process.toHandle().descendants().forEach(ProcessHandle::destroyForcibly);
+            process.destroyForcibly();
+            process.waitFor();
+        }
+        return new Outcome(finished ? process.exitValue() : TIMEOUT_STATUS, readCapped(output), !finished);
+    }
+
+    /**
+     * Runs with stdout/stderr on a pipe that is drained on a second thread and forwarded to the
+     * listener as it arrives. Output beyond the cap is read and discarded, so the program is not
+     * killed for it; up to the cap, a slow listener holds the pipe full and the program blocks
+     * on its next write.
+     */
+    private Outcome runStreaming(Path root, Path work, List<String> command, String stdin, OutputListener listener)
+            throws IOException, InterruptedException {
+        Path input = root.resolve("stdin.txt");
+        Files.writeString(input, stdin == null ? "" : stdin, StandardCharsets.UTF_8);
+
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .directory(work.toFile())
+                .redirectInput(input.toFile())
+                .redirectErrorStream(true);
+        sandboxEnvironment(builder, root, work);
+
+        Process process = builder.start();
+        StringBuilder captured = new StringBuilder();
+        Thread pump = Thread.ofVirtual().name("run-output-pump").start(() -> pump(process, captured, listener));
+
+        boolean finished = process.waitFor(runTimeoutMs, TimeUnit.MILLISECONDS);
+        if (!finished) {
+            process.toHandle().descendants().forEach(ProcessHandle::destroyForcibly);
+            process.destroyForcibly();
+            process.waitFor();
+        }
+        // A background child may still hold the pipe open; don't wait on it for long
+        pump.join(1000);
+        if (pump.isAlive()) {
+            process.toHandle().descendants().forEach(ProcessHandle::destroyForcibly);
+            pump.join(1000);
+        }
+        synchronized (captured) {
+            return new Outcome(finished ? process.exitValue() : TIMEOUT_STATUS, captured.toString(), !finished);
+        }
+    }
+
+    private void pump(Process process, StringBuilder captured, OutputListener listener) {
+        char[] buffer = new char[4096];
+        long bytes = 0;
+        boolean truncated = false;
+        try (Reader reader = new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8)) {
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                if (truncated) continue;
+                String chunk = new String(buffer, 0, read);
+                long chunkBytes = chunk.getBytes(StandardCharsets.UTF_8).length;
+                if (bytes + chunkBytes > maxOutputBytes) {
+                    // Keep the whole characters that fit and mark the cut
+                    chunk = OutputListener.utf8Prefix(chunk, maxOutputBytes - bytes) + "\n[output truncated]";
+                    truncated = true;
+                }
+                bytes += chunkBytes;
+                synchronized (captured) {
+                    captured.append(chunk);
+                }
+                listener.onOutput(OutputListener.STDOUT, chunk);
+            }
+        } catch (IOException e) {
+            // Pipe closed when the process was killed
+        } catch (RuntimeException e) {
+            logger.warn("Output listener failed, draining without it: {}", e.getMessage());
+            drain(process);
+        }
+    }
+
+    private static void drain(Process process) {
+        try (InputStream in = process.getInputStream()) {
+            in.transferTo(OutputStream.nullOutputStream());
+        } catch (IOException e) {
+            // Closed
+        }
+    }
+
+    /** Only PATH, HOME (the working directory), LANG and a per-run Go build cache reach the program. */
+    private static void sandboxEnvironment(ProcessBuilder builder, Path root, Path work) {
+        Map<String, String> env = builder.environment();
+        String path = env.getOrDefault("PATH", "/usr/local/bin:/usr/bin:/bin");
+        env.clear();
+        env.put("PATH", path);
+        env.put("HOME", work.toString());
+        env.put("LANG", "C.UTF-8");
+        env.put("GOCACHE", root.resolve("gocache").toString());
+    }
+
+    /** Prepends the configured wrapper and, where available, prlimit rlimits. */
+    private List<String> limited(List<String> command, boolean runStep, boolean limitMemory) {
+        List<String> full = new ArrayList<>(wrapper);
+        if (prlimit && runStep) {
+            full.add("prlimit");
+            // CPU time a little above wall time so the timeout usually reports first
+            full.add("--cpu=" + (runTimeoutMs / 1000 + 1));
+            full.add("--fsize=" + RUN_FILE_SIZE_LIMIT);
+            if (limitMemory) full.add("--as=" + memoryMb * 1024 * 1024);
+            full.add("--");
+        }
+        full.addAll(command);
+        return full;
+    }
+
+    private JavaWorkerPool startJavaWorkers(int count) {
+        // A worker's CPU time includes its warm-up, so only per-file size is limited by rlimit;
+        // time is enforced per run by the worker and its heap by -Xmx
+        List<String> limits = new ArrayList<>(wrapper);
+        if (prlimit) {
+            limits.addAll(List.of("prlimit", "--fsize=" + RUN_FILE_SIZE_LIMIT, "--"));
+        }
+        try {
+            return new JavaWorkerPool(count, memoryMb, compileTimeoutMs, runTimeoutMs, limits);
+        } catch (IOException e) {
+            logger.warn("Java worker pool disabled: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private ArtifactCache createArtifactCache(long maxBytes) {
+        try {
+            return new ArtifactCache(maxBytes);
+        } catch (IOException e) {
+            logger.warn("Artifact cache disabled: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Identifies the compiler binary, so an upgraded toolchain does not reuse old artifacts.
+     * Resolved once per compiler; a restart picks up an upgrade made in place.
+     */
+    private String compilerId(Toolchain toolchain) {
+        String executable = toolchain.compile().getFirst();
+        return compilerIds.computeIfAbsent(executable, name -> {
+            Path binary = which(name);
+            if (binary == null) return String.join(" ", toolchain.compile());
+            try {
+                Path real = binary.toRealPath();
+                return real + "@" + Files.size(real) + ":" + Files.getLastModifiedTime(real).toMillis()
+                        + " " + String.join(" ", toolchain.compile());
+            } catch (IOException e) {
+                return binary + " " + String.join(" ", toolchain.compile());
+            }
+        });
+    }
+
+    private boolean writeSource(Path work, String name, String code, List<String> sources) throws IOException {
+        Path target = work.resolve(name).normalize();
+        if (!target.startsWith(work) || target.equals(work)) return false;
+        Files.createDirectories(target.getParent());
+        Files.writeString(target, code == null ? "" : code, StandardCharsets.UTF_8);
+        sources.add(work.relativize(target).toString());
+        return true;
+    }
+
+    private String readCapped(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] bytes = in.readNBytes(maxOutputBytes + 1);
+            if (bytes.length <= maxOutputBytes) {
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+            return new String(bytes, 0, maxOutputBytes, StandardCharsets.UTF_8) + "\n[output truncated]";
+        }
+    }
+
+    private Toolchain toolchain(String language) {
+        if (language == null) return null;
+        String key = language.toLowerCase();
+        return toolchains.get(key.equals("c++") ? "cpp" : key);
+    }
+
+    private static boolean onPath(String executable) {
+        return which(executable) != null;
+    }
+
+    private static Path which(String executable) {
+        String path = System.getenv("PATH");
+        if (path == null) return null;
+        for (String dir : path.split(File.pathSeparator)) {
+            Path candidate = Paths.get(dir, executable);
+            if (Files.isExecutable(candidate)) return candidate;
+        }
+        return null;
+    }
+
+    private static void deleteRecursively(Path root) {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            logger.warn("Could not clean up {}: {}", root, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.vylop.backend.service.execution;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Receives a program's output while it runs. Chunks arrive in order on the engine's thread;
+ * a listener that blocks slows the program down rather than buffering without bound.
+ */
+@FunctionalInterface
+public interface OutputListener {
+
+    String COMPILER = "compiler";
+    String STDOUT = "stdout";
+    String STDERR = "stderr";
+
+    /** @param stream COMPILER, STDOUT or STDERR (engines that merge the two report STDOUT) */
+    void onOutput(String stream, String chunk);
+
+    /**
+     * The longest prefix of chunk that is at most maxBytes in UTF-8, for cutting output at a
+     * byte cap. Never splits a character, surrogate pairs included.
+     */
+    static String utf8Prefix(String chunk, long maxBytes) {
+        if (maxBytes <= 0) return "";
+        // Worst case is 3 bytes per char (4 per surrogate pair); anything shorter fits as is
+        if (chunk.length() * 3L <= maxBytes) return chunk;
+
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer in = CharBuffer.wrap(chunk);
+        // Stops at the last character that fits whole
+        encoder.encode(in, ByteBuffer.allocate((int) maxBytes), true);
+        return chunk.substring(0, in.position());
+    }
+}
@@ -0,0 +1,159 @@
+package com.vylop.backend.service.execution;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Turns an editor run into an ExecutionRequest: environment secrets are injected per
+ * language, unrelated workspace files are dropped and Java gets a `prog` delegator so any
+ * public class name works.
+ *
+ * Everything that depends only on the language (patterns, which files belong to it, how
+ * secrets are injected) is resolved once into a static table, so preparing a run is one
+ * lookup plus a single pass over the workspace. Stateless and safe to share.
+ */
+public final class ProgramPreparer {
+
+    private static final Pattern PUBLIC_CLASS = Pattern.compile("public\\s+class\\s+([a-zA-Z0-9_]+)");
+    private static final Pattern ANY_CLASS = Pattern.compile("class\\s+([a-zA-Z0-9_]+)");
+    private static final Pattern CLASS_BODY_OPEN = Pattern.compile("class\\s+[a-zA-Z0-9_]+\\s*\\{");
+
+    /** How one language gets environment secrets: prepended to the code or as an extra source file. */
+    private enum Injection { PREPEND, EXTRA_FILE, JAVA_STATIC_BLOCK, NONE }
+
+    private record Language(Predicate<String> ownsFile, Injection injection, String prologue,
+                            String assignmentStart, String assignmentMiddle, String assignmentEnd,
+                            char quote, String epilogue, String injectorFile) {
+    }
+
+    private static final Language JAVA = new Language(name -> name.endsWith(".java"), Injection.JAVA_STATIC_BLOCK,
+            "static { ", "System.setProperty(\"", "\", \"", "\"); ", '"', "} ", null);
+    private static final Language PYTHON = new Language(name -> name.endsWith(".py"), Injection.PREPEND,
+            "import os\n", "os.environ['", "'] = '", "'\n", '\'', "", null);
+    private static final Language JAVASCRIPT = new Language(name -> name.endsWith(".js"), Injection.PREPEND,
+            "", "process.env['", "'] = '", "';\n", '\'', "", null);
+    private static final Language TYPESCRIPT = new Language(name -> name.endsWith(".ts"), Injection.PREPEND,
+            "", "process.env['", "'] = '", "';\n", '\'', "", null);
+    private static final Language GO = new Language(name -> name.endsWith(".go"), Injection.EXTRA_FILE,
+            "package main\nimport \"os\"\nfunc init() {\n", "    os.Setenv(\"", "\", \"", "\")\n", '"', "}\n",
+            "vylop_env_injector.go");
+    private static final Language CPP = new Language(
+            name -> name.endsWith(".cpp") || name.endsWith(".c") || name.endsWith(".h") || name.endsWith(".hpp"),
+            Injection.EXTRA_FILE,
+            "#include <stdlib.h>\n__attribute__((constructor)) static void _vylop_set_env() {\n",
+            "    setenv(\"", "\", \"", "\", 1);\n", '"', "}\n", "vylop_env_injector.cpp");
+    private static final Language C = new Language(name -> true, Injection.EXTRA_FILE,
+            CPP.prologue(), CPP.assignmentStart(), CPP.assignmentMiddle(), CPP.assignmentEnd(), '"', CPP.epilogue(),
+            "vylop_env_injector.c");
+    private static final Language RUST = new Language(name -> name.endsWith(".rs"), Injection.NONE,
+            "", "", "", "", '"', "", null);
+    private static final Language OTHER = new Language(name -> true, Injection.NONE, "", "", "", "", '"', "", null);
+
+    private static final Map<String, Language> LANGUAGES = Map.of(
+            "java", JAVA,
+            "python", PYTHON,
+            "javascript", JAVASCRIPT,
+            "typescript", TYPESCRIPT,
+            "go", GO,
+            "cpp", CPP,
+            "c++", CPP,
+            "c", C,
+            "rust", RUST
+    );
+
+    public ExecutionRequest prepare(String language, String code, String input, String mainFileName,
+                                    Map<String, String> files, Map<String, String> envVars) {
+        Language spec = LANGUAGES.getOrDefault(language.toLowerCase(Locale.ROOT), OTHER);
+        boolean hasEnv = envVars != null && !envVars.isEmpty();
+        List<SourceFile> extraFiles = new ArrayList<>((files != null ? files.size() : 0) + 2);
+
+        if (hasEnv) {
+            // --- Universal Fallback - Create a physical .env file in the sandbox ---
+            StringBuilder dotenv = new StringBuilder(envLength(envVars));
+            for (Map.Entry<String, String> env : envVars.entrySet()) {
+                dotenv.append(env.getKey()).append('=').append(env.getValue()).append('\n');
+            }
+            extraFiles.add(new SourceFile(".env", dotenv.toString()));
+
+            // --- Seamless Dynamic Environment Injection ---
+            switch (spec.injection()) {
+                case PREPEND -> code = injection(spec, envVars, code.length()).append(code).toString();
+                case EXTRA_FILE -> extraFiles.add(new SourceFile(spec.injectorFile(), injection(spec, envVars, 0).toString()));
+                case JAVA_STATIC_BLOCK, NONE -> { }
+            }
+        }
+
+        // Filter out workspace pollution
+        if (files != null) {
+            for (Map.Entry<String, String> entry : files.entrySet()) {
+                String name = entry.getKey();
+                if (name != null && !name.equals(mainFileName) && spec.ownsFile().test(name.toLowerCase(Locale.ROOT))) {
+                    extraFiles.add(new SourceFile(name, entry.getValue()));
+                }
+            }
+        }
+
+        if (spec != JAVA) {
+            return new ExecutionRequest(language, code, extraFiles, input);
+        }
+
+        // Java: the user's class under its own name, run through a fixed `prog` delegator
+        String className = javaClassName(code);
+        if (hasEnv) {
+            Matcher open = CLASS_BODY_OPEN.matcher(code);
+            if (open.find()) {
+                StringBuilder injected = new StringBuilder(code.length() + envLength(envVars) * 2 + 64)
+                        .append(code, 0, open.end())
+                        .append(' ')
+                        .append(injection(spec, envVars, 0))
+                        .append(code, open.end(), code.length());
+                code = injected.toString();
+            }
+        }
+        extraFiles.add(new SourceFile(className + ".java", code));
+        String delegator = "public class prog { public static void main(String[] args) throws Exception { "
+                + className + ".main(args); } }";
+        return new ExecutionRequest(language, delegator, extraFiles, input);
+    }
+
+    /** The public class the user wrote, else the first class, else Main. */
+    static String javaClassName(String code) {
+        Matcher matcher = PUBLIC_CLASS.matcher(code);
+        if (matcher.find()) return matcher.group(1);
+        matcher = ANY_CLASS.matcher(code);
+        return matcher.find() ? matcher.group(1) : "Main";
+    }
+
+    /** The language's secret assignments in one builder, with `extra` spare capacity for what follows. */
+    private static StringBuilder injection(Language spec, Map<String, String> envVars, int extra) {
+        StringBuilder out = new StringBuilder(spec.prologue().length() + envLength(envVars) * 2 + 32 * envVars.size() + extra);
+        out.append(spec.prologue());
+        for (Map.Entry<String, String> env : envVars.entrySet()) {
+            out.append(spec.assignmentStart()).append(env.getKey()).append(spec.assignmentMiddle());
+            appendEscaped(out, env.getValue(), spec.quote());
+            out.append(spec.assignmentEnd());
+        }
+        return out.append(spec.epilogue());
+    }
+
+    private static void appendEscaped(StringBuilder out, String value, char quote) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == quote) out.append('\\');
+            out.append(c);
+        }
+    }
+
+    private static int envLength(Map<String, String> envVars) {
+        int length = 0;
+        for (Map.Entry<String, String> env : envVars.entrySet()) {
+            length += env.getKey().length() + env.getValue().length() + 2;
+        }
+        return length;
+    }
+}
@@ -0,0 +1,5 @@
+package com.vylop.backend.service.execution;
+
+/** One source file sent along with the main program, named relative to the sandbox root. */
+public record SourceFile(String name, String code) {
+}
@@ -0,0 +1,240 @@
+package com.vylop.backend.service.execution;
+
+import org.springframework.boot.json.JsonParser;
+import org.springframework.boot.json.JsonParserFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.RestTemplate;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.core.ObjectWriteContext;
+import tools.jackson.core.StreamWriteFeature;
+import tools.jackson.core.json.JsonFactory;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs programs on the public Wandbox sandbox (https://wandbox.org).
+ * Compiler names come from CompilerCatalog, which keeps list.json off the request path.
+ */
+public class WandboxExecutionEngine implements ExecutionEngine {
+
+    private static final String WANDBOX_API_URL = "https://wandbox.org/api/compile.json";
+    private static final String WANDBOX_STREAM_URL = "https://wandbox.org/api/compile.ndjson";
+    private static final String WANDBOX_LIST_URL = "https://wandbox.org/api/list.json";
+
+    private static final String BROWSER_USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36";
+
+    // The HTTP client owns the request stream; the generator must not close it
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .build();
+
+    private final RestTemplate restTemplate;
+    private final JsonParser springJsonParser;
+
+    private final CompilerCatalog compilerCatalog;
+
+    public WandboxExecutionEngine() {
+        this(5_000, 60_000, TimeUnit.HOURS.toMillis(6), TimeUnit.MINUTES.toMillis(1));
+    }
+
+    /**
+     * Uses the JDK HttpClient, which keeps connections to Wandbox alive across runs; without
+     * timeouts a hung Wandbox would hold a run (and its queue slot) forever.
+     */
+    public WandboxExecutionEngine(long connectTimeoutMs, long readTimeoutMs, long catalogRefreshMs, long catalogRetryMs) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+
+        this.restTemplate = new RestTemplate(requestFactory);
+        this.springJsonParser = JsonParserFactory.getJsonParser();
+        this.compilerCatalog = new CompilerCatalog(restTemplate, WANDBOX_LIST_URL, BROWSER_USER_AGENT, catalogRefreshMs, catalogRetryMs);
+    }
+
+    /** Stops the compiler catalog's background refresh. */
+    public void close() {
+        compilerCatalog.close();
+    }
+
+    @Override
+    public boolean supports(String language) {
+        return wandboxLanguage(language) != null;
+    }
+
+    @Override
+    public ExecutionResult execute(ExecutionRequest request) {
+        String response = restTemplate.execute(WANDBOX_API_URL, HttpMethod.POST, requestCallback(request), httpResponse ->
+                httpResponse.getStatusCode() == HttpStatus.OK
+                        ? StreamUtils.copyToString(httpResponse.getBody(), StandardCharsets.UTF_8)
+                        : null);
+
+        if (response != null && !response.isEmpty()) {
+            Map<String, Object> body = springJsonParser.parseMap(response);
+
+            String status = String.valueOf(body.getOrDefault("status", "1"));
+            String programMessage = body.containsKey("program_message") ? (String) body.get("program_message") : "";
+            String compilerMessage = body.containsKey("compiler_message") ? (String) body.get("compiler_message") : "";
+            String compilerError = body.containsKey("compiler_error") ? (String) body.get("compiler_error") : "";
+            boolean signalled = body.get("signal") instanceof String signal && !signal.isEmpty();
+
+            int exitCode = exitCode(status);
+            return new ExecutionResult(exitCode, compilerMessage, programMessage,
+                    compileFailed(exitCode, signalled, programMessage, compilerError));
+        }
+
+        return null;
+    }
+
+    /**
+     * Uses Wandbox's NDJSON endpoint, which sends one {"type", "data"} object per line as the
+     * program writes: CompilerMessageS/E, StdOut, StdErr, then ExitCode or Signal. Reading
+     * line by line keeps memory flat and lets TCP push back on Wandbox when the listener lags.
+     */
+    @Override
+    public ExecutionResult execute(ExecutionRequest request, OutputListener listener) {
+        ResponseExtractor<ExecutionResult> extractor = response -> {
+            if (response.getStatusCode() != HttpStatus.OK) return null;
+
+            StringBuilder compilerMessage = new StringBuilder();
+            StringBuilder compilerError = new StringBuilder();
+            StringBuilder programMessage = new StringBuilder();
+            int status = 1;
+            boolean signalled = false;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(response.getBody(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) continue;
+                    Map<String, Object> event = springJsonParser.parseMap(line);
+                    String data = String.valueOf(event.getOrDefault("data", ""));
+                    switch (String.valueOf(event.get("type"))) {
+                        case "CompilerMessageS" -> {
+                            compilerMessage.append(data);
+                            listener.onOutput(OutputListener.COMPILER, data);
+                        }
+                        case "CompilerMessageE" -> {
+                            compilerMessage.append(data);
+                            compilerError.append(data);
+                            listener.onOutput(OutputListener.COMPILER, data);
+                        }
+                        case "StdOut" -> {
+                            programMessage.append(data);
+                            listener.onOutput(OutputListener.STDOUT, data);
+                        }
+                        case "StdErr" -> {
+                            programMessage.append(data);
+                            listener.onOutput(OutputListener.STDERR, data);
+                        }
+                        case "ExitCode" -> status = exitCode(data);
+                        case "Signal" -> {
+                            status = 1;
+                            signalled = true;
+                        }
+                        default -> {
+                            // Control: Start / Finish
+                        }
+                    }
+                }
+            }
+            return new ExecutionResult(status, compilerMessage.toString(), programMessage.toString(),
+                    compileFailed(status, signalled, programMessage, compilerError));
+        };
+        return restTemplate.execute(WANDBOX_STREAM_URL, HttpMethod.POST, requestCallback(request), extractor);
+    }
+
+    /**
+     * Wandbox has no compile-failed field: a run that failed without a signal, produced no
+     * program output and left compiler errors is taken as one. Warnings alone (a compiler_error
+     * next to program output, or a zero status) are not.
+     */
+    private static boolean compileFailed(int status, boolean signalled, CharSequence programMessage, CharSequence compilerError) {
+        return status != 0 && !signalled && programMessage.isEmpty() && !compilerError.isEmpty();
+    }
+
+    /**
+     * Sets the headers and writes compile.json's body token by token straight into the
+     * request stream, without building a map or a String of the whole workspace first.
+     */
+    private RequestCallback requestCallback(ExecutionRequest request) {
+        String compiler = getDynamicCompilerName(request.language());
+        return httpRequest -> {
+            HttpHeaders headers = httpRequest.getHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            headers.set(HttpHeaders.USER_AGENT, BROWSER_USER_AGENT);
+            if (httpRequest instanceof StreamingHttpOutputMessage streaming) {
+                streaming.setBody(body -> writeRequestBody(body, compiler, request));
+            } else {
+                writeRequestBody(httpRequest.getBody(), compiler, request);
+            }
+        };
+    }
+
+    private static void writeRequestBody(OutputStream body, String compiler, ExecutionRequest request) {
+        try (JsonGenerator json = JSON_FACTORY.createGenerator(ObjectWriteContext.empty(), body)) {
+            json.writeStartObject();
+            json.writeStringProperty("compiler", compiler);
+            json.writeStringProperty("code", request.code());
+            if (request.stdin() != null && !request.stdin().isEmpty()) {
+                json.writeStringProperty("stdin", request.stdin());
+            }
+            if (!request.files().isEmpty()) {
+                json.writeName("codes");
+                json.writeStartArray();
+                for (SourceFile file : request.files()) {
+                    json.writeStartObject();
+                    json.writeStringProperty("file", file.name());
+                    json.writeStringProperty("code", file.code());
+                    json.writeEndObject();
+                }
+                json.writeEndArray();
+            }
+            json.writeEndObject();
+        }
+    }
+
+    private static int exitCode(String status) {
+        try {
+            return Integer.parseInt(status);
+        } catch (NumberFormatException e) {
+            // Killed by a signal: Wandbox reports the signal name instead of a code
+            return 1;
+        }
+    }
+
+    private static String wandboxLanguage(String frontendLang) {
+        if (frontendLang == null) return null;
+        switch (frontendLang.toLowerCase()) {
+            case "java": return "Java";
+            case "python": return "Python";
+            case "cpp":
+            case "c++": return "C++";
+            case "javascript": return "JavaScript";
+            case "typescript": return "TypeScript";
+            case "go": return "Go";
+            case "rust": return "Rust";
+            default: return null;
+        }
+    }
+
+    private String getDynamicCompilerName(String frontendLang) {
+        String wandboxLang = wandboxLanguage(frontendLang);
+        return wandboxLang == null ? null : compilerCatalog.compilerFor(wandboxLang);
+    }
+}
@@ -0,0 +1,45 @@
+package com.vylop.backend.service.ratelimit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Limits code runs per user and per room.
+ *
+ * Each user (or anonymous client IP) gets a small burst refilled at a steady rate, so a few
+ * quick re-runs go through but a loop of requests does not. The room bucket is larger and
+ * caps what a whole room can queue together, however many users it has.
+ */
+@Service
+public class ExecutionRateLimiter {
+
+    private final RateLimiter limiter;
+    private final RateLimitPolicy userPolicy;
+    private final RateLimitPolicy roomPolicy;
+
+    public ExecutionRateLimiter(RateLimiter limiter,
+                                @Value("${vylop.ratelimit.user.capacity:3}") int userCapacity,
+                                @Value("${vylop.ratelimit.user.refill-per-minute:20}") double userRefillPerMinute,
+                                @Value("${vylop.ratelimit.room.capacity:10}") int roomCapacity,
+                                @Value("${vylop.ratelimit.room.refill-per-minute:60}") double roomRefillPerMinute) {
+        this.limiter = limiter;
+        this.userPolicy = new RateLimitPolicy("user", userCapacity, userRefillPerMinute / 60);
+        this.roomPolicy = new RateLimitPolicy("room", roomCapacity, roomRefillPerMinute / 60);
+    }
+
+    /**
+     * Takes one run from the user's bucket and, if given, the room's. A run the room refuses
+     * does not count against the user.
+     *
+     * @param roomId null for runs outside a room
+     * @return 0 if the run may go ahead, otherwise milliseconds until it may be retried
+     */
+    public long tryAcquire(String user, String roomId) {
+        long wait = limiter.tryAcquire(userPolicy, user);
+        if (wait > 0 || roomId == null) return wait;
+
+        wait = limiter.tryAcquire(roomPolicy, roomId);
+        if (wait > 0) limiter.release(userPolicy, user);
+        return wait;
+    }
+}
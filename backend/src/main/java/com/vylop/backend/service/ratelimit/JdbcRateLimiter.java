@@ -0,0 +1,100 @@
+package com.vylop.backend.service.ratelimit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token buckets in Postgres (rate_limit_buckets), so every node enforces the same limit.
+ *
+ * Same model as LocalRateLimiter: a bucket is the instant it will be full again. Taking a
+ * token is one UPSERT that only updates when the bucket has room, so concurrent nodes never
+ * over-grant and no row lock is held beyond the statement. Time comes from the database, so
+ * node clocks do not have to agree. Full buckets are deleted in the background.
+ *
+ * If the database cannot be reached, requests are limited by the node-local fallback instead
+ * of failing or going unlimited.
+ */
+public class JdbcRateLimiter implements RateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(JdbcRateLimiter.class);
+
+    // A new bucket starts full, so its first request leaves it one interval from full
+    private static final String TAKE = """
+            INSERT INTO rate_limit_buckets (bucket_key, arrival)
+            VALUES (?, now() + make_interval(secs => ?))
+            ON CONFLICT (bucket_key) DO UPDATE
+            SET arrival = GREATEST(rate_limit_buckets.arrival, now()) + make_interval(secs => ?)
+            WHERE GREATEST(rate_limit_buckets.arrival, now()) + make_interval(secs => ?) <= now() + make_interval(secs => ?)
+            RETURNING 1
+            """;
+
+    private static final String RETRY_AFTER_MS = """
+            SELECT CEIL(EXTRACT(EPOCH FROM (GREATEST(arrival, now()) + make_interval(secs => ?)
+                   - now() - make_interval(secs => ?))) * 1000)
+            FROM rate_limit_buckets WHERE bucket_key = ?
+            """;
+
+    private static final String GIVE_BACK =
+            "UPDATE rate_limit_buckets SET arrival = arrival - make_interval(secs => ?) WHERE bucket_key = ?";
+
+    private static final String PURGE_FULL = "DELETE FROM rate_limit_buckets WHERE arrival < now()";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RateLimiter fallback;
+    private final ScheduledExecutorService cleaner = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("rate-limit-cleanup").daemon().factory());
+
+    public JdbcRateLimiter(JdbcTemplate jdbcTemplate, RateLimiter fallback, long cleanupIntervalMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.fallback = fallback;
+        cleaner.scheduleWithFixedDelay(this::purgeFull, cleanupIntervalMs, cleanupIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public long tryAcquire(RateLimitPolicy policy, String key) {
+        String bucketKey = policy.name() + ':' + key;
+        double interval = policy.intervalNanos() / 1e9;
+        double tolerance = policy.fullRefillNanos() / 1e9;
+        try {
+            List<Integer> taken = jdbcTemplate.queryForList(TAKE, Integer.class,
+                    bucketKey, interval, interval, interval, tolerance);
+            if (!taken.isEmpty()) return 0;
+
+            List<Long> wait = jdbcTemplate.queryForList(RETRY_AFTER_MS, Long.class, interval, tolerance, bucketKey);
+            return wait.isEmpty() || wait.getFirst() == null ? 1 : Math.max(1, wait.getFirst());
+        } catch (DataAccessException e) {
+            logger.warn("Shared rate limit store unavailable, limiting on this node only: {}", e.getMessage());
+            return fallback.tryAcquire(policy, key);
+        }
+    }
+
+    @Override
+    public void release(RateLimitPolicy policy, String key) {
+        try {
+            jdbcTemplate.update(GIVE_BACK, policy.intervalNanos() / 1e9, policy.name() + ':' + key);
+        } catch (DataAccessException e) {
+            logger.warn("Shared rate limit store unavailable, releasing on this node only: {}", e.getMessage());
+            fallback.release(policy, key);
+        }
+    }
+
+    public void close() {
+        cleaner.shutdownNow();
+    }
+
+    private void purgeFull() {
+        try {
+            int purged = jdbcTemplate.update(PURGE_FULL);
+            if (purged > 0) logger.debug("Purged {} full rate limit buckets", purged);
+        } catch (DataAccessException e) {
+            logger.warn("Could not purge rate limit buckets: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.vylop.backend.service.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory token buckets, one AtomicLong per key.
+ *
+ * Each bucket stores only its "theoretical arrival time" (GCRA): the instant at which the
+ * bucket would be full again. Taking a token moves it one refill interval forward; a request
+ * is refused when that would put it more than `capacity` intervals ahead of now. This is
+ * exactly a token bucket, but the whole state is one long, so acquiring is a single CAS and
+ * allocates nothing once the key exists.
+ *
+ * A bucket idle for longer than its full refill time is indistinguishable from a new one,
+ * so entries expire then; memory is bounded by the keys active within that window and by
+ * `maxKeys`.
+ */
+public class LocalRateLimiter implements RateLimiter {
+
+    private final Cache<String, Bucket> buckets;
+    private final LongSupplier clock;
+
+    public LocalRateLimiter(long maxKeys) {
+        this(maxKeys, System::nanoTime);
+    }
+
+    LocalRateLimiter(long maxKeys, LongSupplier clock) {
+        this.clock = clock;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfter(new IdleUntilFull())
+                .build();
+    }
+
+    @Override
+    public long tryAcquire(RateLimitPolicy policy, String key) {
+        Bucket bucket = buckets.get(policy.name() + ':' + key, ignored -> new Bucket(policy, clock.getAsLong()));
+        long interval = policy.intervalNanos();
+        long tolerance = policy.fullRefillNanos();
+
+        while (true) {
+            long now = clock.getAsLong();
+            long arrival = bucket.arrival.get();
+            long next = Math.max(arrival, now) + interval;
+            if (next - now > tolerance) {
+                // Wait until enough of the backlog has drained for one more token
+                return Math.max(1, (next - now - tolerance + 999_999) / 1_000_000);
+            }
+            if (bucket.arrival.compareAndSet(arrival, next)) {
+                return 0;
+            }
+        }
+    }
+
+    @Override
+    public void release(RateLimitPolicy policy, String key) {
+        Bucket bucket = buckets.getIfPresent(policy.name() + ':' + key);
+        // An arrival in the past already reads as a full bucket, so this cannot over-grant
+        if (bucket != null) bucket.arrival.addAndGet(-policy.intervalNanos());
+    }
+
+    /** Keys currently held, for tests and benchmarks. */
+    long size() {
+        buckets.cleanUp();
+        return buckets.estimatedSize();
+    }
+
+    private static final class Bucket {
+        private final AtomicLong arrival;
+        private final long idleNanos;
+
+        Bucket(RateLimitPolicy policy, long now) {
+            this.arrival = new AtomicLong(now);
+            this.idleNanos = policy.fullRefillNanos();
+        }
+    }
+
+    private static final class IdleUntilFull implements Expiry<String, Bucket> {
+
+        @Override
+        public long expireAfterCreate(String key, Bucket bucket, long currentTime) {
+            return bucket.idleNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Bucket bucket, long currentTime, long currentDuration) {
+            return bucket.idleNanos;
+        }
+
+        @Override
+        public long expireAfterRead(String key, Bucket bucket, long currentTime, long currentDuration) {
+            return bucket.idleNanos;
+        }
+    }
+}
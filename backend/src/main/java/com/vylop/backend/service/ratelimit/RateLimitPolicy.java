@@ -0,0 +1,24 @@
+package com.vylop.backend.service.ratelimit;
+
+/**
+ * A token bucket: up to `capacity` requests in a burst, refilled at `refillPerSecond`.
+ * `name` prefixes bucket keys, so one key can be limited by several policies independently.
+ */
+public record RateLimitPolicy(String name, int capacity, double refillPerSecond) {
+
+    public RateLimitPolicy {
+        if (capacity < 1 || refillPerSecond <= 0) {
+            throw new IllegalArgumentException("Rate limit " + name + " needs capacity >= 1 and a positive refill rate");
+        }
+    }
+
+    /** Nanoseconds to earn one token. */
+    long intervalNanos() {
+        return (long) (1_000_000_000L / refillPerSecond);
+    }
+
+    /** Time for an empty bucket to refill completely; an idle bucket older than this is full. */
+    long fullRefillNanos() {
+        return intervalNanos() * capacity;
+    }
+}
@@ -0,0 +1,14 @@
+package com.vylop.backend.service.ratelimit;
+
+/**
+ * Takes one token from the bucket for (policy, key). Implementations must be safe to call
+ * from many threads at once.
+ */
+public interface RateLimiter {
+
+    /** @return 0 if a token was taken, otherwise milliseconds until one will be available */
+    long tryAcquire(RateLimitPolicy policy, String key);
+
+    /** Gives back a token taken by tryAcquire, for a request that was refused further on. */
+    void release(RateLimitPolicy policy, String key);
+}
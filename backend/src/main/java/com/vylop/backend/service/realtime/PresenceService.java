@@ -0,0 +1,152 @@
+package com.vylop.backend.service.realtime;
+
+import com.vylop.backend.model.CursorMessage;
+import com.vylop.backend.model.PresenceMessage;
+import com.vylop.backend.model.RoomParticipant;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cursor and typing presence with latest-value-wins semantics.
+ * Inbound events only overwrite the user's slot; a fixed-rate tick broadcasts whatever
+ * changed since the last tick, so presence traffic per room is capped at
+ * vylop.presence.broadcast-hz no matter how fast people move their cursors.
+ * Only participants listed in the room get a slot, and slots of users who have left are
+ * dropped on the next tick, so made-up usernames are never stored or broadcast.
+ */
+@Service
+public class PresenceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PresenceService.class);
+
+    private final RoomMessenger messenger;
+    private final RoomParticipantRegistry participants;
+    private final ScheduledExecutorService relayScheduler;
+    private final long tickMs;
+
+    private final Map<String, Map<String, PresenceEntry>> rooms = new ConcurrentHashMap<>();
+    private final Set<String> dirtyRooms = ConcurrentHashMap.newKeySet();
+
+    public PresenceService(RoomMessenger messenger,
+                           RoomParticipantRegistry participants,
+                           ScheduledExecutorService relayScheduler,
+                           @Value("${vylop.presence.broadcast-hz:20}") int broadcastHz) {
+        this.messenger = messenger;
+        this.participants = participants;
+        this.relayScheduler = relayScheduler;
+        this.tickMs = Math.max(1, 1000 / Math.max(1, broadcastHz));
+    }
+
+    @PostConstruct
+    void startTicker() {
+        relayScheduler.scheduleAtFixedRate(this::broadcastChanges, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void updateCursor(String roomId, CursorMessage cursor) {
+        if (cursor.getUsername() == null) return;
+        PresenceEntry entry = entryFor(roomId, cursor.getUsername());
+        if (entry == null) return;
+        synchronized (entry) {
+            entry.position = ((long) cursor.getLineNumber() << 32) | (cursor.getColumn() & 0xFFFFFFFFL);
+            entry.fileName = cursor.getFileName();
+            entry.cursorDirty = true;
+        }
+        dirtyRooms.add(roomId);
+    }
+
+    public void updateTyping(String roomId, String username, boolean typing) {
+        if (username == null) return;
+        PresenceEntry entry = entryFor(roomId, username);
+        if (entry == null) return;
+        synchronized (entry) {
+            if (entry.typing == typing && !entry.typingDirty) return;
+            entry.typing = typing;
+            entry.typingDirty = true;
+        }
+        dirtyRooms.add(roomId);
+    }
+
+    public void removeUser(String roomId, String username) {
+        rooms.computeIfPresent(roomId, (k, users) -> {
+            users.remove(username);
+            return users.isEmpty() ? null : users;
+        });
+    }
+
+    /** The user's slot, or null when the user is not a participant of the room. */
+    private PresenceEntry entryFor(String roomId, String username) {
+        Map<String, RoomParticipant> listed = participants.usersIn(roomId);
+        if (listed == null || !listed.containsKey(username)) return null;
+        return rooms.computeIfAbsent(roomId, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(username, k -> new PresenceEntry());
+    }
+
+    private void broadcastChanges() {
+        Iterator<String> it = dirtyRooms.iterator();
+        while (it.hasNext()) {
+            String roomId = it.next();
+            // Removed before reading, so an update racing with this tick re-marks the room
+            it.remove();
+            Map<String, PresenceEntry> users = rooms.get(roomId);
+            if (users == null) continue;
+            dropDeparted(roomId, users);
+            try {
+                broadcastRoom(roomId, users);
+            } catch (RuntimeException e) {
+                // An escaping exception would cancel the fixed-rate ticker for every room
+                logger.warn("Presence broadcast failed for Room {}: {}", roomId, e.getMessage());
+            }
+        }
+    }
+
+    /** Removes slots of users no longer listed in the room, e.g. after a leave on another path. */
+    private void dropDeparted(String roomId, Map<String, PresenceEntry> users) {
+        Map<String, RoomParticipant> listed = participants.usersIn(roomId);
+        users.keySet().removeIf(username -> listed == null || !listed.containsKey(username));
+        rooms.computeIfPresent(roomId, (k, remaining) -> remaining.isEmpty() ? null : remaining);
+    }
+
+    private void broadcastRoom(String roomId, Map<String, PresenceEntry> users) {
+        List<CursorMessage> cursors = new ArrayList<>();
+        List<Map<String, String>> typing = new ArrayList<>();
+
+        for (Map.Entry<String, PresenceEntry> user : users.entrySet()) {
+            PresenceEntry entry = user.getValue();
+            synchronized (entry) {
+                if (entry.cursorDirty) {
+                    cursors.add(new CursorMessage(user.getKey(), (int) (entry.position >>> 32),
+                            (int) entry.position, entry.fileName));
+                    entry.cursorDirty = false;
+                }
+                if (entry.typingDirty) {
+                    typing.add(Map.of("username", user.getKey(), "isTyping", String.valueOf(entry.typing)));
+                    entry.typingDirty = false;
+                }
+            }
+        }
+
+        if (!cursors.isEmpty() || !typing.isEmpty()) {
+            messenger.send(roomId, "/topic/presence/" + roomId, new PresenceMessage(cursors, typing));
+        }
+    }
+
+    private static final class PresenceEntry {
+        private long position; // lineNumber in the high 32 bits, column in the low 32 bits
+        private String fileName;
+        private boolean typing;
+        private boolean cursorDirty;
+        private boolean typingDirty;
+    }
+}
@@ -0,0 +1,70 @@
+package com.vylop.backend.service.realtime;
+
+import com.vylop.backend.model.CodeMessage;
+import com.vylop.backend.model.RoomBatchMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Collects a room's outbound code events for a short window and fans them out, in order,
+ * as one frame on /topic/batch/{roomId}. Cursor and typing presence is rate-capped
+ * separately by PresenceService.
+ */
+@Service
+public class RoomBroadcastBatcher {
+
+    private final RoomMessenger messenger;
+    private final ScheduledExecutorService relayScheduler;
+    private final long windowMs;
+
+    private final Map<String, PendingBatch> pending = new ConcurrentHashMap<>();
+
+    public RoomBroadcastBatcher(RoomMessenger messenger,
+                                ScheduledExecutorService relayScheduler,
+                                @Value("${vylop.relay.batch-window-ms:5}") long windowMs) {
+        this.messenger = messenger;
+        this.relayScheduler = relayScheduler;
+        this.windowMs = windowMs;
+    }
+
+    public void enqueueCode(String roomId, CodeMessage message) {
+        enqueue(roomId, batch -> batch.code.add(message));
+    }
+
+    private void enqueue(String roomId, Consumer<PendingBatch> mutation) {
+        boolean[] opened = { false };
+        // compute() keeps the mutation atomic with respect to flush() removing the batch
+        pending.compute(roomId, (k, batch) -> {
+            if (batch == null) {
+                batch = new PendingBatch();
+                opened[0] = true;
+            }
+            mutation.accept(batch);
+            return batch;
+        });
+
+        // The first event of a window arms the flush timer; later ones just ride along
+        if (opened[0]) {
+            relayScheduler.schedule(() -> flush(roomId), windowMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush(String roomId) {
+        PendingBatch batch = pending.remove(roomId);
+        if (batch == null) return;
+
+        messenger.send(roomId, "/topic/batch/" + roomId, new RoomBatchMessage(batch.code));
+    }
+
+    private static final class PendingBatch {
+        private final List<CodeMessage> code = new ArrayList<>();
+    }
+}
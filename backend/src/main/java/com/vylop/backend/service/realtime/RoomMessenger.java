@@ -0,0 +1,80 @@
+package com.vylop.backend.service.realtime;
+
+import com.vylop.backend.service.cluster.ClusterCoordinator;
+import com.vylop.backend.service.cluster.ClusterEvent;
+import jakarta.annotation.PostConstruct;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Sends room traffic to /topic subscribers. Delivery to this node's clients goes straight
+ * to the local broker; the backplane is only involved while another node holds the room,
+ * in which case the JSON payload is forwarded once and re-delivered there.
+ */
+@Service
+public class RoomMessenger {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ClusterCoordinator coordinator;
+    private final JsonMapper jsonMapper;
+
+    // destination prefix -> handler that takes over delivery of matching remote messages
+    private final Map<String, Consumer<ClusterEvent>> remoteInterceptors = new ConcurrentHashMap<>();
+
+    public RoomMessenger(SimpMessagingTemplate messagingTemplate, ClusterCoordinator coordinator, JsonMapper jsonMapper) {
+        this.messagingTemplate = messagingTemplate;
+        this.coordinator = coordinator;
+        this.jsonMapper = jsonMapper;
+    }
+
+    @PostConstruct
+    void listen() {
+        coordinator.on(ClusterEvent.Type.STOMP, this::deliverRemote);
+    }
+
+    public void send(String roomId, String destination, Object payload) {
+        messagingTemplate.convertAndSend(destination, payload);
+        if (coordinator.isShared(roomId)) {
+            coordinator.publishToRoom(ClusterEvent.Type.STOMP, roomId, destination, jsonMapper.writeValueAsBytes(payload));
+        }
+    }
+
+    /** Sends to one other node only; its clients receive it as if it had been published locally there. */
+    public void sendTo(String node, String roomId, String destination, Object payload) {
+        coordinator.publishTo(node, ClusterEvent.Type.STOMP, roomId, destination, jsonMapper.writeValueAsBytes(payload));
+    }
+
+    /** Sends to this node's subscribers only. */
+    public void sendLocal(String destination, Object payload) {
+        messagingTemplate.convertAndSend(destination, payload);
+    }
+
+    /** Routes remote messages for matching destinations to the handler instead of straight to local clients. */
+    public void interceptRemote(String destinationPrefix, Consumer<ClusterEvent> handler) {
+        remoteInterceptors.put(destinationPrefix, handler);
+    }
+
+    private void deliverRemote(ClusterEvent event) {
+        if (event.getDestination() == null || !coordinator.holdsRoom(event.getRoomId())) return;
+
+        for (Map.Entry<String, Consumer<ClusterEvent>> interceptor : remoteInterceptors.entrySet()) {
+            if (event.getDestination().startsWith(interceptor.getKey())) {
+                interceptor.getValue().accept(event);
+                return;
+            }
+        }
+
+        // Already JSON — hand the bytes to the broker as-is rather than round-tripping through a DTO
+        messagingTemplate.send(event.getDestination(), MessageBuilder.withPayload(event.getPayload())
+                .setHeader(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON)
+                .build());
+    }
+}
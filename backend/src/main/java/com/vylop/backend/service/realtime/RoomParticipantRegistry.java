@@ -0,0 +1,190 @@
+package com.vylop.backend.service.realtime;
+
+import com.vylop.backend.model.ParticipantRole;
+import com.vylop.backend.model.RoomParticipant;
+import com.vylop.backend.model.UserMessage;
+import com.vylop.backend.service.cluster.ClusterCoordinator;
+import com.vylop.backend.service.cluster.ClusterEvent;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Who is in each room and with which role.
+ *
+ * On a single node this is just the map EditorController used to keep. When a room spans
+ * nodes, every /topic/users broadcast doubles as replication: the receiving node merges the
+ * list into its own copy (explicit LEAVE/KICK remove the subject) and re-broadcasts the merged
+ * view to its clients. A node that takes its first participant for a room already held
+ * elsewhere asks for the current list first, so the newcomer is not mistaken for the host;
+ * the join completes when the list arrives, without holding the STOMP inbound thread.
+ */
+@Service
+public class RoomParticipantRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoomParticipantRegistry.class);
+
+    private static final String USERS_TOPIC = "/topic/users/";
+    private static final long REMOTE_SYNC_WAIT_MS = 500;
+
+    private final ClusterCoordinator coordinator;
+    private final RoomMessenger messenger;
+    private final JsonMapper jsonMapper;
+    private final ScheduledExecutorService relayScheduler;
+
+    private final Map<String, Map<String, RoomParticipant>> rooms = new ConcurrentHashMap<>();
+    // Participants connected to this node — the ones that keep the room retained here
+    private final Map<String, Set<String>> localUsers = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Void>> pendingSyncs = new ConcurrentHashMap<>();
+
+    public RoomParticipantRegistry(ClusterCoordinator coordinator, RoomMessenger messenger, JsonMapper jsonMapper,
+                                   ScheduledExecutorService relayScheduler) {
+        this.coordinator = coordinator;
+        this.messenger = messenger;
+        this.jsonMapper = jsonMapper;
+        this.relayScheduler = relayScheduler;
+    }
+
+    @PostConstruct
+    void listen() {
+        messenger.interceptRemote(USERS_TOPIC, this::mergeRemote);
+        coordinator.onRemoteJoin(this::sendParticipantsTo);
+        coordinator.on(ClusterEvent.Type.PARTICIPANTS_REQUEST,
+                event -> sendParticipantsTo(event.getRoomId(), event.getOriginNode()));
+    }
+
+    /**
+     * Registers a participant connected to this node and passes the room's participant map to
+     * `admit`, which decides the role and puts the participant in. While this node is still
+     * waiting for other nodes' list of the room, `admit` runs on the relay scheduler once that
+     * list arrives or REMOTE_SYNC_WAIT_MS passes, and only if the user has not left meanwhile.
+     */
+    public void enter(String roomId, String username, Consumer<Map<String, RoomParticipant>> admit) {
+        Set<String> local = localUsers.computeIfAbsent(roomId, k -> ConcurrentHashMap.newKeySet());
+        boolean firstHere = local.isEmpty();
+        if (local.add(username)) {
+            coordinator.retainRoom(roomId);
+            if (firstHere && coordinator.isShared(roomId)) {
+                requestRemoteParticipants(roomId);
+            }
+        }
+
+        CompletableFuture<Void> synced = pendingSyncs.get(roomId);
+        if (synced == null) {
+            admit.accept(rooms.computeIfAbsent(roomId, k -> new ConcurrentHashMap<>()));
+            return;
+        }
+        synced.thenRunAsync(() -> {
+            Set<String> stillHere = localUsers.get(roomId);
+            if (stillHere != null && stillHere.contains(username)) {
+                admit.accept(rooms.computeIfAbsent(roomId, k -> new ConcurrentHashMap<>()));
+            }
+        }, relayScheduler);
+    }
+
+    /** Un-registers a participant from this node, whether or not it is still listed in the room. */
+    public void exit(String roomId, String username) {
+        Set<String> local = localUsers.get(roomId);
+        if (local != null && local.remove(username)) {
+            localUsers.computeIfPresent(roomId, (k, users) -> users.isEmpty() ? null : users);
+            coordinator.releaseRoom(roomId);
+        }
+        rooms.computeIfPresent(roomId, (k, users) -> users.isEmpty() ? null : users);
+    }
+
+    public Map<String, RoomParticipant> usersIn(String roomId) {
+        return rooms.get(roomId);
+    }
+
+    /** Whether the user is in the room as HOST or EDITOR, i.e. may change its documents. */
+    public boolean canEdit(String roomId, String username) {
+        Map<String, RoomParticipant> users = username != null ? rooms.get(roomId) : null;
+        RoomParticipant participant = users != null ? users.get(username) : null;
+        return participant != null
+                && (participant.getRole() == ParticipantRole.HOST || participant.getRole() == ParticipantRole.EDITOR);
+    }
+
+    /** Broadcasts the room's participant list to every node holding the room. */
+    public void publish(String roomId, String subject, String type) {
+        Map<String, RoomParticipant> users = rooms.getOrDefault(roomId, Map.of());
+        messenger.send(roomId, USERS_TOPIC + roomId, new UserMessage(subject, new ArrayList<>(users.values()), type));
+    }
+
+    /** Asks the other nodes for the room's list; mergeRemote or the timeout completes the wait. */
+    private void requestRemoteParticipants(String roomId) {
+        CompletableFuture<Void> synced = new CompletableFuture<>();
+        if (pendingSyncs.putIfAbsent(roomId, synced) != null) return;
+
+        ScheduledFuture<?> timeout = relayScheduler.schedule(() -> {
+            if (synced.complete(null)) {
+                logger.debug("No participant list from other nodes for Room {} within {} ms", roomId, REMOTE_SYNC_WAIT_MS);
+            }
+        }, REMOTE_SYNC_WAIT_MS, TimeUnit.MILLISECONDS);
+        synced.whenComplete((ignored, error) -> {
+            timeout.cancel(false);
+            pendingSyncs.remove(roomId, synced);
+        });
+        coordinator.publishTo(null, ClusterEvent.Type.PARTICIPANTS_REQUEST, roomId, null, null);
+    }
+
+    private void sendParticipantsTo(String roomId, String node) {
+        Map<String, RoomParticipant> users = rooms.get(roomId);
+        if (users == null || users.isEmpty()) return;
+        messenger.sendTo(node, roomId, USERS_TOPIC + roomId, new UserMessage(null, new ArrayList<>(users.values()), "SYNC"));
+    }
+
+    private void mergeRemote(ClusterEvent event) {
+        String roomId = event.getRoomId();
+        UserMessage message = jsonMapper.readValue(event.getPayload(), UserMessage.class);
+        Map<String, RoomParticipant> users = rooms.computeIfAbsent(roomId, k -> new ConcurrentHashMap<>());
+
+        if ("LEAVE".equals(message.getType()) || "KICK".equals(message.getType())) {
+            users.remove(message.getUsername());
+        }
+        if (message.getUsers() != null) {
+            for (RoomParticipant remote : message.getUsers()) {
+                users.merge(remote.getUsername(), remote, (mine, theirs) -> {
+                    mine.setRole(theirs.getRole());
+                    return mine;
+                });
+            }
+        }
+        resolveHostConflict(roomId, users);
+
+        CompletableFuture<Void> synced = pendingSyncs.get(roomId);
+        if (synced != null) synced.complete(null);
+
+        messenger.sendLocal(USERS_TOPIC + roomId,
+                new UserMessage(message.getUsername(), new ArrayList<>(users.values()), message.getType()));
+    }
+
+    /**
+     * Two nodes can each crown a host for the same room during a membership change.
+     * Every node keeps the earliest joiner, so all copies converge on the same host.
+     */
+    private void resolveHostConflict(String roomId, Map<String, RoomParticipant> users) {
+        List<RoomParticipant> hosts = users.values().stream()
+                .filter(p -> p.getRole() == ParticipantRole.HOST)
+                .sorted(Comparator.comparingLong(RoomParticipant::getJoinedAt).thenComparing(RoomParticipant::getUsername))
+                .toList();
+        for (int i = 1; i < hosts.size(); i++) {
+            hosts.get(i).setRole(ParticipantRole.READ_ONLY);
+            logger.info("Resolved duplicate HOST in Room {}: kept {}, demoted {}",
+                    roomId, hosts.get(0).getUsername(), hosts.get(i).getUsername());
+        }
+    }
+}
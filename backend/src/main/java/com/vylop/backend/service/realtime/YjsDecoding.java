@@ -0,0 +1,254 @@
+package com.vylop.backend.service.realtime;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal reader for the Yjs v1 update encoding (lib0 varints).
+ * It walks the struct and delete-set sections only far enough to learn clock ranges;
+ * item contents are skipped, never materialized.
+ */
+public final class YjsDecoding {
+
+    private static final int BITS5 = 0x1F;
+    private static final int BIT6 = 0x20;
+    private static final int BIT7 = 0x40;
+    private static final int BIT8 = 0x80;
+
+    private static final int STRUCT_GC = 0;
+    private static final int STRUCT_SKIP = 10;
+
+    private static final int TYPE_REF_XML_ELEMENT = 3;
+    private static final int TYPE_REF_XML_HOOK = 5;
+
+    private YjsDecoding() {
+    }
+
+    /**
+     * Reads the clock ranges of an update as produced by {@code Y.encodeStateAsUpdate} or a
+     * doc's "update" event. Throws IllegalArgumentException when the bytes are not one.
+     */
+    public static YjsUpdateSummary summarize(byte[] update) {
+        try {
+            Reader reader = new Reader(update, 0);
+            Map<Long, Long> endClocks = new HashMap<>();
+
+            long clientCount = reader.readVarUint();
+            for (long i = 0; i < clientCount; i++) {
+                long structCount = reader.readVarUint();
+                long client = reader.readVarUint();
+                long clock = reader.readVarUint();
+                for (long s = 0; s < structCount; s++) {
+                    clock += readStructLength(reader);
+                }
+                endClocks.merge(client, clock, Math::max);
+            }
+
+            List<Long> deletes = new ArrayList<>();
+            long deleteClients = reader.readVarUint();
+            for (long i = 0; i < deleteClients; i++) {
+                long client = reader.readVarUint();
+                long ranges = reader.readVarUint();
+                for (long r = 0; r < ranges; r++) {
+                    deletes.add(client);
+                    deletes.add(reader.readVarUint());
+                    deletes.add(reader.readVarUint());
+                }
+            }
+
+            long[] flatDeletes = new long[deletes.size()];
+            for (int i = 0; i < flatDeletes.length; i++) flatDeletes[i] = deletes.get(i);
+            return new YjsUpdateSummary(endClocks, flatDeletes, true);
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed Yjs update", e);
+        }
+    }
+
+    /** For stored bytes that were checked on the way in: anything undecodable becomes OPAQUE. */
+    static YjsUpdateSummary summarizeOrOpaque(byte[] update) {
+        try {
+            return summarize(update);
+        } catch (IllegalArgumentException e) {
+            return YjsUpdateSummary.OPAQUE;
+        }
+    }
+
+    /**
+     * Decodes a state vector as produced by {@code Y.encodeStateVector}.
+     * Throws IllegalArgumentException when the bytes are not one.
+     */
+    public static Map<Long, Long> decodeStateVector(byte[] stateVector) {
+        Map<Long, Long> clocks = new HashMap<>();
+        if (stateVector == null || stateVector.length == 0) return clocks;
+
+        Reader reader = new Reader(stateVector, 0);
+        long count = reader.readVarUint();
+        for (long i = 0; i < count; i++) {
+            long client = reader.readVarUint();
+            clocks.put(client, reader.readVarUint());
+        }
+        return clocks;
+    }
+
+    private static long readStructLength(Reader reader) {
+        int info = reader.readUint8();
+        int kind = info & BITS5;
+        if (kind == STRUCT_GC || kind == STRUCT_SKIP) {
+            return reader.readVarUint();
+        }
+
+        if ((info & BIT8) != 0) { // origin id
+            reader.readVarUint();
+            reader.readVarUint();
+        }
+        if ((info & BIT7) != 0) { // right origin id
+            reader.readVarUint();
+            reader.readVarUint();
+        }
+        if ((info & (BIT7 | BIT8)) == 0) { // parent is not implied by the origins
+            if (reader.readVarUint() == 1) {
+                reader.skipVarString(); // root type name
+            } else {
+                reader.readVarUint(); // parent item id
+                reader.readVarUint();
+            }
+            if ((info & BIT6) != 0) {
+                reader.skipVarString(); // parentSub (map key)
+            }
+        }
+        return readContentLength(reader, kind);
+    }
+
+    private static long readContentLength(Reader reader, int contentRef) {
+        switch (contentRef) {
+            case 1: // ContentDeleted
+                return reader.readVarUint();
+            case 2: { // ContentJSON
+                long len = reader.readVarUint();
+                for (long i = 0; i < len; i++) reader.skipVarString();
+                return len;
+            }
+            case 3: // ContentBinary
+                reader.skipVarBytes();
+                return 1;
+            case 4: // ContentString — Yjs counts UTF-16 code units
+                return reader.readVarString().length();
+            case 5: // ContentEmbed
+                reader.skipVarString();
+                return 1;
+            case 6: // ContentFormat
+                reader.skipVarString();
+                reader.skipVarString();
+                return 1;
+            case 7: { // ContentType
+                long typeRef = reader.readVarUint();
+                if (typeRef == TYPE_REF_XML_ELEMENT || typeRef == TYPE_REF_XML_HOOK) {
+                    reader.skipVarString();
+                }
+                return 1;
+            }
+            case 8: { // ContentAny
+                long len = reader.readVarUint();
+                for (long i = 0; i < len; i++) reader.skipAny();
+                return len;
+            }
+            case 9: // ContentDoc
+                reader.skipVarString();
+                reader.skipAny();
+                return 1;
+            default:
+                throw new IllegalArgumentException("Unknown Yjs content type " + contentRef);
+        }
+    }
+
+    /** lib0 decoder over a byte array. */
+    static final class Reader {
+        private final byte[] buf;
+        private int pos;
+
+        Reader(byte[] buf, int pos) {
+            this.buf = buf;
+            this.pos = pos;
+        }
+
+        int readUint8() {
+            checkAvailable(1);
+            return buf[pos++] & 0xFF;
+        }
+
+        long readVarUint() {
+            long num = 0;
+            int shift = 0;
+            while (true) {
+                int b = readUint8();
+                num |= (long) (b & 0x7F) << shift;
+                if (b < 0x80) return num;
+                shift += 7;
+                if (shift > 56) throw new IllegalArgumentException("Varint out of range");
+            }
+        }
+
+        String readVarString() {
+            int len = Math.toIntExact(readVarUint());
+            checkAvailable(len);
+            String value = new String(buf, pos, len, StandardCharsets.UTF_8);
+            pos += len;
+            return value;
+        }
+
+        void skipVarString() {
+            skipVarBytes();
+        }
+
+        void skipVarBytes() {
+            skip(Math.toIntExact(readVarUint()));
+        }
+
+        void skipAny() {
+            int type = readUint8();
+            switch (type) {
+                case 127: case 126: case 121: case 120: // undefined, null, false, true
+                    return;
+                case 125: // varint — same continuation bit as varuint
+                    readVarUint();
+                    return;
+                case 124: skip(4); return; // float32
+                case 123: skip(8); return; // float64
+                case 122: skip(8); return; // bigint64
+                case 119: skipVarString(); return;
+                case 118: { // object
+                    long len = readVarUint();
+                    for (long i = 0; i < len; i++) {
+                        skipVarString();
+                        skipAny();
+                    }
+                    return;
+                }
+                case 117: { // array
+                    long len = readVarUint();
+                    for (long i = 0; i < len; i++) skipAny();
+                    return;
+                }
+                case 116: skipVarBytes(); return; // Uint8Array
+                default:
+                    throw new IllegalArgumentException("Unknown lib0 any type " + type);
+            }
+        }
+
+        private void skip(int len) {
+            checkAvailable(len);
+            pos += len;
+        }
+
+        private void checkAvailable(int len) {
+            if (len < 0 || pos + len > buf.length) {
+                throw new IllegalArgumentException("Unexpected end of Yjs update");
+            }
+        }
+    }
+}
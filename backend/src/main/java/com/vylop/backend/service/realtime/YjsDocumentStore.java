@@ -0,0 +1,176 @@
+package com.vylop.backend.service.realtime;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Server-side copy of every live room's Yjs document, kept as the list of updates that
+ * were relayed through /yjs/{roomId}. Late joiners are answered from here with only the
+ * updates their state vector is missing, so the rest of the room sees no traffic.
+ *
+ * The log is periodically folded into a full-state snapshot supplied by one of the
+ * room's clients; any update the snapshot provably contains is dropped. Snapshots are
+ * requested when the log grows long (compaction) and, for autosave, whenever the room has
+ * updates no snapshot has folded in yet.
+ *
+ * A room that becomes live again is first refilled from its durable YjsUpdateLog, so
+ * joiners get the unsaved work of earlier sessions.
+ */
+@Service
+public class YjsDocumentStore {
+
+    // How long to wait for a requested snapshot before asking another client
+    private static final long COMPACTION_RETRY_MS = 30_000;
+
+    private final int compactionThreshold;
+    private final Map<String, RoomDocument> documents = new ConcurrentHashMap<>();
+
+    public YjsDocumentStore(@Value("${vylop.yjs.compaction-threshold:256}") int compactionThreshold) {
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    /**
+     * Records an update for the room.
+     * Returns true when the log has grown enough that a snapshot should be requested.
+     * A malformed update is not stored: IllegalArgumentException is thrown instead.
+     */
+    public boolean append(String roomId, byte[] update) {
+        StoredUpdate stored = new StoredUpdate(update, YjsDecoding.summarize(update));
+        RoomDocument document = documents.computeIfAbsent(roomId, k -> new RoomDocument());
+        synchronized (document) {
+            document.updates.add(stored);
+            document.unsnapshotted = true;
+            return document.claimCompaction(compactionThreshold);
+        }
+    }
+
+    /**
+     * Returns true, and counts a snapshot as requested, when the room holds updates that no
+     * snapshot has folded in yet and none was requested within the retry window. With
+     * `retryNow` a recent request is ignored, e.g. because the client it went to has left.
+     */
+    public boolean claimSnapshot(String roomId, boolean retryNow) {
+        RoomDocument document = documents.get(roomId);
+        if (document == null) return false;
+        synchronized (document) {
+            if (!document.unsnapshotted) return false;
+            long now = System.currentTimeMillis();
+            if (!retryNow && now - document.compactionRequestedAt < COMPACTION_RETRY_MS) return false;
+            document.compactionRequestedAt = now;
+            return true;
+        }
+    }
+
+    /**
+     * Returns the stored updates a peer with the given encoded state vector has not seen yet.
+     * Throws IllegalArgumentException for a malformed state vector.
+     */
+    public List<byte[]> diff(String roomId, byte[] encodedStateVector) {
+        RoomDocument document = documents.get(roomId);
+        if (document == null) return List.of();
+
+        Map<Long, Long> stateVector = YjsDecoding.decodeStateVector(encodedStateVector);
+        List<byte[]> missing = new ArrayList<>();
+        synchronized (document) {
+            for (StoredUpdate stored : document.updates) {
+                if (stored.summary.isMissingFrom(stateVector)) {
+                    missing.add(stored.update);
+                }
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Folds a full-state update (Y.encodeStateAsUpdate) into the room's log, discarding
+     * every stored update it contains. Updates that arrived after the client took the
+     * snapshot are not covered and stay in the log. A malformed snapshot throws
+     * IllegalArgumentException and leaves the log as it was.
+     */
+    public void applySnapshot(String roomId, byte[] snapshot) {
+        YjsUpdateSummary summary = YjsDecoding.summarize(snapshot);
+
+        RoomDocument document = documents.computeIfAbsent(roomId, k -> new RoomDocument());
+        synchronized (document) {
+            document.fold(snapshot, summary);
+        }
+    }
+
+    /**
+     * Fills the room from its durable log the first time it is held on this node; later calls
+     * return at once. Other calls for the room wait until the log has been read.
+     */
+    public void restore(String roomId, Function<String, List<YjsUpdateLog.LoggedUpdate>> loader) {
+        RoomDocument document = documents.computeIfAbsent(roomId, k -> new RoomDocument());
+        synchronized (document) {
+            if (document.restored) return;
+            document.restored = true;
+
+            List<StoredUpdate> live = new ArrayList<>(document.updates);
+            document.updates.clear();
+            for (YjsUpdateLog.LoggedUpdate logged : loader.apply(roomId)) {
+                YjsUpdateSummary summary = YjsDecoding.summarizeOrOpaque(logged.payload());
+                if (logged.snapshot() && summary.isDecoded()) {
+                    document.fold(logged.payload(), summary);
+                } else {
+                    document.updates.add(new StoredUpdate(logged.payload(), summary));
+                }
+            }
+            // Anything relayed before the log was read is newer than all of it
+            document.updates.addAll(live);
+            // Whether the last session's edits reached room_files is unknown; one snapshot settles it
+            document.unsnapshotted = !document.updates.isEmpty();
+        }
+    }
+
+    public void evict(String roomId) {
+        documents.remove(roomId);
+    }
+
+    private static final class StoredUpdate {
+        private final byte[] update;
+        private final YjsUpdateSummary summary;
+
+        private StoredUpdate(byte[] update, YjsUpdateSummary summary) {
+            this.update = update;
+            this.summary = summary;
+        }
+    }
+
+    private static final class RoomDocument {
+        private final List<StoredUpdate> updates = new ArrayList<>();
+        private long compactionRequestedAt;
+        private boolean restored;
+        // Updates arrived since the last snapshot, so room_files may lag behind the document
+        private boolean unsnapshotted;
+
+        private void fold(byte[] snapshot, YjsUpdateSummary summary) {
+            Iterator<StoredUpdate> it = updates.iterator();
+            while (it.hasNext()) {
+                StoredUpdate stored = it.next();
+                if (stored.summary.isCoveredBy(summary)) {
+                    it.remove();
+                }
+            }
+            updates.add(0, new StoredUpdate(snapshot, summary));
+            compactionRequestedAt = 0;
+            // Updates the snapshot did not contain still need a later one
+            unsnapshotted = updates.size() > 1;
+        }
+
+        private boolean claimCompaction(int threshold) {
+            if (updates.size() < threshold) return false;
+            long now = System.currentTimeMillis();
+            if (now - compactionRequestedAt < COMPACTION_RETRY_MS) return false;
+            compactionRequestedAt = now;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.vylop.backend.service.realtime;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only Postgres log (room_yjs_updates) of the Yjs updates and snapshots clients send
+ * through /yjs/{roomId}, so a room's unsaved work outlives its sockets and this process.
+ *
+ * Appends only queue in memory; a background thread writes everything queued every flush
+ * interval as one JDBC batch, so a burst of keystrokes costs one round trip. When a snapshot
+ * is written, the rows before it that it fully contains are deleted, keeping each room's log
+ * at roughly one snapshot plus the updates since. Each node logs only what its own clients
+ * sent; updates relayed from other nodes were logged by the node that received them.
+ *
+ * Rows reference rooms(id) and go with the room (V9). Updates for a room that does not exist
+ * are dropped as they are written. The log may be the only copy of recent edits, so an idle
+ * room's log is only purged once room_files is known to hold all of it: rooms.yjs_autosaved_through
+ * (V10) records the newest snapshot whose files WorkspaceAutosaver wrote and that contained
+ * every row logged before it. A room idle for `retention-days` loses its rows up to that id,
+ * and only if no row is newer.
+ */
+@Service
+public class YjsUpdateLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(YjsUpdateLog.class);
+
+    private static final String INSERT_UPDATE = "INSERT INTO room_yjs_updates (room_id, payload) "
+            + "SELECT ?, ? WHERE EXISTS (SELECT 1 FROM rooms WHERE id = ?)";
+    private static final String INSERT_SNAPSHOT = "INSERT INTO room_yjs_updates (room_id, payload, snapshot) "
+            + "SELECT ?, ?, true WHERE EXISTS (SELECT 1 FROM rooms WHERE id = ?) RETURNING id";
+    private static final String SELECT_BEFORE = "SELECT id, payload FROM room_yjs_updates WHERE room_id = ? AND id < ? ORDER BY id";
+    private static final String DELETE_ROW = "DELETE FROM room_yjs_updates WHERE id = ?";
+    private static final String SELECT_ROOM = "SELECT payload, snapshot FROM room_yjs_updates WHERE room_id = ? ORDER BY id";
+    private static final String DELETE_ROOM = "DELETE FROM room_yjs_updates WHERE room_id = ?";
+    private static final String DELETE_IDLE_ROOMS = "DELETE FROM room_yjs_updates u USING rooms r "
+            + "WHERE r.id = u.room_id AND u.id <= r.yjs_autosaved_through AND u.room_id IN "
+            + "(SELECT l.room_id FROM room_yjs_updates l JOIN rooms lr ON lr.id = l.room_id "
+            + "GROUP BY l.room_id, lr.yjs_autosaved_through "
+            + "HAVING max(l.created_at) < now() - make_interval(days => ?) AND max(l.id) <= lr.yjs_autosaved_through)";
+    private static final String MARK_AUTOSAVED =
+            "UPDATE rooms SET yjs_autosaved_through = greatest(yjs_autosaved_through, ?) WHERE id = ?";
+
+    /** One stored row, in log order. */
+    public record LoggedUpdate(byte[] payload, boolean snapshot) {
+    }
+
+    // `written` is null for plain updates
+    private record Pending(UUID roomId, byte[] payload, boolean snapshot, CompletableFuture<Long> written) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int maxPending;
+    private final int retentionDays;
+    private final Deque<Pending> pending = new ArrayDeque<>();
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("yjs-log-writer").daemon().factory());
+
+    public YjsUpdateLog(JdbcTemplate jdbcTemplate,
+                        @Value("${vylop.yjs.log.enabled:true}") boolean enabled,
+                        @Value("${vylop.yjs.log.flush-interval-ms:1000}") long flushIntervalMs,
+                        @Value("${vylop.yjs.log.max-pending:100000}") int maxPending,
+                        @Value("${vylop.yjs.log.retention-days:7}") int retentionDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.maxPending = maxPending;
+        this.retentionDays = retentionDays;
+        if (enabled) {
+            writer.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+            if (retentionDays > 0) {
+                writer.scheduleWithFixedDelay(this::purgeIdleRooms, 1, 60, TimeUnit.MINUTES);
+            }
+        }
+    }
+
+    public void append(String roomId, byte[] update) {
+        enqueue(roomId, update, null);
+    }
+
+    /**
+     * Queues a full-state update (Y.encodeStateAsUpdate); once written, the rows it covers are
+     * dropped. The result completes with the snapshot's row id when it contained every row
+     * logged before it, i.e. when saving this snapshot's files saves the whole log up to that
+     * id, and with null otherwise (not written, undecodable, or concurrent edits missing).
+     */
+    public CompletableFuture<Long> appendSnapshot(String roomId, byte[] snapshot) {
+        CompletableFuture<Long> written = new CompletableFuture<>();
+        if (!enqueue(roomId, snapshot, written)) written.complete(null);
+        return written;
+    }
+
+    /** Records that room_files holds everything the room logged up to `throughId` (see appendSnapshot). */
+    public void markAutosaved(UUID roomId, long throughId) {
+        if (!enabled) return;
+        try {
+            jdbcTemplate.update(MARK_AUTOSAVED, throughId, roomId);
+        } catch (DataAccessException e) {
+            // The rows just stay until a later autosave marks them
+            logger.warn("Could not mark the Yjs log of Room {} as autosaved: {}", roomId, e.getMessage());
+        }
+    }
+
+    /**
+     * Everything logged for the room, oldest first, including what was still queued.
+     * Empty when logging is off, the room ID is not a UUID or the database is unreachable.
+     */
+    public List<LoggedUpdate> load(String roomId) {
+        UUID room = parseRoomId(roomId);
+        if (!enabled || room == null) return List.of();
+        try {
+            flush();
+            return jdbcTemplate.query(SELECT_ROOM,
+                    (rs, rowNum) -> new LoggedUpdate(rs.getBytes("payload"), rs.getBoolean("snapshot")), room);
+        } catch (DataAccessException e) {
+            logger.warn("Could not load the Yjs log of Room {}: {}", roomId, e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Drops the room's queued and stored updates, for a deleted workspace. Runs in the
+     * caller's transaction if there is one; waits for an in-flight flush so none of its rows
+     * land after the delete. Returns the number of rows deleted.
+     */
+    public synchronized int purge(UUID roomId) {
+        if (!enabled) return 0;
+        synchronized (pending) {
+            pending.removeIf(queued -> {
+                if (!queued.roomId().equals(roomId)) return false;
+                if (queued.written() != null) queued.written().complete(null);
+                return true;
+            });
+        }
+        return jdbcTemplate.update(DELETE_ROOM, roomId);
+    }
+
+    /** Drops the logs of rooms idle for the retention period whose every row has been autosaved. */
+    private void purgeIdleRooms() {
+        try {
+            int deleted = jdbcTemplate.update(DELETE_IDLE_ROOMS, retentionDays);
+            if (deleted > 0) logger.info("Purged {} Yjs log rows of rooms idle for {} days", deleted, retentionDays);
+        } catch (DataAccessException e) {
+            logger.warn("Could not purge idle Yjs logs: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        writer.shutdownNow();
+        flushQuietly();
+    }
+
+    /** Returns false when nothing was queued (logging off, or not a persisted room). */
+    private boolean enqueue(String roomId, byte[] payload, CompletableFuture<Long> written) {
+        UUID room = parseRoomId(roomId);
+        if (!enabled || room == null) return false;
+        synchronized (pending) {
+            if (pending.size() >= maxPending) {
+                // Database has been down for a while; live rooms still hold these in memory
+                Pending dropped = pending.pollFirst();
+                if (dropped.written() != null) dropped.written().complete(null);
+                logger.warn("Yjs log backlog full, dropping the oldest queued update");
+            }
+            pending.addLast(new Pending(room, payload, written != null, written));
+        }
+        return true;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (DataAccessException e) {
+            logger.warn("Could not write the Yjs log, retrying: {}", e.getMessage());
+        }
+    }
+
+    /** Writes the queue in order; on failure the unwritten rest goes back to the front. */
+    private synchronized void flush() {
+        List<Pending> batch;
+        synchronized (pending) {
+            if (pending.isEmpty()) return;
+            batch = new ArrayList<>(pending);
+            pending.clear();
+        }
+
+        int written = 0;
+        try {
+            while (written < batch.size()) {
+                Pending next = batch.get(written);
+                if (next.snapshot()) {
+                    writeSnapshot(next);
+                    written++;
+                    continue;
+                }
+                int end = written;
+                while (end < batch.size() && !batch.get(end).snapshot()) end++;
+                List<Object[]> rows = new ArrayList<>(end - written);
+                for (Pending update : batch.subList(written, end)) {
+                    rows.add(new Object[] { update.roomId(), update.payload(), update.roomId() });
+                }
+                try {
+                    jdbcTemplate.batchUpdate(INSERT_UPDATE, rows);
+                } catch (DataIntegrityViolationException e) {
+                    // A room was deleted while its updates were queued: the batch rolled back as one,
+                    // so write row by row and drop only that room's, which could never succeed
+                    insertEach(rows);
+                }
+                written = end;
+            }
+        } finally {
+            if (written < batch.size()) {
+                synchronized (pending) {
+                    List<Pending> unwritten = batch.subList(written, batch.size());
+                    for (int i = unwritten.size() - 1; i >= 0; i--) pending.addFirst(unwritten.get(i));
+                }
+            }
+        }
+    }
+
+    private void insertEach(List<Object[]> rows) {
+        for (Object[] row : rows) {
+            try {
+                jdbcTemplate.update(INSERT_UPDATE, row);
+            } catch (DataIntegrityViolationException e) {
+                logger.debug("Dropping a Yjs update of deleted Room {}", row[0]);
+            }
+        }
+    }
+
+    private void writeSnapshot(Pending snapshot) {
+        List<Long> inserted;
+        try {
+            inserted = jdbcTemplate.queryForList(INSERT_SNAPSHOT, Long.class,
+                    snapshot.roomId(), snapshot.payload(), snapshot.roomId());
+        } catch (DataIntegrityViolationException e) {
+            snapshot.written().complete(null); // room deleted meanwhile
+            return;
+        }
+        YjsUpdateSummary summary = YjsDecoding.summarizeOrOpaque(snapshot.payload());
+        if (inserted.isEmpty() || !summary.isDecoded()) {
+            snapshot.written().complete(null);
+            return;
+        }
+        long id = inserted.get(0);
+
+        List<Object[]> covered = new ArrayList<>();
+        int[] earlier = { 0 };
+        jdbcTemplate.query(SELECT_BEFORE, rs -> {
+            earlier[0]++;
+            if (YjsDecoding.summarizeOrOpaque(rs.getBytes("payload")).isCoveredBy(summary)) {
+                covered.add(new Object[] { rs.getLong("id") });
+            }
+        }, snapshot.roomId(), id);
+        if (!covered.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_ROW, covered);
+        }
+        snapshot.written().complete(covered.size() == earlier[0] ? id : null);
+    }
+
+    private static UUID parseRoomId(String roomId) {
+        try {
+            return UUID.fromString(roomId);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.vylop.backend.service.realtime;
+
+import java.util.Map;
+
+/**
+ * What a single Yjs (v1) update contains, reduced to the parts the server needs for
+ * state-vector diffing: the highest clock written per client and the deleted ranges.
+ */
+public final class YjsUpdateSummary {
+
+    /** Summary for a logged update that can no longer be decoded — it is then always re-sent. */
+    public static final YjsUpdateSummary OPAQUE = new YjsUpdateSummary(Map.of(), new long[0], false);
+
+    private final Map<Long, Long> endClocks;
+    // Flattened (client, clock, length) triples
+    private final long[] deletes;
+    private final boolean decoded;
+
+    YjsUpdateSummary(Map<Long, Long> endClocks, long[] deletes, boolean decoded) {
+        this.endClocks = endClocks;
+        this.deletes = deletes;
+        this.decoded = decoded;
+    }
+
+    public Map<Long, Long> getEndClocks() {
+        return endClocks;
+    }
+
+    public boolean isDecoded() {
+        return decoded;
+    }
+
+    public boolean hasDeletes() {
+        return deletes.length > 0;
+    }
+
+    /**
+     * True when a peer at the given state vector may still be missing part of this update.
+     * Deletions carry no clock, so updates holding them are always considered missing.
+     */
+    public boolean isMissingFrom(Map<Long, Long> stateVector) {
+        if (!decoded || hasDeletes()) return true;
+        for (Map.Entry<Long, Long> entry : endClocks.entrySet()) {
+            if (entry.getValue() > stateVector.getOrDefault(entry.getKey(), 0L)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * True when every struct and deletion in this update is also contained in {@code snapshot},
+     * which must be a full document state (structs contiguous from clock 0 for each client).
+     */
+    public boolean isCoveredBy(YjsUpdateSummary snapshot) {
+        if (!decoded || !snapshot.decoded) return false;
+        for (Map.Entry<Long, Long> entry : endClocks.entrySet()) {
+            if (entry.getValue() > snapshot.endClocks.getOrDefault(entry.getKey(), 0L)) return false;
+        }
+        for (int i = 0; i < deletes.length; i += 3) {
+            if (!snapshot.containsDeletion(deletes[i], deletes[i + 1], deletes[i + 2])) return false;
+        }
+        return true;
+    }
+
+    private boolean containsDeletion(long client, long clock, long length) {
+        // Yjs merges adjacent ranges per client, so one containing range is enough
+        long end = clock + length;
+        for (int i = 0; i < deletes.length; i += 3) {
+            if (deletes[i] == client && deletes[i + 1] <= clock && deletes[i + 1] + deletes[i + 2] >= end) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,4 @@
+-- Newest room_yjs_updates id whose edits are known to be in room_files: set once the files sent with
+-- a snapshot that contained every earlier row of the room have been autosaved. The idle purge only
+-- drops a room's log when no row is newer, so the log stays the durable copy of unsaved edits.
+ALTER TABLE rooms ADD COLUMN IF NOT EXISTS yjs_autosaved_through BIGINT;
@@ -0,0 +1,11 @@
+-- rooms.created_at was nullable since V1, and a NULL never satisfies the keyset comparison
+-- (created_at, id) < (?, ?), so such rooms vanished from every workspace page after the first.
+-- Backfill them with their oldest file's timestamp, or the epoch, so they sort as the oldest rooms.
+UPDATE rooms r
+SET created_at = coalesce(
+        (SELECT min(f.updated_at) FROM room_files f WHERE f.room_id = r.id),
+        TIMESTAMP '1970-01-01 00:00:00')
+WHERE r.created_at IS NULL;
+
+ALTER TABLE rooms ALTER COLUMN created_at SET DEFAULT now();
+ALTER TABLE rooms ALTER COLUMN created_at SET NOT NULL;
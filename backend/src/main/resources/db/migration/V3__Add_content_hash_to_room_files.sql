@@ -0,0 +1,6 @@
+-- SHA-256 (hex) of each file's UTF-8 content, so saves can skip files that did not change
+ALTER TABLE room_files ADD COLUMN IF NOT EXISTS content_hash VARCHAR(64);
+
+UPDATE room_files
+SET content_hash = encode(sha256(convert_to(coalesce(content, ''), 'UTF8')), 'hex')
+WHERE content_hash IS NULL;
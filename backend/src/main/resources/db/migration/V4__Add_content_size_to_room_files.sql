@@ -0,0 +1,6 @@
+-- UTF-8 byte length of each file's content, so the workspace manifest never has to read (detoast) the content column
+ALTER TABLE room_files ADD COLUMN IF NOT EXISTS content_size INTEGER;
+
+UPDATE room_files
+SET content_size = octet_length(coalesce(content, ''))
+WHERE content_size IS NULL;
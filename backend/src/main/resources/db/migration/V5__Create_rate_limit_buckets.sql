@@ -0,0 +1,7 @@
+-- Shared token buckets for running code, used when vylop.ratelimit.store=jdbc.
+-- `arrival` is when the bucket will be full again; rows already full carry no state and are deleted periodically.
+-- UNLOGGED: limits are cheap to lose on a crash and this table is written on every run.
+CREATE UNLOGGED TABLE IF NOT EXISTS rate_limit_buckets (
+    bucket_key VARCHAR(255) PRIMARY KEY,
+    arrival TIMESTAMPTZ NOT NULL
+);
@@ -0,0 +1,11 @@
+-- Durable copy of each room's relayed Yjs traffic, so unsaved edits survive everyone leaving or a restart.
+-- Rows are appended in batches; a snapshot row replaces every earlier row it covers.
+CREATE TABLE IF NOT EXISTS room_yjs_updates (
+    id BIGSERIAL PRIMARY KEY,
+    room_id UUID NOT NULL,
+    payload BYTEA NOT NULL,
+    snapshot BOOLEAN NOT NULL DEFAULT false,
+    created_at TIMESTAMP NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS idx_room_yjs_updates_room_id ON room_yjs_updates (room_id, id);
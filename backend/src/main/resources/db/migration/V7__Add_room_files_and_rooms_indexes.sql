@@ -0,0 +1,19 @@
+-- Every room_files query filters on room_id, and most on (room_id, file_name); none had an index.
+
+-- Keep one row per (room_id, file_name) before enforcing it: the most recently updated one
+DELETE FROM room_files f
+USING room_files newer
+WHERE f.room_id = newer.room_id
+  AND f.file_name = newer.file_name
+  AND (coalesce(f.updated_at, '-infinity'), f.id) < (coalesce(newer.updated_at, '-infinity'), newer.id);
+
+-- Serves findByRoomId (prefix), findByRoomIdAndFileName, and the digest and manifest
+-- queries as index-only scans: everything they read except content is in the index
+CREATE UNIQUE INDEX IF NOT EXISTS uq_room_files_room_id_file_name
+    ON room_files (room_id, file_name)
+    INCLUDE (id, content_hash, content_size, language, updated_at);
+
+-- A host's workspace list, already in the order the dashboard shows it. id breaks ties between
+-- rooms created in the same instant, so each keyset page is a single range scan with no sort.
+CREATE INDEX IF NOT EXISTS idx_rooms_host_id_created_at_id
+    ON rooms (host_id, created_at DESC, id DESC);
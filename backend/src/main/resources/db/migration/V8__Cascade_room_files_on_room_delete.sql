@@ -0,0 +1,21 @@
+-- Deleting a room removes its files in the same statement instead of the application loading and deleting them.
+-- The FK name depends on whether V1 or Hibernate created the table, so drop whichever one links room_files.room_id to rooms.
+DO $$
+DECLARE
+    fk RECORD;
+BEGIN
+    FOR fk IN
+        SELECT c.conname
+        FROM pg_constraint c
+        JOIN pg_attribute a ON a.attrelid = c.conrelid AND a.attnum = ANY (c.conkey)
+        WHERE c.contype = 'f'
+          AND c.conrelid = 'room_files'::regclass
+          AND c.confrelid = 'rooms'::regclass
+          AND a.attname = 'room_id'
+    LOOP
+        EXECUTE format('ALTER TABLE room_files DROP CONSTRAINT %I', fk.conname);
+    END LOOP;
+END $$;
+
+ALTER TABLE room_files
+    ADD CONSTRAINT fk_room_files_room_id FOREIGN KEY (room_id) REFERENCES rooms (id) ON DELETE CASCADE;
@@ -0,0 +1,6 @@
+-- Logged Yjs traffic goes with its room: drop rows left by rooms that no longer exist, then let
+-- deleting a room delete its log in the same statement.
+DELETE FROM room_yjs_updates u WHERE NOT EXISTS (SELECT 1 FROM rooms r WHERE r.id = u.room_id);
+
+ALTER TABLE room_yjs_updates
+    ADD CONSTRAINT fk_room_yjs_updates_room_id FOREIGN KEY (room_id) REFERENCES rooms (id) ON DELETE CASCADE;
@@ -0,0 +1,334 @@
+package com.vylop.backend.controller;
+
+import com.vylop.backend.model.ParticipantRole;
+import com.vylop.backend.model.RoomParticipant;
+import com.vylop.backend.service.WorkspaceAutosaver;
+import com.vylop.backend.service.cluster.ClusterCoordinator;
+import com.vylop.backend.service.cluster.ClusterEvent;
+import com.vylop.backend.service.cluster.InMemoryRoomBackplane;
+import com.vylop.backend.service.realtime.RoomParticipantRegistry;
+import com.vylop.backend.service.realtime.YjsDocumentStore;
+import com.vylop.backend.service.realtime.YjsUpdateLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two backend nodes in one JVM, sharing an in-memory stand-in for the broker. The relay
+ * throughput test is opt-in; run it with
+ * {@code mvn test -Dtest=YjsMultiNodeRelayTests -Dvylop.bench=true}.
+ */
+class YjsMultiNodeRelayTests {
+
+    private static final int UPDATES = 200;
+    private static final int BENCH_UPDATES = 20_000;
+    private static final int UPDATE_SIZE = 64;
+
+    private final InMemoryRoomBackplane.Hub hub = new InMemoryRoomBackplane.Hub();
+    private final List<Node> nodes = new ArrayList<>();
+    private final AtomicInteger backplaneUpdates = new AtomicInteger();
+
+    private Node nodeA;
+    private Node nodeB;
+
+    @BeforeEach
+    void startNodes() {
+        nodeA = startNode("node-a");
+        nodeB = startNode("node-b");
+
+        InMemoryRoomBackplane observer = new InMemoryRoomBackplane(hub);
+        observer.start();
+        observer.subscribe(event -> {
+            if (event.getType() == ClusterEvent.Type.YJS_UPDATE) backplaneUpdates.incrementAndGet();
+        });
+        nodes.add(new Node(null, null, null, observer, null));
+    }
+
+    @AfterEach
+    void stopNodes() {
+        for (Node node : nodes) {
+            node.backplane.shutdown();
+            if (node.scheduler != null) node.scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    void relaysSharedRoomAcrossNodes() throws Exception {
+        FakeSession writer = connect(nodeA, "shared-room", "a1");
+        FakeSession reader = connect(nodeB, "shared-room", "b1");
+        await(() -> nodeA.coordinator.isShared("shared-room") && nodeB.coordinator.isShared("shared-room"));
+
+        send(nodeA, writer, UPDATES);
+        await(() -> reader.receivedUpdates().size() == UPDATES);
+
+        assertEquals(UPDATES, reader.receivedUpdates().size());
+    }
+
+    @Test
+    void keepsNodeLocalRoomOffTheBackplane() throws Exception {
+        FakeSession writer = connect(nodeA, "local-room", "a1");
+        FakeSession reader = connect(nodeA, "local-room", "a2");
+
+        send(nodeA, writer, UPDATES);
+        await(() -> reader.receivedUpdates().size() == UPDATES);
+
+        assertEquals(0, backplaneUpdates.get());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "vylop.bench", matches = "true")
+    void relayThroughput() throws Exception {
+        FakeSession sharedWriter = connect(nodeA, "shared-room", "a1");
+        FakeSession sharedReader = connect(nodeB, "shared-room", "b1");
+        await(() -> nodeA.coordinator.isShared("shared-room") && nodeB.coordinator.isShared("shared-room"));
+
+        long started = System.nanoTime();
+        send(nodeA, sharedWriter, BENCH_UPDATES);
+        await(() -> sharedReader.receivedUpdates().size() == BENCH_UPDATES);
+        long elapsedNanos = System.nanoTime() - started;
+        System.out.printf("Cross-node relay: %d updates in %d ms (%.0f updates/s)%n",
+                BENCH_UPDATES, elapsedNanos / 1_000_000, BENCH_UPDATES / (elapsedNanos / 1e9));
+
+        FakeSession localWriter = connect(nodeA, "local-room", "a2");
+        FakeSession localReader = connect(nodeA, "local-room", "a3");
+
+        started = System.nanoTime();
+        send(nodeA, localWriter, BENCH_UPDATES);
+        await(() -> localReader.receivedUpdates().size() == BENCH_UPDATES);
+        elapsedNanos = System.nanoTime() - started;
+        System.out.printf("Node-local relay: %d updates in %d ms (%.0f updates/s)%n",
+                BENCH_UPDATES, elapsedNanos / 1_000_000, BENCH_UPDATES / (elapsedNanos / 1e9));
+    }
+
+    @Test
+    void sendsDocumentToNodeThatJoinsLater() throws Exception {
+        FakeSession writer = connect(nodeA, "late-room", "a1");
+        for (int seq = 0; seq < 100; seq++) {
+            nodeA.handler.handleMessage(writer, new BinaryMessage(frame(seq)));
+        }
+
+        FakeSession lateJoiner = connect(nodeB, "late-room", "b1");
+        await(() -> lateJoiner.receivedUpdates().size() == 100);
+
+        assertTrue(lateJoiner.receivedUpdates().containsAll(Set.of(0, 42, 99)));
+    }
+
+    @Test
+    void dropsWritesFromSocketsWithoutEditRights() throws Exception {
+        FakeSession viewer = connect(nodeA, "guarded-room", "viewer", ParticipantRole.READ_ONLY);
+        FakeSession stranger = new FakeSession("stranger", URI.create("ws://localhost/yjs/guarded-room"));
+        nodeA.handler.afterConnectionEstablished(stranger);
+        FakeSession editor = connect(nodeA, "guarded-room", "editor");
+        FakeSession reader = connect(nodeA, "guarded-room", "reader");
+
+        nodeA.handler.handleMessage(viewer, new BinaryMessage(frame(1)));
+        nodeA.handler.handleMessage(stranger, new BinaryMessage(frame(2)));
+        nodeA.handler.handleMessage(editor, new BinaryMessage(frame(3)));
+        await(() -> !reader.receivedUpdates().isEmpty());
+
+        assertEquals(Set.of(3), reader.receivedUpdates());
+    }
+
+    @Test
+    void malformedFrameClosesOnlyItsSender() throws Exception {
+        FakeSession badUpdate = connect(nodeA, "noisy-room", "bad-update");
+        FakeSession badSync = connect(nodeA, "noisy-room", "bad-sync");
+        FakeSession editor = connect(nodeA, "noisy-room", "editor");
+        FakeSession reader = connect(nodeA, "noisy-room", "reader");
+
+        nodeA.handler.handleMessage(badUpdate, new BinaryMessage(Arrays.copyOf(frame(1), 5)));
+        nodeA.handler.handleMessage(badSync, new BinaryMessage(new byte[] { YjsWebSocketHandler.SYNC_REQUEST, 1, (byte) 0x80 }));
+        nodeA.handler.handleMessage(editor, new BinaryMessage(frame(2)));
+        await(() -> !reader.receivedUpdates().isEmpty());
+
+        assertEquals(CloseStatus.BAD_DATA, badUpdate.closeStatus());
+        assertEquals(CloseStatus.BAD_DATA, badSync.closeStatus());
+        assertNull(editor.closeStatus());
+        assertNull(reader.closeStatus());
+        assertEquals(Set.of(2), reader.receivedUpdates());
+    }
+
+    @Test
+    void joiningARoomHeldElsewhereDoesNotHoldTheCaller() throws Exception {
+        connect(nodeA, "joined-room", "a1");
+        await(() -> nodeB.coordinator.isShared("joined-room"));
+
+        AtomicReference<Thread> admittedOn = new AtomicReference<>();
+        long started = System.nanoTime();
+        nodeB.participants.enter("joined-room", "b1", users -> admittedOn.set(Thread.currentThread()));
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+        assertTrue(elapsedMs < 250, "enter returned after " + elapsedMs + " ms");
+        await(() -> admittedOn.get() != null);
+        assertNotSame(Thread.currentThread(), admittedOn.get());
+    }
+
+    private Node startNode(String nodeId) {
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+        InMemoryRoomBackplane backplane = new InMemoryRoomBackplane(hub);
+        backplane.start();
+        ClusterCoordinator coordinator = new ClusterCoordinator(backplane, scheduler, nodeId, "");
+        coordinator.start();
+
+        // Durable log off: these rooms live only in memory
+        RoomParticipantRegistry participants = new RoomParticipantRegistry(coordinator, null, null, scheduler);
+        YjsWebSocketHandler handler = new YjsWebSocketHandler(new YjsDocumentStore(BENCH_UPDATES * 2),
+                new YjsUpdateLog(null, false, 1_000, 0, 0), new WorkspaceAutosaver(null, null, null, 60_000), coordinator,
+                participants, scheduler, 5, 60_000);
+        handler.listen();
+
+        Node node = new Node(handler, coordinator, participants, backplane, scheduler);
+        nodes.add(node);
+        return node;
+    }
+
+    private FakeSession connect(Node node, String roomId, String sessionId) {
+        return connect(node, roomId, sessionId, ParticipantRole.EDITOR);
+    }
+
+    /** Opens user `sessionId`'s Yjs socket, then joins the room with the given role (once other nodes answer). */
+    private FakeSession connect(Node node, String roomId, String sessionId, ParticipantRole role) {
+        FakeSession session = new FakeSession(sessionId, URI.create("ws://localhost/yjs/" + roomId + "?username=" + sessionId));
+        node.handler.afterConnectionEstablished(session);
+        node.participants.enter(roomId, sessionId, users -> users.put(sessionId, new RoomParticipant(sessionId, role)));
+        return session;
+    }
+
+    private static void send(Node node, FakeSession writer, int count) throws Exception {
+        for (int seq = 0; seq < count; seq++) {
+            node.handler.handleMessage(writer, new BinaryMessage(frame(seq)));
+        }
+    }
+
+    /**
+     * A minimal well-formed Yjs update: one GC struct written by client seq + 1, padded to
+     * UPDATE_SIZE. Distinct clients keep every update "missing" from an empty state vector.
+     */
+    private static byte[] frame(int seq) {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + UPDATE_SIZE);
+        buffer.put(YjsWebSocketHandler.UPDATE);
+        buffer.put((byte) 1).put((byte) 1); // one client, one struct
+        writeVarUint(buffer, seq + 1);      // client id
+        buffer.put((byte) 0);               // clock
+        buffer.put((byte) 0).put((byte) 1); // GC struct of length 1
+        buffer.put((byte) 0);               // empty delete set
+        return buffer.array();
+    }
+
+    private static void writeVarUint(ByteBuffer buffer, long value) {
+        while (value > 0x7F) {
+            buffer.put((byte) (0x80 | (value & 0x7F)));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static int readSeq(ByteBuffer update) {
+        update.position(update.position() + 2);
+        long value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = update.get() & 0xFF;
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (int) value - 1;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Condition not reached within 10s");
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    private record Node(YjsWebSocketHandler handler, ClusterCoordinator coordinator, RoomParticipantRegistry participants,
+                        InMemoryRoomBackplane backplane, ScheduledExecutorService scheduler) {}
+
+    private static final class FakeSession implements WebSocketSession {
+
+        private final String id;
+        private final URI uri;
+        private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+        private final Set<Integer> received = ConcurrentHashMap.newKeySet();
+        private volatile CloseStatus closeStatus;
+
+        private FakeSession(String id, URI uri) {
+            this.id = id;
+            this.uri = uri;
+        }
+
+        Set<Integer> receivedUpdates() {
+            return received;
+        }
+
+        CloseStatus closeStatus() {
+            return closeStatus;
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) {
+            ByteBuffer frame = ((BinaryMessage) message).getPayload().duplicate();
+            byte tag = frame.get();
+            if (tag == YjsWebSocketHandler.UPDATE) {
+                received.add(readSeq(frame));
+            } else if (tag == YjsWebSocketHandler.UPDATE_BATCH) {
+                while (frame.remaining() >= 4) {
+                    int length = frame.getInt();
+                    int end = frame.position() + length;
+                    received.add(readSeq(frame));
+                    frame.position(end);
+                }
+            }
+        }
+
+        @Override public String getId() { return id; }
+        @Override public URI getUri() { return uri; }
+        @Override public HttpHeaders getHandshakeHeaders() { return new HttpHeaders(); }
+        @Override public Map<String, Object> getAttributes() { return attributes; }
+        @Override public Principal getPrincipal() { return null; }
+        @Override public InetSocketAddress getLocalAddress() { return null; }
+        @Override public InetSocketAddress getRemoteAddress() { return null; }
+        @Override public String getAcceptedProtocol() { return null; }
+        @Override public void setTextMessageSizeLimit(int messageSizeLimit) {}
+        @Override public int getTextMessageSizeLimit() { return 0; }
+        @Override public void setBinaryMessageSizeLimit(int messageSizeLimit) {}
+        @Override public int getBinaryMessageSizeLimit() { return 0; }
+        @Override public List<WebSocketExtension> getExtensions() { return List.of(); }
+        @Override public boolean isOpen() { return true; }
+        @Override public void close() {}
+        @Override public void close(CloseStatus status) { closeStatus = status; }
+    }
+}
@@ -0,0 +1,162 @@
+package com.vylop.backend.service;
+
+import com.vylop.backend.dto.BatchExecutionRequest;
+import com.vylop.backend.service.execution.ExecutionEngine;
+import com.vylop.backend.service.execution.ExecutionRequest;
+import com.vylop.backend.service.execution.ExecutionResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CodeExecutionBatchTests {
+
+    private final ExecutionJobService jobs = new ExecutionJobService(null, 2, 10, 60, 1024);
+
+    @AfterEach
+    void shutdown() {
+        jobs.shutdown();
+    }
+
+    @Test
+    void runtimeErrorWithWarningsRunsEveryCase() {
+        StubEngine engine = new StubEngine(true,
+                request -> new ExecutionResult(1, "prog.cc:3: warning: unused variable 'x'", "boom on " + request.stdin()));
+
+        Map<String, Object> report = batch(engine, cases(3), 1, false);
+
+        assertEquals(3, engine.runs.get());
+        List<Map<String, Object>> results = results(report);
+        for (int i = 0; i < 3; i++) {
+            assertEquals("FAILED", results.get(i).get("status"));
+            assertEquals("Runtime Error:\nboom on " + i, results.get(i).get("output"));
+        }
+    }
+
+    @Test
+    void compileErrorIsReportedForEveryCaseAfterOneRun() {
+        StubEngine engine = new StubEngine(true,
+                request -> ExecutionResult.compileError(1, "prog.cc:3: error: expected ';'"));
+
+        Map<String, Object> report = batch(engine, cases(5), 4, false);
+
+        assertEquals(1, engine.runs.get());
+        assertEquals(0, report.get("passed"));
+        for (Map<String, Object> result : results(report)) {
+            assertEquals("FAILED", result.get("status"));
+            assertEquals("Compilation Error:\nprog.cc:3: error: expected ';'", result.get("output"));
+        }
+    }
+
+    @Test
+    void compileErrorStopsCasesNotYetStartedWithoutBuildReuse() {
+        StubEngine engine = new StubEngine(false, request -> ExecutionResult.compileError(1, "error"));
+
+        Map<String, Object> report = batch(engine, cases(4), 1, false);
+
+        assertEquals(1, engine.runs.get());
+        results(report).forEach(result -> assertEquals("Compilation Error:\nerror", result.get("output")));
+    }
+
+    @Test
+    void stopOnFirstFailureSkipsTheRest() {
+        StubEngine engine = new StubEngine(true, request -> new ExecutionResult(0, "", "wrong"));
+
+        List<Map<String, Object>> results = results(batch(engine, cases(3), 1, true));
+
+        assertEquals("FAILED", results.get(0).get("status"));
+        assertEquals("SKIPPED", results.get(1).get("status"));
+        assertEquals("SKIPPED", results.get(2).get("status"));
+    }
+
+    @Test
+    void fanOutStaysWithinTheJobSlots() throws Exception {
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        StubEngine engine = new StubEngine(false, request -> {
+            peak.accumulateAndGet(inside.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(30);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            inside.decrementAndGet();
+            return new ExecutionResult(0, "", request.stdin());
+        });
+        CodeExecutionService service = new CodeExecutionService(engine, jobs, 8, 100, 0, 0);
+
+        // Two batches asking for 8 cases at once each, with 2 slots between them
+        List<ExecutionJobService.Job> submitted = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            submitted.add(jobs.submit(null, () -> service.executeBatch("cpp", "int main() {}", null, null, null,
+                    cases(8), 8, false)));
+        }
+        for (ExecutionJobService.Job job : submitted) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> report = (Map<String, Object>) job.getResult().get(10, TimeUnit.SECONDS);
+            assertEquals("ACCEPTED", report.get("status"));
+        }
+
+        assertEquals(16, engine.runs.get());
+        assertTrue(peak.get() <= 2, "at most max-concurrent runs at once, saw " + peak.get());
+    }
+
+    private Map<String, Object> batch(StubEngine engine, List<BatchExecutionRequest.TestCase> cases,
+                                      int parallelism, boolean stopOnFirstFailure) {
+        CodeExecutionService service = new CodeExecutionService(engine, jobs, 4, 100, 0, 0);
+        return service.executeBatch("cpp", "int main() {}", null, null, null, cases, parallelism, stopOnFirstFailure);
+    }
+
+    /** Case i reads "i" and expects "i" back. */
+    private static List<BatchExecutionRequest.TestCase> cases(int count) {
+        List<BatchExecutionRequest.TestCase> cases = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            BatchExecutionRequest.TestCase testCase = new BatchExecutionRequest.TestCase();
+            testCase.setInput(String.valueOf(i));
+            testCase.setExpectedOutput(String.valueOf(i));
+            cases.add(testCase);
+        }
+        return cases;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> results(Map<String, Object> report) {
+        return (List<Map<String, Object>>) report.get("cases");
+    }
+
+    private static final class StubEngine implements ExecutionEngine {
+
+        private final boolean reusesBuilds;
+        private final Function<ExecutionRequest, ExecutionResult> behaviour;
+        private final AtomicInteger runs = new AtomicInteger();
+
+        StubEngine(boolean reusesBuilds, Function<ExecutionRequest, ExecutionResult> behaviour) {
+            this.reusesBuilds = reusesBuilds;
+            this.behaviour = behaviour;
+        }
+
+        @Override
+        public boolean supports(String language) {
+            return true;
+        }
+
+        @Override
+        public boolean reusesBuilds(String language) {
+            return reusesBuilds;
+        }
+
+        @Override
+        public ExecutionResult execute(ExecutionRequest request) {
+            runs.incrementAndGet();
+            return behaviour.apply(request);
+        }
+    }
+}
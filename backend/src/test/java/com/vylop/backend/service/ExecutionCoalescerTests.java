@@ -0,0 +1,146 @@
+package com.vylop.backend.service;
+
+import com.vylop.backend.service.execution.ExecutionRequest;
+import com.vylop.backend.service.execution.ExecutionResult;
+import com.vylop.backend.service.execution.SourceFile;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExecutionCoalescerTests {
+
+    private static final ExecutionRequest REQUEST = request("print(1)", "");
+
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @Test
+    void overlappingIdenticalRunsExecuteOnce() throws Exception {
+        // Results expire as soon as they complete, so only callers that overlap the run can share it
+        ExecutionCoalescer coalescer = new ExecutionCoalescer(Duration.ofNanos(1), 100);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutionCoalescer.Run slow = () -> {
+            runs.incrementAndGet();
+            started.countDown();
+            assertTrue(release.await(10, TimeUnit.SECONDS));
+            return new ExecutionResult(0, "", "1");
+        };
+
+        try (ExecutorService pool = Executors.newFixedThreadPool(5)) {
+            List<Future<ExecutionResult>> results = new ArrayList<>();
+            results.add(pool.submit(() -> coalescer.execute(REQUEST, slow)));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            for (int i = 0; i < 4; i++) {
+                results.add(pool.submit(() -> coalescer.execute(REQUEST, slow)));
+            }
+            awaitWaiting(pool, 4);
+            release.countDown();
+
+            ExecutionResult first = results.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<ExecutionResult> result : results) {
+                assertSame(first, result.get(10, TimeUnit.SECONDS));
+            }
+        }
+        assertEquals(1, runs.get());
+
+        // Finished and expired: the next caller runs it again
+        Thread.sleep(1);
+        coalescer.execute(REQUEST, counted(new ExecutionResult(0, "", "1")));
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void finishedRunIsSharedWithinTheTtl() throws Exception {
+        ExecutionCoalescer coalescer = new ExecutionCoalescer(Duration.ofMinutes(1), 100);
+
+        ExecutionResult first = coalescer.execute(REQUEST, counted(new ExecutionResult(0, "", "1")));
+        ExecutionResult second = coalescer.execute(REQUEST, counted(new ExecutionResult(0, "", "other")));
+
+        assertSame(first, second);
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void differentInputsRunSeparately() throws Exception {
+        ExecutionCoalescer coalescer = new ExecutionCoalescer(Duration.ofMinutes(1), 100);
+
+        coalescer.execute(REQUEST, counted(new ExecutionResult(0, "", "1")));
+        coalescer.execute(request("print(1)", "stdin"), counted(new ExecutionResult(0, "", "1")));
+        coalescer.execute(request("print(2)", ""), counted(new ExecutionResult(0, "", "2")));
+
+        assertEquals(3, runs.get());
+    }
+
+    @Test
+    void failedRunIsNotKept() throws Exception {
+        ExecutionCoalescer coalescer = new ExecutionCoalescer(Duration.ofMinutes(1), 100);
+
+        IOException thrown = assertThrows(IOException.class, () -> coalescer.execute(REQUEST, () -> {
+            runs.incrementAndGet();
+            throw new IOException("engine unreachable");
+        }));
+        assertEquals("engine unreachable", thrown.getMessage());
+
+        ExecutionResult retried = coalescer.execute(REQUEST, counted(new ExecutionResult(0, "", "1")));
+        assertEquals("1", retried.programMessage());
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void fingerprintIgnoresFileOrderButNotBoundaries() {
+        SourceFile a = new SourceFile("a.py", "x = 1");
+        SourceFile b = new SourceFile("b.py", "y = 2");
+
+        assertEquals(ExecutionCoalescer.fingerprint(new ExecutionRequest("python", "main", List.of(a, b), "")),
+                ExecutionCoalescer.fingerprint(new ExecutionRequest("Python", "main", List.of(b, a), "")));
+        assertNotEquals(ExecutionCoalescer.fingerprint(new ExecutionRequest("python", "ab", List.of(), "c")),
+                ExecutionCoalescer.fingerprint(new ExecutionRequest("python", "a", List.of(), "bc")));
+    }
+
+    private ExecutionCoalescer.Run counted(ExecutionResult result) {
+        return () -> {
+            runs.incrementAndGet();
+            return result;
+        };
+    }
+
+    /** Waits until `count` pool threads are parked, i.e. blocked on the shared run. */
+    private static void awaitWaiting(ExecutorService pool, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().startsWith("pool-"))
+                .filter(thread -> thread.getState() == Thread.State.WAITING)
+                .filter(ExecutionCoalescerTests::isJoining)
+                .count() < count) {
+            if (System.currentTimeMillis() > deadline) throw new AssertionError("Callers did not join the run");
+            Thread.sleep(5);
+        }
+    }
+
+    private static boolean isJoining(Thread thread) {
+        for (StackTraceElement frame : thread.getStackTrace()) {
+            if (frame.getClassName().equals(CompletableFuture.class.getName())) return true;
+        }
+        return false;
+    }
+
+    private static ExecutionRequest request(String code, String stdin) {
+        return new ExecutionRequest("python", code, List.of(), stdin);
+    }
+}
@@ -0,0 +1,80 @@
+package com.vylop.backend.service;
+
+import com.vylop.backend.model.Room;
+import com.vylop.backend.model.RoomFile;
+import com.vylop.backend.model.User;
+import com.vylop.backend.repository.RoomFileDigest;
+import com.vylop.backend.repository.RoomFileRepository;
+import com.vylop.backend.repository.RoomRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WorkspaceAutosaveTests {
+
+    private final UUID roomId = UUID.randomUUID();
+    private final RoomRepository rooms = mock(RoomRepository.class);
+    private final RoomFileRepository files = mock(RoomFileRepository.class);
+    private final WorkspaceCache cache = mock(WorkspaceCache.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final WorkspaceService service = new WorkspaceService(rooms, files, null, null, cache, null, null, jdbcTemplate);
+
+    @Test
+    void changedFilesAreWrittenInOneBatch() {
+        when(rooms.findById(roomId)).thenReturn(Optional.of(new Room("room", new User("alice", "a@x", null), false)));
+        when(files.findDigestsByRoomId(roomId)).thenReturn(List.of(
+                digest("a.py", "print(1)"), digest("b.py", "print(2)"), digest("c.py", "print(3)")));
+        Map<String, String> live = new LinkedHashMap<>();
+        live.put("a.py", "print(10)");
+        live.put("b.py", "print(2)");
+        live.put("c.py", "print(30)");
+        live.put("d.py", "print(4)");
+
+        int written = service.autosaveFiles(roomId, live);
+
+        assertEquals(3, written);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), rows.capture());
+        assertEquals(2, rows.getValue().size());
+        assertEquals("print(10)", rows.getValue().get(0)[0]);
+        assertEquals(RoomFile.hashContent("print(30)"), rows.getValue().get(1)[1]);
+        verify(files).saveAll(anyList());
+        verify(cache).evictRoom(eq(roomId), eq("alice"));
+    }
+
+    @Test
+    void unchangedFilesAreNotWritten() {
+        when(rooms.findById(roomId)).thenReturn(Optional.of(new Room("room", new User("alice", "a@x", null), false)));
+        when(files.findDigestsByRoomId(roomId)).thenReturn(List.of(digest("a.py", "print(1)")));
+
+        assertEquals(0, service.autosaveFiles(roomId, Map.of("a.py", "print(1)")));
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    private static RoomFileDigest digest(String fileName, String content) {
+        UUID id = UUID.randomUUID();
+        String hash = RoomFile.hashContent(content);
+        return new RoomFileDigest() {
+            public UUID getId() { return id; }
+            public String getFileName() { return fileName; }
+            public String getContentHash() { return hash; }
+        };
+    }
+}
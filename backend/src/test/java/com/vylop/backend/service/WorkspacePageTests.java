@@ -0,0 +1,122 @@
+package com.vylop.backend.service;
+
+import com.vylop.backend.repository.RoomRepository;
+import com.vylop.backend.repository.RoomSummary;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class WorkspacePageTests {
+
+    private final RoomRepository rooms = mock(RoomRepository.class);
+    private final WorkspaceService service = new WorkspaceService(rooms, null, null, null, null, null, null, null);
+
+    @Test
+    void cursorRoundTrips() {
+        WorkspaceService.PageCursor cursor = new WorkspaceService.PageCursor(
+                LocalDateTime.of(2026, 3, 1, 12, 0, 0, 123_456_000), UUID.randomUUID());
+
+        String encoded = cursor.encode();
+
+        assertTrue(encoded.matches("[A-Za-z0-9_-]+"), "URL-safe without padding: " + encoded);
+        assertEquals(cursor, WorkspaceService.PageCursor.decode(encoded));
+    }
+
+    @Test
+    void cursorAtWholeMinuteRoundTrips() {
+        // LocalDateTime.toString drops zero seconds; parse must still accept it
+        WorkspaceService.PageCursor cursor = new WorkspaceService.PageCursor(LocalDateTime.of(2026, 3, 1, 12, 0), UUID.randomUUID());
+
+        assertEquals(cursor, WorkspaceService.PageCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void malformedCursorsAreRejected() {
+        assertNull(WorkspaceService.PageCursor.decode("not base64 !"));
+        assertNull(WorkspaceService.PageCursor.decode(base64("2026-03-01T12:00")));
+        assertNull(WorkspaceService.PageCursor.decode(base64("yesterday|" + UUID.randomUUID())));
+        assertNull(WorkspaceService.PageCursor.decode(base64("2026-03-01T12:00|not-a-uuid")));
+    }
+
+    @Test
+    void invalidCursorIsAnErrorWithoutQuerying() {
+        Map<String, Object> page = service.getUserWorkspacePage("alice", "%%%", 20, null);
+
+        assertEquals("Error: Invalid cursor.", page.get("message"));
+        verifyNoInteractions(rooms);
+    }
+
+    @Test
+    void likeWildcardsInSearchAreLiteral() {
+        assertEquals("100!% done", WorkspaceService.escapeLike("100% done"));
+        assertEquals("my!_room", WorkspaceService.escapeLike("my_room"));
+        assertEquals("wow!!!%", WorkspaceService.escapeLike("wow!%"));
+    }
+
+    @Test
+    void searchIsLowercasedEscapedAndWrapped() {
+        when(rooms.findPageByHost(anyString(), anyString(), any(), any(), any())).thenReturn(List.of());
+
+        service.getUserWorkspacePage("alice", null, 20, "  My_Room ");
+
+        verify(rooms).findPageByHost(eq("alice"), eq("%my!_room%"), eq(WorkspaceService.PageCursor.FIRST.createdAt()),
+                eq(WorkspaceService.PageCursor.FIRST.id()), eq(Limit.of(21)));
+    }
+
+    @Test
+    void extraRowBecomesTheNextCursor() {
+        List<RoomSummary> rows = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            rows.add(summary(UUID.randomUUID(), "room " + i, LocalDateTime.of(2026, 3, 10 - i, 9, 30)));
+        }
+        when(rooms.findPageByHost(anyString(), anyString(), any(), any(), eq(Limit.of(4)))).thenReturn(rows);
+
+        Map<String, Object> page = service.getUserWorkspacePage("alice", null, 3, null);
+
+        assertEquals(3, ((List<?>) page.get("items")).size());
+        RoomSummary last = rows.get(2);
+        assertEquals(new WorkspaceService.PageCursor(last.getCreatedAt(), last.getId()),
+                WorkspaceService.PageCursor.decode((String) page.get("nextCursor")));
+    }
+
+    @Test
+    void lastPageHasNoCursorAndLimitIsCapped() {
+        when(rooms.findPageByHost(anyString(), anyString(), any(), any(), any())).thenReturn(List.of());
+
+        Map<String, Object> page = service.getUserWorkspacePage("alice", null, 10_000, null);
+
+        assertTrue(page.containsKey("nextCursor"));
+        assertNull(page.get("nextCursor"));
+        verify(rooms).findPageByHost(anyString(), anyString(), any(), any(), eq(Limit.of(101)));
+    }
+
+    private static String base64(String text) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static RoomSummary summary(UUID id, String name, LocalDateTime createdAt) {
+        return new RoomSummary() {
+            public UUID getId() { return id; }
+            public String getName() { return name; }
+            public LocalDateTime getCreatedAt() { return createdAt; }
+        };
+    }
+}
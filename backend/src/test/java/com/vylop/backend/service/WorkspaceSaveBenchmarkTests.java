@@ -0,0 +1,137 @@
+package com.vylop.backend.service;
+
+import com.vylop.backend.dto.WorkspaceDeltaRequest;
+import com.vylop.backend.model.RoomFile;
+import com.vylop.backend.model.User;
+import com.vylop.backend.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Save latency, statement count and payload size against workspace size.
+ * Needs the local Postgres from application.properties; run with
+ * {@code mvn test -Dtest=WorkspaceSaveBenchmarkTests -Dvylop.bench=true}.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+})
+@EnabledIfSystemProperty(named = "vylop.bench", matches = "true")
+class WorkspaceSaveBenchmarkTests {
+
+    private static final int[] FILE_COUNTS = { 10, 50, 200, 1000 };
+    private static final int ROUNDS = 5;
+
+    @Autowired
+    private WorkspaceService workspaceService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void saveLatencyByFileCount() {
+        String username = "bench-" + UUID.randomUUID().toString().substring(0, 8);
+        userRepository.save(new User(username, username + "@bench.local", "x"));
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        System.out.printf("%8s %14s %10s %14s %10s%n", "files", "first save ms", "stmts", "edit save ms", "stmts");
+        for (int fileCount : FILE_COUNTS) {
+            long firstNanos = 0, editNanos = 0, firstStatements = 0, editStatements = 0;
+
+            for (int round = 0; round < ROUNDS; round++) {
+                UUID roomId = UUID.randomUUID();
+                Map<String, String> files = workspace(fileCount, 0);
+
+                statistics.clear();
+                long started = System.nanoTime();
+                assertEquals("Workspace saved successfully!", workspaceService.saveWorkspace(roomId, username, "bench", files));
+                firstNanos += System.nanoTime() - started;
+                firstStatements += statistics.getPrepareStatementCount();
+
+                // Typical follow-up save: one file edited, one added, one removed
+                files.put("src/File0.java", "// edited\n" + files.get("src/File0.java"));
+                files.put("src/Added.java", "class Added {}");
+                files.remove("src/File1.java");
+
+                statistics.clear();
+                started = System.nanoTime();
+                workspaceService.saveWorkspace(roomId, username, "bench", files);
+                editNanos += System.nanoTime() - started;
+                editStatements += statistics.getPrepareStatementCount();
+
+                workspaceService.deleteWorkspace(roomId, username);
+            }
+
+            System.out.printf("%8d %14.1f %10d %14.1f %10d%n", fileCount,
+                    firstNanos / 1e6 / ROUNDS, firstStatements / ROUNDS,
+                    editNanos / 1e6 / ROUNDS, editStatements / ROUNDS);
+        }
+
+        userRepository.findByUsername(username).ifPresent(userRepository::delete);
+    }
+
+    @Test
+    void deltaSaveSendsAndWritesOnlyChangedFiles() {
+        String username = "bench-" + UUID.randomUUID().toString().substring(0, 8);
+        userRepository.save(new User(username, username + "@bench.local", "x"));
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        System.out.printf("%8s %14s %14s %14s %10s%n", "files", "full bytes", "delta bytes", "delta save ms", "stmts");
+        for (int fileCount : FILE_COUNTS) {
+            UUID roomId = UUID.randomUUID();
+            Map<String, String> files = workspace(fileCount, 0);
+            workspaceService.saveWorkspace(roomId, username, "bench", files);
+
+            Map<String, String> manifest = new HashMap<>();
+            files.forEach((name, content) -> manifest.put(name, RoomFile.hashContent(content)));
+
+            // One line changed in one file
+            String edited = files.get("src/File0.java") + "// edited\n";
+            files.put("src/File0.java", edited);
+            manifest.put("src/File0.java", RoomFile.hashContent(edited));
+
+            WorkspaceDeltaRequest request = new WorkspaceDeltaRequest();
+            request.setManifest(manifest);
+            request.setFiles(Map.of("src/File0.java", edited));
+
+            statistics.clear();
+            long started = System.nanoTime();
+            Map<String, Object> result = workspaceService.saveWorkspaceDelta(roomId, username, "bench", request);
+            long elapsedNanos = System.nanoTime() - started;
+            assertEquals(1, result.get("written"));
+
+            long fullBytes = files.values().stream().mapToLong(String::length).sum();
+            long deltaBytes = edited.length() + manifest.size() * 64L;
+            System.out.printf("%8d %14d %14d %14.1f %10d%n", fileCount, fullBytes, deltaBytes,
+                    elapsedNanos / 1e6, statistics.getPrepareStatementCount());
+
+            workspaceService.deleteWorkspace(roomId, username);
+        }
+
+        userRepository.findByUsername(username).ifPresent(userRepository::delete);
+    }
+
+    private static Map<String, String> workspace(int fileCount, int seed) {
+        Map<String, String> files = new LinkedHashMap<>();
+        for (int i = 0; i < fileCount; i++) {
+            files.put("src/File" + i + ".java", ("class File" + i + " { int v = " + seed + "; }\n").repeat(40));
+        }
+        return files;
+    }
+}
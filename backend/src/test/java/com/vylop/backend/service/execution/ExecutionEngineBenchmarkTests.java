@@ -0,0 +1,76 @@
+package com.vylop.backend.service.execution;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Run latency of the Wandbox and local engines on the same snippets. Needs network access
+ * for Wandbox and python3/javac/g++ on PATH for the local engine; run with
+ * {@code mvn test -Dtest=ExecutionEngineBenchmarkTests -Dvylop.bench=true}.
+ */
+@EnabledIfSystemProperty(named = "vylop.bench", matches = "true")
+class ExecutionEngineBenchmarkTests {
+
+    private static final int RUNS = 20;
+    // Untimed gap between warm runs, long enough for a used worker's replacement to start
+    private static final long WORKER_REFILL_MS = 3_000;
+
+    private static final Map<String, String> SNIPPETS = Map.of(
+            "python", "print(sum(int(x) for x in input().split()))",
+            "java", "public class prog { public static void main(String[] args) { "
+                    + "java.util.Scanner sc = new java.util.Scanner(System.in); "
+                    + "System.out.println(sc.nextInt() + sc.nextInt()); } }",
+            "cpp", "#include <iostream>\nint main() { int a, b; std::cin >> a >> b; std::cout << a + b << std::endl; }"
+    );
+
+    @Test
+    void compareLatency() throws Exception {
+        ExecutionEngine local = new LocalExecutionEngine(30_000, 10_000, 256, 65_536, 4, List.of());
+        LocalExecutionEngine warm = new LocalExecutionEngine(30_000, 10_000, 256, 65_536, 4, List.of(), 2, 0);
+        ExecutionEngine wandbox = new WandboxExecutionEngine();
+
+        try {
+            System.out.printf("%-12s %-8s %10s %10s%n", "engine", "language", "p50 ms", "p99 ms");
+            for (String language : List.of("python", "java", "cpp")) {
+                report("local", language, measure(local, language, 0));
+                report("wandbox", language, measure(wandbox, language, 0));
+            }
+            // Back to back, runs would mostly find both workers used and go cold
+            report("local-warm", "java", measure(warm, "java", WORKER_REFILL_MS));
+        } finally {
+            warm.close();
+        }
+    }
+
+    private static long[] measure(ExecutionEngine engine, String language, long pauseMs) throws Exception {
+        ExecutionRequest request = new ExecutionRequest(language, SNIPPETS.get(language), List.of(), "2 3");
+        // Warm-up: DNS, TLS, compiler list, page cache
+        engine.execute(request);
+
+        long[] millis = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            Thread.sleep(pauseMs);
+            long started = System.nanoTime();
+            ExecutionResult result = engine.execute(request);
+            millis[i] = (System.nanoTime() - started) / 1_000_000;
+
+            assertNotNull(result);
+            assertEquals("5", result.programMessage().trim(), language + ": " + result);
+        }
+        Arrays.sort(millis);
+        return millis;
+    }
+
+    private static void report(String engine, String language, long[] sortedMillis) {
+        long p50 = sortedMillis[(int) Math.ceil(0.50 * sortedMillis.length) - 1];
+        long p99 = sortedMillis[(int) Math.ceil(0.99 * sortedMillis.length) - 1];
+        System.out.printf("%-12s %-8s %10d %10d%n", engine, language, p50, p99);
+    }
+}
@@ -0,0 +1,87 @@
+package com.vylop.backend.service.execution;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Time and allocation per prepared run on large multi-file workspaces, with and without
+ * environment secrets. No network or toolchains needed; run with
+ * {@code mvn test -Dtest=ProgramPreparerBenchmarkTests -Dvylop.bench=true}.
+ */
+@EnabledIfSystemProperty(named = "vylop.bench", matches = "true")
+class ProgramPreparerBenchmarkTests {
+
+    private static final int[] FILE_COUNTS = { 10, 100, 1000 };
+    private static final int FILE_CHARS = 4 * 1024;
+    private static final int WARMUP = 2_000;
+    private static final int ITERATIONS = 5_000;
+
+    @Test
+    void preparationCostByWorkspaceSize() {
+        ProgramPreparer preparer = new ProgramPreparer();
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Map<String, String> env = Map.of("API_KEY", "sk-\"quoted\"-value", "DB_URL", "postgres://bench", "MODE", "test");
+
+        System.out.printf("%-8s %8s %6s %12s %14s%n", "language", "files", "env", "us/op", "alloc KiB/op");
+        for (String language : new String[] { "java", "python", "cpp" }) {
+            for (int fileCount : FILE_COUNTS) {
+                Map<String, String> files = workspace(language, fileCount);
+                String code = files.values().iterator().next();
+                for (Map<String, String> envVars : List.of(Map.<String, String>of(), env)) {
+                    int expectedFiles = fileCount - 1 + (envVars.isEmpty() ? 0 : 1)
+                            + (language.equals("cpp") && !envVars.isEmpty() ? 1 : 0)
+                            + (language.equals("java") ? 1 : 0);
+
+                    long sink = 0;
+                    for (int i = 0; i < WARMUP; i++) {
+                        sink += preparer.prepare(language, code, "", mainFile(language), files, envVars).files().size();
+                    }
+
+                    long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+                    long started = System.nanoTime();
+                    // Every result feeds the sink, so the JIT cannot drop any iteration's work
+                    for (int i = 0; i < ITERATIONS; i++) {
+                        sink += preparer.prepare(language, code, "", mainFile(language), files, envVars).files().size();
+                    }
+                    long nanos = System.nanoTime() - started;
+                    long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+                    assertEquals((long) expectedFiles * (WARMUP + ITERATIONS), sink);
+                    System.out.printf("%-8s %8d %6s %12.1f %14.1f%n", language, fileCount, !envVars.isEmpty(),
+                            nanos / 1_000.0 / ITERATIONS, allocated / 1024.0 / ITERATIONS);
+                }
+            }
+        }
+    }
+
+    private static String mainFile(String language) {
+        return switch (language) {
+            case "java" -> "Main.java";
+            case "python" -> "main.py";
+            default -> "main.cpp";
+        };
+    }
+
+    /** The main file first, then helpers; plus a few files of other languages that must be dropped. */
+    private static Map<String, String> workspace(String language, int fileCount) {
+        String extension = mainFile(language).substring(mainFile(language).indexOf('.'));
+        Map<String, String> files = new LinkedHashMap<>();
+        String filler = "x".repeat(FILE_CHARS);
+        files.put(mainFile(language), language.equals("java")
+                ? "import java.util.*;\n\npublic class Main {\n    public static void main(String[] args) { }\n}\n// " + filler
+                : "// main\n" + filler);
+        for (int i = 1; i < fileCount; i++) {
+            files.put("src/helper" + i + extension, "// helper " + i + "\n" + filler);
+        }
+        files.put("README.md", filler);
+        files.put("notes.txt", filler);
+        return files;
+    }
+}
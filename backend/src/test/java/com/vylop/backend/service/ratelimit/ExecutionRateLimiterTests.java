@@ -0,0 +1,44 @@
+package com.vylop.backend.service.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * User and room buckets together, against a clock that never moves: one run per user, two
+ * per room.
+ */
+class ExecutionRateLimiterTests {
+
+    private final AtomicLong now = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+    private final ExecutionRateLimiter limiter =
+            new ExecutionRateLimiter(new LocalRateLimiter(1_000, now::get), 1, 1, 2, 1);
+
+    @Test
+    void roomRefusalLeavesTheUserTokenUnspent() {
+        assertEquals(0, limiter.tryAcquire("alice", "room"));
+        assertEquals(0, limiter.tryAcquire("bob", "room"));
+
+        assertTrue(limiter.tryAcquire("carol", "room") > 0);
+        assertEquals(0, limiter.tryAcquire("carol", "other-room"));
+    }
+
+    @Test
+    void userRefusalLeavesTheRoomTokenUnspent() {
+        assertEquals(0, limiter.tryAcquire("alice", "room"));
+
+        assertTrue(limiter.tryAcquire("alice", "room") > 0);
+        assertEquals(0, limiter.tryAcquire("bob", "room"));
+    }
+
+    @Test
+    void runsOutsideARoomOnlyCountAgainstTheUser() {
+        assertEquals(0, limiter.tryAcquire("alice", null));
+        assertTrue(limiter.tryAcquire("alice", null) > 0);
+        assertEquals(0, limiter.tryAcquire("bob", "room"));
+    }
+}
@@ -0,0 +1,96 @@
+package com.vylop.backend.service.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The bucket arithmetic against a hand-driven clock: 3 tokens, one more per second.
+ */
+class LocalRateLimiterTests {
+
+    private final RateLimitPolicy policy = new RateLimitPolicy("user", 3, 1.0);
+    private final AtomicLong now = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+    private final LocalRateLimiter limiter = new LocalRateLimiter(1_000, now::get);
+
+    @Test
+    void grantsTheBurstThenRefuses() {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire(policy, "alice"));
+        }
+        assertEquals(1_000, limiter.tryAcquire(policy, "alice"));
+    }
+
+    @Test
+    void refillsOneTokenPerInterval() {
+        drain("alice");
+
+        advance(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(0, limiter.tryAcquire(policy, "alice"));
+        assertEquals(1_000, limiter.tryAcquire(policy, "alice"));
+
+        advance(TimeUnit.SECONDS.toNanos(2));
+        assertEquals(0, limiter.tryAcquire(policy, "alice"));
+        assertEquals(0, limiter.tryAcquire(policy, "alice"));
+        assertEquals(1_000, limiter.tryAcquire(policy, "alice"));
+    }
+
+    @Test
+    void retryAfterIsTheTimeToTheNextToken() {
+        drain("alice");
+
+        advance(TimeUnit.MILLISECONDS.toNanos(400));
+        assertEquals(600, limiter.tryAcquire(policy, "alice"));
+
+        // Rounded up, so a client that waits that long is never refused again
+        advance(500);
+        assertEquals(600, limiter.tryAcquire(policy, "alice"));
+
+        advance(TimeUnit.MILLISECONDS.toNanos(600));
+        assertEquals(0, limiter.tryAcquire(policy, "alice"));
+    }
+
+    @Test
+    void refusalsDoNotPushTheNextTokenBack() {
+        drain("alice");
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire(policy, "alice");
+        }
+
+        advance(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(0, limiter.tryAcquire(policy, "alice"));
+    }
+
+    @Test
+    void idleBucketHoldsNoMoreThanItsCapacity() {
+        drain("alice");
+
+        advance(TimeUnit.HOURS.toNanos(1));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire(policy, "alice"));
+        }
+        assertEquals(1_000, limiter.tryAcquire(policy, "alice"));
+    }
+
+    @Test
+    void keysAndPoliciesHaveTheirOwnBuckets() {
+        drain("alice");
+
+        assertEquals(0, limiter.tryAcquire(policy, "bob"));
+        assertEquals(0, limiter.tryAcquire(new RateLimitPolicy("room", 1, 1.0), "alice"));
+        assertEquals(3, limiter.size());
+    }
+
+    private void drain(String key) {
+        for (int i = 0; i < policy.capacity(); i++) {
+            assertEquals(0, limiter.tryAcquire(policy, key));
+        }
+    }
+
+    private void advance(long nanos) {
+        now.addAndGet(nanos);
+    }
+}
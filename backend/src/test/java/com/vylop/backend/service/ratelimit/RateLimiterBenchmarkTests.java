@@ -0,0 +1,81 @@
+package com.vylop.backend.service.ratelimit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Throughput of the in-memory limiter across many distinct keys and threads, plus a check that
+ * a single hot key never over-grants under contention. No Spring context or database; run with
+ * {@code mvn test -Dtest=RateLimiterBenchmarkTests -Dvylop.bench=true}.
+ */
+@EnabledIfSystemProperty(named = "vylop.bench", matches = "true")
+class RateLimiterBenchmarkTests {
+
+    private static final int[] KEY_COUNTS = { 1_000, 100_000, 500_000 };
+    private static final int OPS_PER_THREAD = 1_000_000;
+
+    @Test
+    void throughputByKeyCount() throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors();
+        RateLimitPolicy policy = new RateLimitPolicy("bench", 3, 20.0 / 60);
+
+        System.out.printf("%10s %8s %14s %12s %12s%n", "keys", "threads", "ops/s", "allowed", "held keys");
+        for (int keyCount : KEY_COUNTS) {
+            LocalRateLimiter limiter = new LocalRateLimiter(1_000_000);
+            String[] keys = new String[keyCount];
+            for (int i = 0; i < keyCount; i++) keys[i] = "ip:10." + (i >> 16) + "." + ((i >> 8) & 255) + "." + (i & 255);
+
+            AtomicLong allowed = new AtomicLong();
+            long started = System.nanoTime();
+            try (ExecutorService pool = Executors.newFixedThreadPool(threads)) {
+                List<Future<?>> running = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    running.add(pool.submit(() -> {
+                        ThreadLocalRandom random = ThreadLocalRandom.current();
+                        long granted = 0;
+                        for (int op = 0; op < OPS_PER_THREAD; op++) {
+                            if (limiter.tryAcquire(policy, keys[random.nextInt(keyCount)]) == 0) granted++;
+                        }
+                        allowed.addAndGet(granted);
+                    }));
+                }
+                for (Future<?> future : running) future.get();
+            }
+            double seconds = (System.nanoTime() - started) / 1e9;
+
+            System.out.printf("%10d %8d %14.0f %12d %12d%n", keyCount, threads,
+                    threads * (double) OPS_PER_THREAD / seconds, allowed.get(), limiter.size());
+            // Each key grants its burst plus whatever refilled during the run
+            assertTrue(allowed.get() <= keyCount * (policy.capacity() + (long) (seconds * policy.refillPerSecond()) + 1));
+        }
+    }
+
+    @Test
+    void hotKeyGrantsExactlyTheBurst() throws Exception {
+        RateLimitPolicy policy = new RateLimitPolicy("hot", 100, 1.0 / 3600);
+        LocalRateLimiter limiter = new LocalRateLimiter(1_000);
+        AtomicLong allowed = new AtomicLong();
+
+        try (ExecutorService pool = Executors.newFixedThreadPool(16)) {
+            for (int t = 0; t < 16; t++) {
+                pool.submit(() -> {
+                    for (int op = 0; op < 10_000; op++) {
+                        if (limiter.tryAcquire(policy, "room-1") == 0) allowed.incrementAndGet();
+                    }
+                });
+            }
+        }
+        assertEquals(100, allowed.get());
+    }
+}
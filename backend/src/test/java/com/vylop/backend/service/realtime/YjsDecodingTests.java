@@ -0,0 +1,140 @@
+package com.vylop.backend.service.realtime;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Updates as yjs 13.6 encodes them (v1). Client ids are the random 32-bit kind Yjs assigns,
+ * so every id is a multi-byte varint.
+ */
+class YjsDecodingTests {
+
+    private static final long A = 2873947401L;
+    private static final long B = 1205083912L;
+
+    // Y.encodeStateAsUpdate after text('t').insert(0, 'hello')
+    private static final byte[] INSERT = hex("010189eab3da0a00040101740568656c6c6f00");
+
+    // ... after insert(0, 'hello world'), delete(5, 6): 'hello', then 6 deleted units, and the delete set
+    private static final byte[] DELETE = hex(
+            "010289eab3da0a00040101740568656c6c6f8189eab3da0a04060189eab3da0a010506");
+
+    // ... after array('a').insert(0, [new Y.Text()]), that text.insert(0, 'hi'), array.delete(0, 1):
+    // the deleted type keeps its item, its children are collected into one GC struct
+    private static final byte[] GC = hex("010289eab3da0a00010101610100020189eab3da0a010003");
+
+    // Y.mergeUpdates of 'hello' (clocks 0-4) and a later '!' (clock 11): a Skip struct fills the gap
+    private static final byte[] SKIP = hex(
+            "010389eab3da0a00040101740568656c6c6f0a068489eab3da0a0a012100");
+
+    // Doc A inserts 'ab', doc B appends 'c', A deletes 'a'; A's state after syncing B
+    private static final byte[] MULTI = hex(
+            "020289eab3da0a0001010174018489eab3da0a0001620188bed0be04008489eab3da0a0101630189eab3da0a010001");
+    // Y.encodeStateVector of that doc
+    private static final byte[] MULTI_STATE_VECTOR = hex("0289eab3da0a0288bed0be0401");
+
+    // map('m') set n = 42, o = {a: [true, null], s: 'x'}, b = Uint8Array [1, 2, 3], x = new Y.XmlElement('div'),
+    // then text('t').insert(0, 'ab', {bold: true}): ContentAny, Binary, Type, Format and String structs
+    private static final byte[] MIXED = hex(
+            "010789eab3da0a002801016d016e017d2a2801016d016f01760201617502787e01737701782301016d0162030102"
+            + "032701016d017803036469760601017404626f6c6404747275658489eab3da0a040261628689eab3da0a0604626f"
+            + "6c64046e756c6c00");
+
+    @Test
+    void insertEndsAtTheLastClock() {
+        YjsUpdateSummary summary = YjsDecoding.summarize(INSERT);
+
+        assertTrue(summary.isDecoded());
+        assertEquals(Map.of(A, 5L), summary.getEndClocks());
+        assertFalse(summary.hasDeletes());
+        assertTrue(summary.isMissingFrom(Map.of()));
+        assertTrue(summary.isMissingFrom(Map.of(A, 4L)));
+        assertFalse(summary.isMissingFrom(Map.of(A, 5L)));
+    }
+
+    @Test
+    void deletedRangesAreRead() {
+        YjsUpdateSummary summary = YjsDecoding.summarize(DELETE);
+
+        assertEquals(Map.of(A, 11L), summary.getEndClocks());
+        assertTrue(summary.hasDeletes());
+        // Deletions carry no clock, so they are always offered again
+        assertTrue(summary.isMissingFrom(Map.of(A, 11L)));
+        assertTrue(summary.isCoveredBy(summary));
+        assertFalse(summary.isCoveredBy(YjsDecoding.summarize(INSERT)));
+        assertTrue(YjsDecoding.summarize(INSERT).isCoveredBy(summary));
+    }
+
+    @Test
+    void garbageCollectedStructsCountTheirLength() {
+        YjsUpdateSummary summary = YjsDecoding.summarize(GC);
+
+        assertEquals(Map.of(A, 3L), summary.getEndClocks());
+        assertTrue(summary.hasDeletes());
+    }
+
+    @Test
+    void skipStructsCountTheirLength() {
+        YjsUpdateSummary summary = YjsDecoding.summarize(SKIP);
+
+        assertEquals(Map.of(A, 12L), summary.getEndClocks());
+        assertFalse(summary.hasDeletes());
+    }
+
+    @Test
+    void everyClientIsTracked() {
+        YjsUpdateSummary summary = YjsDecoding.summarize(MULTI);
+
+        assertEquals(Map.of(A, 2L, B, 1L), summary.getEndClocks());
+        assertEquals(summary.getEndClocks(), YjsDecoding.decodeStateVector(MULTI_STATE_VECTOR));
+        assertTrue(YjsDecoding.summarize(DELETE).isMissingFrom(YjsDecoding.decodeStateVector(MULTI_STATE_VECTOR)));
+    }
+
+    @Test
+    void everyContentKindIsSkipped() {
+        assertEquals(Map.of(A, 8L), YjsDecoding.summarize(MIXED).getEndClocks());
+    }
+
+    @Test
+    void emptyStateVectorIsEmpty() {
+        assertEquals(Map.of(), YjsDecoding.decodeStateVector(new byte[0]));
+        assertEquals(Map.of(), YjsDecoding.decodeStateVector(hex("00")));
+    }
+
+    @Test
+    void truncatedInputIsRejected() {
+        for (byte[] update : List.of(INSERT, DELETE, GC, SKIP, MULTI, MIXED)) {
+            for (int length = 0; length < update.length; length++) {
+                byte[] truncated = Arrays.copyOf(update, length);
+                assertThrows(IllegalArgumentException.class, () -> YjsDecoding.summarize(truncated),
+                        "accepted " + length + " of " + update.length + " bytes");
+            }
+        }
+        for (int length = 1; length < MULTI_STATE_VECTOR.length; length++) {
+            byte[] truncated = Arrays.copyOf(MULTI_STATE_VECTOR, length);
+            assertThrows(IllegalArgumentException.class, () -> YjsDecoding.decodeStateVector(truncated));
+        }
+    }
+
+    @Test
+    void unknownContentIsRejected() {
+        byte[] update = INSERT.clone();
+        update[8] = 0x0B; // info byte of the only struct
+
+        assertThrows(IllegalArgumentException.class, () -> YjsDecoding.summarize(update));
+        assertFalse(YjsDecoding.summarizeOrOpaque(update).isDecoded());
+    }
+
+    private static byte[] hex(String hex) {
+        return HexFormat.of().parseHex(hex);
+    }
+}
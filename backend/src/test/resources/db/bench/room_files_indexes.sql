@@ -0,0 +1,175 @@
+-- Query plans and latency of the workspace queries before and after V7's indexes.
+--
+-- Builds 10k rooms / 1M files in a scratch schema (nothing in public is touched), runs each
+-- query the repositories issue with EXPLAIN (ANALYZE, BUFFERS), adds the V7 indexes and runs
+-- them again. Repeatable: the data is generated deterministically and the schema is dropped
+-- at the end. Takes a few minutes and ~500 MB of disk on a laptop.
+--
+--   psql -d vylopdb -v ON_ERROR_STOP=1 -f src/test/resources/db/bench/room_files_indexes.sql
+--
+-- Optional: -v rooms=10000 -v files_per_room=100 -v heavy_rooms=50000
+
+\if :{?rooms}
+\else
+    \set rooms 10000
+\endif
+\if :{?files_per_room}
+\else
+    \set files_per_room 100
+\endif
+\if :{?heavy_rooms}
+\else
+    \set heavy_rooms 50000
+\endif
+
+\timing off
+DROP SCHEMA IF EXISTS vylop_bench CASCADE;
+CREATE SCHEMA vylop_bench;
+SET search_path = vylop_bench;
+
+-- Same shape as V1..V4 without V7's indexes
+CREATE TABLE users (
+    id UUID PRIMARY KEY,
+    username VARCHAR(255) NOT NULL UNIQUE,
+    email VARCHAR(255) NOT NULL UNIQUE,
+    password VARCHAR(255) NOT NULL,
+    created_at TIMESTAMP
+);
+CREATE TABLE rooms (
+    id UUID PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    host_id UUID NOT NULL REFERENCES users(id),
+    is_private BOOLEAN NOT NULL DEFAULT false,
+    created_at TIMESTAMP
+);
+CREATE TABLE room_files (
+    id UUID PRIMARY KEY,
+    room_id UUID NOT NULL REFERENCES rooms(id),
+    file_name VARCHAR(255) NOT NULL,
+    content TEXT,
+    language VARCHAR(50) NOT NULL,
+    updated_at TIMESTAMP,
+    content_hash VARCHAR(64),
+    content_size INTEGER
+);
+
+\echo 'Loading' :rooms 'rooms x' :files_per_room 'files...'
+-- One host per 10 rooms
+INSERT INTO users (id, username, email, password, created_at)
+SELECT md5('user' || u)::uuid, 'user' || u, 'user' || u || '@bench.local', 'x', now() - u * interval '1 minute'
+FROM generate_series(1, greatest(1, :rooms / 10)) u;
+
+INSERT INTO rooms (id, name, host_id, created_at)
+SELECT md5('room' || r)::uuid, 'Room ' || r, md5('user' || (1 + r % greatest(1, :rooms / 10)))::uuid,
+       now() - r * interval '1 second'
+FROM generate_series(1, :rooms) r;
+
+-- One host with many (empty) rooms, so keyset pages far from the first one can be measured.
+-- Every 100th room shares its created_at with the next, as rooms created in the same instant do.
+INSERT INTO users (id, username, email, password, created_at)
+VALUES (md5('heavy')::uuid, 'heavy', 'heavy@bench.local', 'x', now());
+INSERT INTO rooms (id, name, host_id, created_at)
+SELECT md5('heavy' || r)::uuid, 'Heavy ' || r, md5('heavy')::uuid,
+       now() - (r - (r % 100 = 1)::int) * interval '1 second'
+FROM generate_series(1, :heavy_rooms) r;
+
+INSERT INTO room_files (id, room_id, file_name, content, language, updated_at, content_hash, content_size)
+SELECT md5('file' || r || '/' || f)::uuid, md5('room' || r)::uuid, 'src/File' || f || '.java',
+       repeat('class File' || f || ' { }' || chr(10), 10), 'java', now(),
+       md5('content' || r || '/' || f) || md5('content' || f || '/' || r), 150
+FROM generate_series(1, :rooms) r, generate_series(1, :files_per_room) f;
+
+VACUUM ANALYZE users;
+VACUUM ANALYZE rooms;
+VACUUM ANALYZE room_files;
+
+-- The statements Hibernate issues for RoomFileRepository / RoomRepository, for a room in the middle
+SELECT md5('room' || (:rooms / 2))::uuid AS room_id \gset
+SELECT 'user' || (1 + (:rooms / 2) % greatest(1, :rooms / 10)) AS host \gset
+
+PREPARE find_by_room_id(uuid) AS
+    SELECT id, content, content_hash, content_size, file_name, language, room_id, updated_at
+    FROM room_files WHERE room_id = $1;
+PREPARE find_by_room_id_and_file_name(uuid, varchar) AS
+    SELECT id, content, content_hash, content_size, file_name, language, room_id, updated_at
+    FROM room_files WHERE room_id = $1 AND file_name = $2;
+PREPARE find_digests_by_room_id(uuid) AS
+    SELECT id, file_name, content_hash FROM room_files WHERE room_id = $1;
+PREPARE find_manifest_by_room_id(uuid) AS
+    SELECT file_name, language, content_size, content_hash, updated_at FROM room_files WHERE room_id = $1;
+PREPARE find_rooms_by_host(varchar) AS
+    SELECT r.id, r.created_at, r.host_id, r.is_private, r.name
+    FROM rooms r LEFT JOIN users h ON h.id = r.host_id
+    WHERE h.username = $1 ORDER BY r.created_at DESC;
+-- RoomRepository.findPageByHost, and the expanded OR form it replaced, which Postgres can only apply as a Filter
+PREPARE find_page_by_host(varchar, timestamp, uuid) AS
+    SELECT r.id, r.name, r.created_at
+    FROM rooms r JOIN users h ON h.id = r.host_id
+    WHERE h.username = $1 AND lower(r.name) LIKE '%' ESCAPE '!'
+      AND (r.created_at, r.id) < ($2, $3)
+    ORDER BY r.created_at DESC, r.id DESC LIMIT 21;
+PREPARE find_page_by_host_or(varchar, timestamp, uuid) AS
+    SELECT r.id, r.name, r.created_at
+    FROM rooms r JOIN users h ON h.id = r.host_id
+    WHERE h.username = $1 AND lower(r.name) LIKE '%' ESCAPE '!'
+      AND (r.created_at < $2 OR (r.created_at = $2 AND r.id < $3))
+    ORDER BY r.created_at DESC, r.id DESC LIMIT 21;
+
+-- Cursors: before everything (first page), and the last row of the page 4/5 of the way down
+SELECT timestamp '9999-12-31' AS first_at, 'ffffffff-ffff-ffff-ffff-ffffffffffff'::uuid AS first_id \gset
+SELECT created_at AS deep_at, id AS deep_id FROM rooms WHERE host_id = md5('heavy')::uuid
+ORDER BY created_at DESC, id DESC OFFSET (:heavy_rooms * 4 / 5) LIMIT 1 \gset
+
+\echo
+\echo '========== BEFORE (V1..V6 indexes only) =========='
+\echo '--- findByRoomId'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF) EXECUTE find_by_room_id(:'room_id');
+\echo '--- findByRoomIdAndFileName'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF) EXECUTE find_by_room_id_and_file_name(:'room_id', 'src/File7.java');
+\echo '--- findDigestsByRoomId'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF) EXECUTE find_digests_by_room_id(:'room_id');
+\echo '--- findManifestByRoomId'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF) EXECUTE find_manifest_by_room_id(:'room_id');
+\echo '--- findByHostUsernameOrderByCreatedAtDesc'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF) EXECUTE find_rooms_by_host(:'host');
+\echo '--- findPageByHost, first page of 20'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF) EXECUTE find_page_by_host('heavy', :'first_at', :'first_id');
+\echo '--- findPageByHost, page of 20 deep into the heavy host (cost should match the first page)'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF) EXECUTE find_page_by_host('heavy', :'deep_at', :'deep_id');
+\echo '--- same deep page with the OR predicate (walks every earlier entry as a Filter)'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF) EXECUTE find_page_by_host_or('heavy', :'deep_at', :'deep_id');
+
+\echo
+\echo 'Applying V7 indexes...'
+\timing on
+CREATE UNIQUE INDEX uq_room_files_room_id_file_name
+    ON room_files (room_id, file_name)
+    INCLUDE (id, content_hash, content_size, language, updated_at);
+CREATE INDEX idx_rooms_host_id_created_at_id
+    ON rooms (host_id, created_at DESC, id DESC);
+\timing off
+-- Sets the visibility map so the covering index really answers without the heap
+VACUUM ANALYZE room_files;
+VACUUM ANALYZE rooms;
+
+\echo
+\echo '========== AFTER (with V7) =========='
+\echo '--- findByRoomId'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF) EXECUTE find_by_room_id(:'room_id');
+\echo '--- findByRoomIdAndFileName'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF) EXECUTE find_by_room_id_and_file_name(:'room_id', 'src/File7.java');
+\echo '--- findDigestsByRoomId'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF) EXECUTE find_digests_by_room_id(:'room_id');
+\echo '--- findManifestByRoomId'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF) EXECUTE find_manifest_by_room_id(:'room_id');
+\echo '--- findByHostUsernameOrderByCreatedAtDesc'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF) EXECUTE find_rooms_by_host(:'host');
+\echo '--- findPageByHost, first page of 20'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF) EXECUTE find_page_by_host('heavy', :'first_at', :'first_id');
+\echo '--- findPageByHost, page of 20 deep into the heavy host (cost should match the first page)'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF) EXECUTE find_page_by_host('heavy', :'deep_at', :'deep_id');
+\echo '--- same deep page with the OR predicate (walks every earlier entry as a Filter)'
+EXPLAIN (ANALYZE, BUFFERS, COSTS OFF) EXECUTE find_page_by_host_or('heavy', :'deep_at', :'deep_id');
+
+RESET search_path;
+DROP SCHEMA vylop_bench CASCADE;
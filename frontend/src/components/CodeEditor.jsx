@@ -20,6 +20,27 @@ import './CodeEditor.css';
 // NEW IMPORTS FOR THE SUBMISSION ENGINE!
 import SubmissionReport from './SubmissionReport';
 import { evaluateSubmission } from '../services/evaluationService';
+import { submitRun, awaitJob, followJob } from '../services/executionJobs';
+import { 
+    hashContent, 
+    saveWorkspaceDelta, 
+    fetchManifest, 
+    fetchFileContent, 
+    seedClientId, 
+    buildSeedUpdate 
+} from '../services/workspaceSync';
+import { 
+    openYjsChannel, 
+    decodeUpdates, 
+    YJS_UPDATE, 
+    YJS_SYNC_REQUEST, 
+    YJS_SYNC_RESPONSE, 
+    YJS_SNAPSHOT_REQUEST, 
+    YJS_SNAPSHOT, 
+    YJS_SNAPSHOT_FILES,
+    encodeDocumentFiles,
+    YJS_UPDATE_BATCH 
+} from '../services/yjsChannel';
 
 const API_BASE_URL = 'https://vylop.onrender.com';
 const loadedRooms = new Set();
@@ -361,6 +382,7 @@ const CodeEditor = () => {
     const chatContainerRef = useRef(null);
     const typingTimeoutRef = useRef(null);
     const stompClient = useRef(null);
+    const liveRunRef = useRef(null);
     const isConnected = useRef(false);
     const notifiedUsers = useRef(new Set()); 
     const pendingCursors = useRef({});
@@ -372,11 +394,19 @@ const CodeEditor = () => {
     const ydocRef = useRef(new Y.Doc());
     const awarenessRef = useRef(new Awareness(ydocRef.current));
     const ymonacoBindingRef = useRef(null);
+    const yjsChannelRef = useRef(null);
+    // Node that owns this room in a multi-node deployment; realtime sockets go there
+    const realtimeBaseUrlRef = useRef(API_BASE_URL);
     const isHostRef = useRef(false);
     
     const [isWorkspaceLoaded, setIsWorkspaceLoaded] = useState(false);
-    const loadedFilesRef = useRef({});
+    // fileName -> { hash, size, seedId } of the stored workspace; bodies are fetched on first open
+    const manifestRef = useRef({});
+    const materializingRef = useRef({});
+    // SHA-256 per file of what the server last stored, so saves only send changed files
+    const savedHashesRef = useRef({});
     const ydocInitialized = useRef(false);
+    const [isYjsSynced, setIsYjsSynced] = useState(false);
 
     const isHost = currentUserRole === 'HOST';
     const canEdit = currentUserRole === 'HOST' || currentUserRole === 'EDITOR';
@@ -415,22 +445,33 @@ const CodeEditor = () => {
             if (loadedRooms.has(roomId)) return;
             loadedRooms.add(roomId);
             try {
+                try {
+                    const routeRes = await axios.get(`${API_BASE_URL}/api/cluster/route/${roomId}`);
+                    if (routeRes.data?.url) realtimeBaseUrlRef.current = routeRes.data.url;
+                } catch (routeError) {
+                    // Single-node backend: stay on API_BASE_URL
+                }
+
                 const metaRes = await axios.get(`${API_BASE_URL}/api/workspace/${roomId}`);
                 if (isMounted && metaRes.data?.name) {
                     setRoomName(metaRes.data.name);
                 }
                 
-                const response = await axios.get(`${API_BASE_URL}/api/workspace/${roomId}/load`);
+                const manifest = await fetchManifest(API_BASE_URL, roomId);
+                await Promise.all(Object.values(manifest).map(async entry => {
+                    entry.seedId = await seedClientId(entry.fileName, entry.hash);
+                }));
                 if (!isMounted) return;
                 
-                loadedFilesRef.current = response.data || {};
+                manifestRef.current = manifest;
+                savedHashesRef.current = Object.fromEntries(Object.values(manifest).map(entry => [entry.fileName, entry.hash]));
                 
-                if (Object.keys(loadedFilesRef.current).length > 0) {
+                if (Object.keys(manifest).length > 0) {
                     const newFilesState = {};
-                    Object.keys(loadedFilesRef.current).forEach(fileName => {
-                        newFilesState[fileName] = { 
-                            name: fileName, 
-                            language: getLanguageFromExtension(fileName) 
+                    Object.values(manifest).forEach(entry => {
+                        newFilesState[entry.fileName] = { 
+                            name: entry.fileName, 
+                            language: entry.language || getLanguageFromExtension(entry.fileName) 
                         };
                     });
                     setFiles(newFilesState);
@@ -461,13 +502,8 @@ const CodeEditor = () => {
     useEffect(() => {
         const ydoc = ydocRef.current;
         const updateHandler = (update, origin) => {
-            if (origin !== 'remote' && stompClient.current?.connected) {
-                const updateArray = Array.from(update);
-                stompClient.current.send(`/app/yjs/${roomId}`, {}, JSON.stringify({ 
-                    sender: username, 
-                    type: 'SYNC', 
-                    update: updateArray 
-                }));
+            if (origin !== 'remote' && yjsChannelRef.current) {
+                yjsChannelRef.current.send(YJS_UPDATE, update);
             }
         };
         ydoc.on('update', updateHandler);
@@ -648,6 +684,60 @@ const CodeEditor = () => {
         }
     }, [activeFile, bindMonacoToYjs]);
 
+    /**
+     * Puts a stored file's content into the shared doc the first time anyone opens it.
+     * The seed is written under a client id derived from the file's hash, so peers that
+     * open the same file at the same moment produce identical items and Yjs keeps one copy.
+     */
+    const materializeFile = useCallback((fileName) => {
+        const entry = manifestRef.current[fileName];
+        if (!entry) return Promise.resolve();
+        
+        if (!materializingRef.current[fileName]) {
+            materializingRef.current[fileName] = (async () => {
+                const ydoc = ydocRef.current;
+                if (ydoc.getText(fileName).length > 0 || ydoc.store.clients.has(entry.seedId)) return;
+                
+                const content = await fetchFileContent(API_BASE_URL, roomId, fileName);
+                // A peer may have seeded it while we were fetching
+                if (ydoc.store.clients.has(entry.seedId)) return;
+                Y.applyUpdate(ydoc, buildSeedUpdate(fileName, content, entry.seedId));
+            })().catch(error => {
+                delete materializingRef.current[fileName];
+                throw error;
+            });
+        }
+        return materializingRef.current[fileName];
+    }, [roomId]);
+
+    const materializeFiles = (fileNames) => Promise.all(fileNames.map(materializeFile));
+
+    // Files the editor never opened and nobody else has seeded: their stored copy is still current
+    const untouchedFiles = (fileNames) => fileNames.filter(fileName => {
+        const entry = manifestRef.current[fileName];
+        return entry 
+            && ydocRef.current.getText(fileName).length === 0 
+            && !ydocRef.current.store.clients.has(entry.seedId);
+    });
+
+    useEffect(() => {
+        if (!isYjsSynced) return;
+        
+        if (Object.keys(manifestRef.current).length === 0) {
+            // Fresh room: everyone seeds the same starter file under the same client id
+            const snippet = CODE_SNIPPETS["java"];
+            hashContent(snippet)
+                .then(hash => seedClientId("src/Main.java", hash))
+                .then(seedId => {
+                    const ydoc = ydocRef.current;
+                    if (ydoc.getText("src/Main.java").length > 0 || ydoc.store.clients.has(seedId)) return;
+                    Y.applyUpdate(ydoc, buildSeedUpdate("src/Main.java", snippet, seedId));
+                });
+        } else if (activeFile) {
+            materializeFile(activeFile).catch(() => toast.error(`Failed to load ${activeFile}`));
+        }
+    }, [activeFile, isYjsSynced, materializeFile]);
+
     const handleEditorDidMount = (editor, monaco) => {
         editorRef.current = editor;
         monacoRef.current = monaco;
@@ -790,8 +880,17 @@ const CodeEditor = () => {
         }
         
         let reconnectTimeout;
+
+        // Hands the server our document on the way out, so edits since its last snapshot get autosaved
+        const sendFinalSnapshot = () => {
+            if (yjsChannelRef.current && ydocInitialized.current) {
+                yjsChannelRef.current.send(YJS_SNAPSHOT, Y.encodeStateAsUpdate(ydocRef.current));
+                yjsChannelRef.current.send(YJS_SNAPSHOT_FILES, encodeDocumentFiles(ydocRef.current));
+            }
+        };
         
         const handleBeforeUnload = () => {
+            sendFinalSnapshot();
             if (stompClient.current?.connected) {
                 stompClient.current.send(`/app/room/${roomId}/leave`, {}, JSON.stringify({ 
                     username, 
@@ -803,10 +902,46 @@ const CodeEditor = () => {
         
         window.addEventListener('beforeunload', handleBeforeUnload);
 
+        if (!yjsChannelRef.current) {
+            yjsChannelRef.current = openYjsChannel(realtimeBaseUrlRef.current, roomId, username, {
+                onFrame: (tag, payload) => {
+                    try {
+                        if (tag === YJS_UPDATE) {
+                            Y.applyUpdate(ydocRef.current, payload, 'remote');
+                        } else if (tag === YJS_UPDATE_BATCH) {
+                            Y.applyUpdate(ydocRef.current, Y.mergeUpdates(decodeUpdates(payload)), 'remote');
+                        } else if (tag === YJS_SYNC_RESPONSE) {
+                            const updates = decodeUpdates(payload);
+                            if (updates.length > 0) {
+                                Y.applyUpdate(ydocRef.current, Y.mergeUpdates(updates), 'remote');
+                            }
+                            setIsYjsSynced(true);
+                            if (updates.length === 0 && ydocInitialized.current && Y.encodeStateVector(ydocRef.current).length > 1) {
+                                // Server lost the room (e.g. restart) — hand it our copy without broadcasting
+                                yjsChannelRef.current.send(YJS_SNAPSHOT, Y.encodeStateAsUpdate(ydocRef.current));
+                            }
+                        } else if (tag === YJS_SNAPSHOT_REQUEST) {
+                            yjsChannelRef.current.send(YJS_SNAPSHOT, Y.encodeStateAsUpdate(ydocRef.current));
+                            // Lets the server autosave the room without the host clicking Save
+                            yjsChannelRef.current.send(YJS_SNAPSHOT_FILES, encodeDocumentFiles(ydocRef.current));
+                        }
+                    } catch (err) {
+                        console.error("[VYLOP DEBUG] Yjs Sync Error:", err);
+                    }
+                },
+                onOpen: () => {
+                    // After a dropped socket, catch up on whatever was missed
+                    if (ydocInitialized.current) {
+                        yjsChannelRef.current.send(YJS_SYNC_REQUEST, Y.encodeStateVector(ydocRef.current));
+                    }
+                }
+            });
+        }
+
         const connectToSocket = () => {
             if (isConnected.current) return;
             
-            const socket = new SockJS(`${API_BASE_URL}/ws`);
+            const socket = new SockJS(`${realtimeBaseUrlRef.current}/ws`);
             const client = Stomp.over(socket);
             client.debug = () => {};
             
@@ -816,31 +951,7 @@ const CodeEditor = () => {
                 setWsConnected(true);
                 clearTimeout(reconnectTimeout);
 
-                client.subscribe(`/topic/yjs/${roomId}`, (msg) => {
-                    try {
-                        let payload = msg.body;
-                        if (typeof payload === 'string') payload = JSON.parse(payload);
-                        if (typeof payload === 'string') payload = JSON.parse(payload);
-
-                        if (payload.type === 'SYNC' && payload.sender !== username) {
-                            const updateArray = new Uint8Array(payload.update);
-                            Y.applyUpdate(ydocRef.current, updateArray, 'remote');
-                        } else if (payload.type === 'REQUEST_SYNC' && isHostRef.current && payload.sender !== username) {
-                            const state = Y.encodeStateAsUpdate(ydocRef.current);
-                            stompClient.current.send(`/app/yjs/${roomId}`, {}, JSON.stringify({ 
-                                sender: username, 
-                                type: 'SYNC', 
-                                update: Array.from(state) 
-                            }));
-                        }
-                    } catch (err) {
-                        console.error("[VYLOP DEBUG] Yjs Sync Parsing Error:", err);
-                    }
-                });
-
-                client.subscribe(`/topic/code/${roomId}`, (msg) => {
-                    const body = JSON.parse(msg.body);
-                    
+                const handleCodeEvent = (body) => {
                     if (body.type === "PROBLEM_SYNC") {
                         if (body.fileName === "CLEAR") {
                             setCurrentProblem(null);
@@ -886,7 +997,7 @@ const CodeEditor = () => {
                             } 
                         }));
                     }
-                });
+                };
 
                 client.subscribe(`/topic/users/${roomId}`, (msg) => {
                     const body = JSON.parse(msg.body);
@@ -894,50 +1005,8 @@ const CodeEditor = () => {
                     if (!ydocInitialized.current) {
                         const me = body.users.find(u => u.username === username);
                         if (me) {
-                            if (body.users.length === 1) {
-                                ydocRef.current.transact(() => {
-                                    const dbFiles = Object.keys(loadedFilesRef.current);
-                                    if (dbFiles.length > 0) {
-                                        dbFiles.forEach(fileName => { 
-                                            const ytext = ydocRef.current.getText(fileName); 
-                                            if (ytext.length === 0) {
-                                                ytext.insert(0, loadedFilesRef.current[fileName]); 
-                                            }
-                                        });
-                                    } else {
-                                        const ytext = ydocRef.current.getText("src/Main.java");
-                                        if (ytext.length === 0) {
-                                            ytext.insert(0, CODE_SNIPPETS["java"]);
-                                        }
-                                    }
-                                });
-                            } else {
-                                client.send(`/app/yjs/${roomId}`, {}, JSON.stringify({ 
-                                    sender: username, 
-                                    type: 'REQUEST_SYNC' 
-                                }));
-                                
-                                setTimeout(() => {
-                                    if (ydocRef.current.getText(activeFile || "src/Main.java").length === 0) {
-                                        ydocRef.current.transact(() => {
-                                            const dbFiles = Object.keys(loadedFilesRef.current);
-                                            if (dbFiles.length > 0) {
-                                                dbFiles.forEach(fileName => { 
-                                                    const ytext = ydocRef.current.getText(fileName); 
-                                                    if (ytext.length === 0) {
-                                                        ytext.insert(0, loadedFilesRef.current[fileName]); 
-                                                    }
-                                                });
-                                            } else {
-                                                const ytext = ydocRef.current.getText("src/Main.java");
-                                                if (ytext.length === 0) {
-                                                    ytext.insert(0, CODE_SNIPPETS["java"]);
-                                                }
-                                            }
-                                        });
-                                    }
-                                }, 3000);
-                            }
+                            // Files are seeded lazily once we hold the room's current state
+                            yjsChannelRef.current?.send(YJS_SYNC_REQUEST, Y.encodeStateVector(ydocRef.current));
                             ydocInitialized.current = true;
                         }
                     }
@@ -985,8 +1054,7 @@ const CodeEditor = () => {
                     setMessages(prev => [...prev, JSON.parse(msg.body)]); 
                 });
                 
-                client.subscribe(`/topic/typing/${roomId}`, (msg) => {
-                    const body = JSON.parse(msg.body);
+                const handleTypingEvent = (body) => {
                     if (body.username !== username) {
                         setTypingUsers(prev => { 
                             const s = new Set(prev); 
@@ -998,17 +1066,48 @@ const CodeEditor = () => {
                             return Array.from(s); 
                         });
                     }
-                });
+                };
                 
-                client.subscribe(`/topic/cursor/${roomId}`, (msg) => {
-                    const body = JSON.parse(msg.body);
+                const handleCursorEvent = (body) => {
                     updateRemoteCursor(
                         body.username, 
                         { lineNumber: body.lineNumber, column: body.column }, 
                         body.fileName || activeFile
                     );
+                };
+
+                // Code events arrive coalesced, one frame per batching window
+                client.subscribe(`/topic/batch/${roomId}`, (msg) => {
+                    (JSON.parse(msg.body).code || []).forEach(handleCodeEvent);
+                });
+
+                // Latest cursor/typing state per user, sampled at a capped rate by the server
+                client.subscribe(`/topic/presence/${roomId}`, (msg) => {
+                    const presence = JSON.parse(msg.body);
+                    (presence.typing || []).forEach(handleTypingEvent);
+                    (presence.cursors || []).forEach(handleCursorEvent);
                 });
                 
+                // Anyone's run in this room streams into everyone's console
+                client.subscribe(`/topic/exec/${roomId}`, (msg) => {
+                    const run = JSON.parse(msg.body);
+                    if (run.type !== 'started') return;
+
+                    liveRunRef.current?.unsubscribe();
+                    const mine = run.startedBy === username;
+                    const header = mine ? "" : `▶ Run by ${run.startedBy}\n`;
+                    setOutput(header);
+                    if (!mine) setActiveBottomTab("console");
+
+                    liveRunRef.current = followJob(client, roomId, run.jobId,
+                        (data) => setOutput(prev => prev + data),
+                        (result) => {
+                            liveRunRef.current = null;
+                            // The runner's own result (and error markers) is set by runCode
+                            if (!mine) setOutput(header + (typeof result === 'object' ? JSON.stringify(result, null, 2) : String(result)));
+                        });
+                });
+
                 client.send(`/app/room/${roomId}/join`, {}, JSON.stringify({ 
                     username, 
                     type: "JOIN" 
@@ -1027,6 +1126,8 @@ const CodeEditor = () => {
             window.removeEventListener('beforeunload', handleBeforeUnload);
             clearTimeout(reconnectTimeout);
             disconnectTimeoutRef.current = setTimeout(() => {
+                // Before LEAVE: once we are out of the room the server no longer takes our snapshot
+                sendFinalSnapshot();
                 if (stompClient.current?.connected) { 
                     stompClient.current.send(`/app/room/${roomId}/leave`, {}, JSON.stringify({ 
                         username, 
@@ -1034,6 +1135,10 @@ const CodeEditor = () => {
                     })); 
                     stompClient.current.disconnect(); 
                 }
+                if (yjsChannelRef.current) {
+                    yjsChannelRef.current.close();
+                    yjsChannelRef.current = null;
+                }
                 isConnected.current = false; 
                 setWsConnected(false); 
                 stompClient.current = null;
@@ -1333,6 +1438,7 @@ const CodeEditor = () => {
         }
 
         try {
+            await materializeFiles(Object.keys(files));
             const fileData = {};
             Object.keys(files).forEach(key => { 
                 fileData[key] = ydocRef.current.getText(key).toString(); 
@@ -1345,16 +1451,20 @@ const CodeEditor = () => {
                 return acc;
             }, {});
             
-            const response = await axios.post(`${API_BASE_URL}/api/execute`, {
+            // Queued server-side; the result comes back over STOMP or polling
+            const jobId = await submitRun(API_BASE_URL, {
                 language: files[activeFile]?.language || "plaintext",
                 code: ydocRef.current.getText(activeFile).toString(),
                 input: inputToRun, 
                 mainFile: activeFile,
                 files: fileData,
-                envVars: envVarsPayload
-            }, { transformResponse: [(data) => data] }); 
+                envVars: envVarsPayload,
+                roomId: roomId,
+                username: username
+            });
+            const result = await awaitJob(API_BASE_URL, jobId, stompClient.current, roomId);
             
-            const outputText = typeof response.data === 'object' ? JSON.stringify(response.data, null, 2) : String(response.data);
+            const outputText = typeof result === 'object' ? JSON.stringify(result, null, 2) : String(result);
             setOutput(outputText);
 
             const parsed = parseErrors(outputText, files[activeFile]?.language || "plaintext", files);
@@ -1378,7 +1488,7 @@ const CodeEditor = () => {
                 }
             }
         } catch (error) {
-            setOutput("Execution failed.");
+            setOutput(typeof error.response?.data === 'string' ? error.response.data : "Execution failed.");
         } finally {
             setIsRunning(false);
         }
@@ -1392,6 +1502,14 @@ const CodeEditor = () => {
         setSubmissionResult(null);
         setActiveBottomTab("submission"); 
 
+        try {
+            await materializeFiles(Object.keys(files));
+        } catch (error) {
+            toast.error("Failed to load workspace files");
+            setIsSubmitting(false);
+            return;
+        }
+
         const fileData = {};
         Object.keys(files).forEach(key => { 
             fileData[key] = ydocRef.current.getText(key).toString(); 
@@ -1425,15 +1543,17 @@ const CodeEditor = () => {
         
         setIsSaving(true);
         try {
+            // Never-opened files are sent as "unchanged" instead of being downloaded just to re-upload
+            const untouched = untouchedFiles(Object.keys(files));
             const fileData = {};
-            Object.keys(files).forEach(key => { 
+            Object.keys(files).filter(key => !untouched.includes(key)).forEach(key => { 
                 fileData[key] = ydocRef.current.getText(key).toString(); 
             });
             
-            await axios.post(`${API_BASE_URL}/api/workspace/${roomId}/save?username=${encodeURIComponent(username)}&roomName=${encodeURIComponent(roomName)}`, fileData);
+            savedHashesRef.current = await saveWorkspaceDelta(API_BASE_URL, roomId, username, roomName, fileData, savedHashesRef.current, untouched);
             toast.success("Workspace saved to cloud! ☁️");
         } catch (error) { 
-            toast.error(error.response?.data || "Failed to save workspace."); 
+            toast.error(error.response?.data?.message || error.response?.data || "Failed to save workspace."); 
         } finally { 
             setIsSaving(false); 
         }
@@ -1441,6 +1561,7 @@ const CodeEditor = () => {
 
     const downloadWorkspace = async () => {
         try {
+            await materializeFiles(Object.keys(files));
             const zip = new JSZip();
             Object.keys(files).forEach(fileName => { 
                 zip.file(fileName, ydocRef.current.getText(fileName).toString()); 
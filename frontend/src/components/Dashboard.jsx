@@ -3,6 +3,7 @@ import { useNavigate } from 'react-router-dom';
 import axios from 'axios';
 import toast from 'react-hot-toast';
 import { v4 as uuidv4 } from 'uuid';
+import { fetchWorkspacePage } from '../services/workspaceSync';
 import './CodeEditor.css'; 
 
 const API_BASE_URL = 'https://vylop.onrender.com';
@@ -10,7 +11,10 @@ const API_BASE_URL = 'https://vylop.onrender.com';
 const Dashboard = () => {
     const navigate = useNavigate();
     const [workspaces, setWorkspaces] = useState([]);
+    const [nextCursor, setNextCursor] = useState(null);
+    const [search, setSearch] = useState("");
     const [isLoading, setIsLoading] = useState(true);
+    const [isLoadingMore, setIsLoadingMore] = useState(false);
     const [joinRoomId, setJoinRoomId] = useState("");
     
     const username = localStorage.getItem('username');
@@ -21,14 +25,17 @@ const Dashboard = () => {
             navigate('/auth');
             return;
         }
-        fetchWorkspaces();
-    }, [username, navigate]);
+        // Debounced so typing a filter doesn't fire a request per keystroke
+        const timer = setTimeout(() => fetchWorkspaces(search), search ? 300 : 0);
+        return () => clearTimeout(timer);
+    }, [username, navigate, search]);
 
-    const fetchWorkspaces = async () => {
+    const fetchWorkspaces = async (q) => {
         try {
             setIsLoading(true);
-            const response = await axios.get(`${API_BASE_URL}/api/workspace/user/${username}`);
-            setWorkspaces(response.data);
+            const page = await fetchWorkspacePage(API_BASE_URL, username, { q });
+            setWorkspaces(page.items);
+            setNextCursor(page.nextCursor);
         } catch (error) {
             console.error("Fetch error:", error);
             toast.error("ERR_CONNECTION_REFUSED");
@@ -37,6 +44,21 @@ const Dashboard = () => {
         }
     };
 
+    const fetchMoreWorkspaces = async () => {
+        if (!nextCursor || isLoadingMore) return;
+        try {
+            setIsLoadingMore(true);
+            const page = await fetchWorkspacePage(API_BASE_URL, username, { cursor: nextCursor, q: search });
+            setWorkspaces(prev => [...prev, ...page.items]);
+            setNextCursor(page.nextCursor);
+        } catch (error) {
+            console.error("Fetch error:", error);
+            toast.error("ERR_CONNECTION_REFUSED");
+        } finally {
+            setIsLoadingMore(false);
+        }
+    };
+
     const handleCreateNew = () => {
         const roomId = uuidv4();
         navigate(`/room/${roomId}`, {
@@ -106,6 +128,8 @@ const Dashboard = () => {
 
             <div>
                 <h2 style={{ borderBottom: '1px solid #00FF41', paddingBottom: '10px', marginBottom: '20px' }}>{">"} LS -LA ./SAVED_DIRECTORIES</h2>
+                <input type="text" value={search} onChange={(e) => setSearch(e.target.value)} placeholder="GREP_BY_NAME..." 
+                       style={{ width: '100%', boxSizing: 'border-box', background: '#000', color: '#00FF41', border: '1px solid #00FF41', padding: '10px', fontFamily: 'inherit', outline: 'none', marginBottom: '20px' }} />
                 
                 {isLoading ? (
                     <p className="blink">SCANNING_DRIVES...</p>
@@ -128,6 +152,12 @@ const Dashboard = () => {
                                 </button>
                             </div>
                         ))}
+                        {nextCursor && (
+                            <button onClick={fetchMoreWorkspaces} disabled={isLoadingMore}
+                                    style={{ background: 'transparent', color: '#00FF41', border: '1px dashed #00FF41', padding: '10px', cursor: 'pointer', fontFamily: 'inherit' }}>
+                                {isLoadingMore ? 'READING_SECTORS...' : '[ LOAD_MORE ]'}
+                            </button>
+                        )}
                     </div>
                 )}
             </div>
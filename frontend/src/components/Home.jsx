@@ -3,6 +3,7 @@ import { v4 as uuidv4 } from 'uuid';
 import toast from 'react-hot-toast';
 import { useNavigate } from 'react-router-dom';
 import axios from 'axios';
+import { fetchWorkspacePage } from '../services/workspaceSync';
 import './Home.css'; 
 
 const API_BASE_URL = 'https://vylop.onrender.com';
@@ -12,7 +13,9 @@ const Home = () => {
 
     const [username, setUsername] = useState(() => localStorage.getItem('username') || '');
     const [recentRooms, setRecentRooms] = useState([]);
+    const [nextRoomsCursor, setNextRoomsCursor] = useState(null);
     const [isLoadingRooms, setIsLoadingRooms] = useState(true);
+    const [isLoadingMoreRooms, setIsLoadingMoreRooms] = useState(false);
     
     // Modal & Menu States
     const [workspaceToDelete, setWorkspaceToDelete] = useState(null);
@@ -35,8 +38,9 @@ const Home = () => {
     const fetchRecentRooms = async (user) => {
         setIsLoadingRooms(true);
         try {
-            const response = await axios.get(`${API_BASE_URL}/api/workspace/user/${user}`);
-            setRecentRooms(response.data);
+            const page = await fetchWorkspacePage(API_BASE_URL, user, { limit: 12 });
+            setRecentRooms(page.items);
+            setNextRoomsCursor(page.nextCursor);
         } catch (error) {
             console.error("Failed to fetch recent rooms:", error);
             toast.error("Failed to load workspaces");
@@ -45,6 +49,21 @@ const Home = () => {
         }
     };
 
+    const fetchMoreRooms = async () => {
+        if (!nextRoomsCursor || isLoadingMoreRooms) return;
+        setIsLoadingMoreRooms(true);
+        try {
+            const page = await fetchWorkspacePage(API_BASE_URL, username, { cursor: nextRoomsCursor, limit: 12 });
+            setRecentRooms(prev => [...prev, ...page.items]);
+            setNextRoomsCursor(page.nextCursor);
+        } catch (error) {
+            console.error("Failed to fetch more rooms:", error);
+            toast.error("Failed to load workspaces");
+        } finally {
+            setIsLoadingMoreRooms(false);
+        }
+    };
+
     const handleLogout = () => {
         localStorage.removeItem('username');
         localStorage.removeItem('loginType');
@@ -368,6 +387,14 @@ const Home = () => {
                         ))}
                     </div>
                 )}
+                {!isLoadingRooms && nextRoomsCursor && (
+                    <div style={{ display: 'flex', justifyContent: 'center', paddingBottom: '40px' }}>
+                        <button onClick={fetchMoreRooms} disabled={isLoadingMoreRooms}
+                                style={{ background: 'transparent', color: '#58a6ff', border: '1px solid #30363d', borderRadius: '8px', padding: '10px 24px', cursor: 'pointer', fontWeight: 'bold' }}>
+                            {isLoadingMoreRooms ? 'Loading...' : 'Load more workspaces'}
+                        </button>
+                    </div>
+                )}
             </div>
 
             <footer>
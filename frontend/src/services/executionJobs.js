@@ -0,0 +1,80 @@
+import axios from 'axios';
+
+// Runs are queued server-side: POST returns a job ID at once and the result arrives on
+// /topic/exec/{roomId}/{jobId}. Polling runs alongside the subscription, so a result that
+// landed before we subscribed (or a dropped STOMP connection) is still picked up.
+// /topic/exec/{roomId} announces every run in the room; the job topic then carries
+// {type: 'output', stream, data} frames while it runs and one {type: 'status'} frame at the end.
+
+const POLL_START_MS = 500;
+const POLL_MAX_MS = 3000;
+const GIVE_UP_MS = 120000;
+
+export const submitRun = async (baseUrl, payload) => {
+    const response = await axios.post(`${baseUrl}/api/execute/jobs`, payload);
+    return response.data.jobId;
+};
+
+// Resolves with the job's result once it is DONE or FAILED
+export const awaitJob = (baseUrl, jobId, stompClient, roomId) => new Promise((resolve, reject) => {
+    let settled = false;
+    let subscription = null;
+    let timer = null;
+    const startedAt = Date.now();
+
+    const settle = (job) => {
+        if (settled) return;
+        settled = true;
+        clearTimeout(timer);
+        subscription?.unsubscribe();
+        resolve(job.result);
+    };
+
+    if (stompClient?.connected && roomId) {
+        subscription = stompClient.subscribe(`/topic/exec/${roomId}/${jobId}`, (msg) => {
+            const job = JSON.parse(msg.body);
+            if (job.type === 'status' && (job.status === 'DONE' || job.status === 'FAILED')) settle(job);
+        });
+    }
+
+    const poll = async (delay) => {
+        if (settled) return;
+        try {
+            const { data: job } = await axios.get(`${baseUrl}/api/execute/jobs/${jobId}`);
+            if (job.status === 'DONE' || job.status === 'FAILED') {
+                settle(job);
+                return;
+            }
+        } catch (error) {
+            if (error.response?.status === 404) {
+                settled = true;
+                subscription?.unsubscribe();
+                reject(new Error("Run expired before its result was fetched."));
+                return;
+            }
+        }
+        if (Date.now() - startedAt > GIVE_UP_MS) {
+            settled = true;
+            subscription?.unsubscribe();
+            reject(new Error("Timed out waiting for the run."));
+            return;
+        }
+        timer = setTimeout(() => poll(Math.min(delay * 2, POLL_MAX_MS)), delay);
+    };
+
+    timer = setTimeout(() => poll(POLL_START_MS), POLL_START_MS);
+});
+
+// Live output of a run announced on /topic/exec/{roomId}; returns the subscription
+export const followJob = (stompClient, roomId, jobId, onOutput, onDone) => {
+    const subscription = stompClient.subscribe(`/topic/exec/${roomId}/${jobId}`, (msg) => {
+        const frame = JSON.parse(msg.body);
+        if (frame.type === 'output') {
+            onOutput(frame.data, frame.stream);
+        } else if (frame.type === 'status' && (frame.status === 'DONE' || frame.status === 'FAILED')) {
+            subscription.unsubscribe();
+            onDone(frame.result);
+        }
+    });
+    return subscription;
+};
@@ -0,0 +1,100 @@
+import axios from 'axios';
+import * as Y from 'yjs';
+
+// Hash-based workspace saves. The server stores a SHA-256 of every file's UTF-8
+// content; we remember the hashes of what was last loaded or saved and only send
+// the bodies of files whose hash changed since then.
+
+const toHex = (buffer) => Array.from(new Uint8Array(buffer), b => b.toString(16).padStart(2, '0')).join('');
+
+export const hashContent = async (text) => {
+    const digest = await crypto.subtle.digest('SHA-256', new TextEncoder().encode(text ?? ''));
+    return toHex(digest);
+};
+
+export const hashFiles = async (files) => {
+    const entries = await Promise.all(
+        Object.entries(files).map(async ([fileName, text]) => [fileName, await hashContent(text)])
+    );
+    return Object.fromEntries(entries);
+};
+
+/**
+ * Saves `files` (fileName -> text) given the hashes of the last known server state.
+ * Files listed in `untouched` were never loaded into the editor and keep their stored
+ * content. Resolves with the new hashes to remember for the next save.
+ */
+export const saveWorkspaceDelta = async (baseUrl, roomId, username, roomName, files, savedHashes, untouched = []) => {
+    const url = `${baseUrl}/api/workspace/${roomId}/save-delta?username=${encodeURIComponent(username)}&roomName=${encodeURIComponent(roomName)}`;
+    const manifest = await hashFiles(files);
+    untouched.forEach(fileName => {
+        if (savedHashes[fileName]) manifest[fileName] = savedHashes[fileName];
+    });
+
+    const changed = {};
+    Object.keys(manifest).forEach(fileName => {
+        if (savedHashes[fileName] !== manifest[fileName]) changed[fileName] = files[fileName];
+    });
+
+    try {
+        await axios.post(url, { manifest, files: changed });
+    } catch (error) {
+        // Our idea of the server state was stale (another host saved, first save, ...):
+        // send the files it asked for and try once more
+        const missing = error.response?.status === 409 ? error.response.data?.missing : null;
+        if (!missing) throw error;
+
+        missing.forEach(fileName => { changed[fileName] = files[fileName]; });
+        await axios.post(url, { manifest, files: changed });
+    }
+    return manifest;
+};
+
+// --- Lazy loading ---
+// Rooms open from a metadata-only manifest; a file's body is fetched the first time
+// someone opens it and seeded into the shared Y.Doc.
+
+export const fetchManifest = async (baseUrl, roomId) => {
+    const response = await axios.get(`${baseUrl}/api/workspace/${roomId}/manifest`);
+    const manifest = {};
+    (response.data || []).forEach(entry => { manifest[entry.fileName] = entry; });
+    return manifest;
+};
+
+// One page of a host's workspaces, newest first. Pass the previous page's nextCursor to
+// continue; nextCursor comes back null on the last page.
+export const fetchWorkspacePage = async (baseUrl, username, { cursor, q, limit = 20 } = {}) => {
+    const response = await axios.get(`${baseUrl}/api/workspace/user/${encodeURIComponent(username)}/page`, {
+        params: { cursor: cursor || undefined, q: q || undefined, limit }
+    });
+    return { items: response.data?.items ?? [], nextCursor: response.data?.nextCursor ?? null };
+};
+
+export const fetchFileContent = async (baseUrl, roomId, fileName) => {
+    const response = await axios.get(`${baseUrl}/api/workspace/${roomId}/file`, {
+        params: { name: fileName },
+        responseType: 'text',
+        transformResponse: [(data) => data]
+    });
+    return response.data ?? '';
+};
+
+/**
+ * Yjs client id used to seed a file, derived from its name and stored content hash.
+ * Every client seeding the same file version produces byte-identical items, which Yjs
+ * merges into one — so concurrent first opens can never duplicate the text.
+ */
+export const seedClientId = async (fileName, contentHash) => {
+    const digest = await crypto.subtle.digest('SHA-256', new TextEncoder().encode(`${fileName}\u0000${contentHash}`));
+    // Clear the top bit so the id stays a positive 31-bit integer like Yjs' own ids
+    return new DataView(digest).getUint32(0) >>> 1;
+};
+
+export const buildSeedUpdate = (fileName, content, clientId) => {
+    const seedDoc = new Y.Doc();
+    seedDoc.clientID = clientId;
+    seedDoc.getText(fileName).insert(0, content);
+    const update = Y.encodeStateAsUpdate(seedDoc);
+    seedDoc.destroy();
+    return update;
+};
@@ -0,0 +1,98 @@
+// Binary transport for Yjs updates. Each frame is [tag byte][raw Yjs payload];
+// the backend relays UPDATE frames byte-for-byte to the rest of the room and
+// answers SYNC_REQUEST (payload = state vector) from its own copy of the document.
+// Updates relayed within one batching window arrive together as UPDATE_BATCH.
+// SNAPSHOT_FILES goes with every requested SNAPSHOT: the document's files as
+// {fileName: text} JSON, which the backend autosaves since it cannot render Yjs itself.
+
+export const YJS_UPDATE = 0;
+export const YJS_SYNC_REQUEST = 1;
+export const YJS_SYNC_RESPONSE = 2;
+export const YJS_SNAPSHOT_REQUEST = 3;
+export const YJS_SNAPSHOT = 4;
+export const YJS_UPDATE_BATCH = 5;
+export const YJS_SNAPSHOT_FILES = 6;
+
+const RECONNECT_DELAY_MS = 3000;
+
+export const encodeYjsFrame = (tag, payload = new Uint8Array(0)) => {
+    const frame = new Uint8Array(payload.length + 1);
+    frame[0] = tag;
+    frame.set(payload, 1);
+    return frame;
+};
+
+// SYNC_RESPONSE / UPDATE_BATCH payload: repeated [uint32 big-endian length][Yjs update]
+export const decodeUpdates = (payload) => {
+    const view = new DataView(payload.buffer, payload.byteOffset, payload.byteLength);
+    const updates = [];
+    let offset = 0;
+    while (offset + 4 <= payload.length) {
+        const length = view.getUint32(offset);
+        offset += 4;
+        updates.push(payload.subarray(offset, offset + length));
+        offset += length;
+    }
+    return updates;
+};
+
+// Every non-empty top-level Y.Text, i.e. each file someone has opened, as UTF-8 JSON
+export const encodeDocumentFiles = (ydoc) => {
+    const files = {};
+    ydoc.share.forEach((type, name) => {
+        if (type._length > 0) files[name] = ydoc.getText(name).toString();
+    });
+    return new TextEncoder().encode(JSON.stringify(files));
+};
+
+/**
+ * Opens the /yjs/{roomId} socket and keeps it alive until close() is called.
+ * Frames sent while the socket is (re)connecting are queued and flushed on open.
+ * The backend only accepts edits and snapshots from `username` while it is the room's
+ * HOST or an EDITOR.
+ */
+export const openYjsChannel = (baseUrl, roomId, username, { onFrame, onOpen }) => {
+    const url = `${baseUrl.replace(/^http/, 'ws')}/yjs/${roomId}?username=${encodeURIComponent(username)}`;
+    let socket = null;
+    let closed = false;
+    let reconnectTimeout = null;
+    const pending = [];
+
+    const connect = () => {
+        socket = new WebSocket(url);
+        socket.binaryType = 'arraybuffer';
+
+        socket.onopen = () => {
+            while (pending.length > 0) socket.send(pending.shift());
+            if (onOpen) onOpen();
+        };
+
+        socket.onmessage = (event) => {
+            const frame = new Uint8Array(event.data);
+            if (frame.length === 0) return;
+            onFrame(frame[0], frame.subarray(1));
+        };
+
+        socket.onclose = () => {
+            if (!closed) reconnectTimeout = setTimeout(connect, RECONNECT_DELAY_MS);
+        };
+    };
+
+    connect();
+
+    return {
+        send: (tag, payload) => {
+            const frame = encodeYjsFrame(tag, payload);
+            if (socket?.readyState === WebSocket.OPEN) {
+                socket.send(frame);
+            } else {
+                pending.push(frame);
+            }
+        },
+        close: () => {
+            closed = true;
+            clearTimeout(reconnectTimeout);
+            if (socket) socket.close();
+        }
+    };
+};